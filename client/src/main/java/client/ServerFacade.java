@@ -1,18 +1,24 @@
 package client;
 
-import com.google.gson.Gson;
 import datamodel.RegisterResponse;
 import datamodel.GameData;
+import datamodel.GameSummary;
 import datamodel.UserData;
 
 import java.io.*;
 import java.net.*;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import serialization.ChessJson;
 
 public class ServerFacade {
 
     private final String serverUrl;
+    private final Map<String, CachedResponse> conditionalCache = new ConcurrentHashMap<>();
+
+    private record CachedResponse(String etag, Object body) {
+    }
 
     public ServerFacade(String url) {
         serverUrl = url;
@@ -43,8 +49,15 @@ public class ServerFacade {
     }
 
     public GameListResult listGames(String authToken) throws ResponseException {
-        var path = "/game";
-        return makeRequest("GET", path, null, GameListResult.class, authToken);
+        return listGames(authToken, null);
+    }
+
+    /**
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     */
+    public GameListResult listGames(String authToken, Integer cursor) throws ResponseException {
+        var path = cursor == null ? "/game" : "/game?cursor=" + cursor;
+        return makeConditionalRequest(path, GameListResult.class, authToken);
     }
 
     public void joinGame(String authToken, String playerColor, int gameID) throws ResponseException {
@@ -59,6 +72,13 @@ public class ServerFacade {
         makeRequest("PUT", path, body, null, authToken);
     }
 
+    /**
+     * Seats the server's bot in a game to play the given color
+     */
+    public void addBot(String authToken, String playerColor, int gameID) throws ResponseException {
+        makeRequest("PUT", "/game/bot", Map.of("playerColor", playerColor, "gameID", gameID), null, authToken);
+    }
+
     public void clear() throws ResponseException {
         var path = "/db";
         makeRequest("DELETE", path, null, null);
@@ -93,10 +113,47 @@ public class ServerFacade {
         }
     }
 
+    /**
+     * A GET that sends back the ETag of the last response for the same path, and
+     * reuses that response when the server answers 304 Not Modified.
+     */
+    private <T> T makeConditionalRequest(String path, Class<T> responseClass, String authHeader)
+            throws ResponseException {
+        String key = authHeader + " " + path;
+        try {
+            URL url = URI.create(serverUrl + path).toURL();
+            HttpURLConnection http = (HttpURLConnection) url.openConnection();
+            http.setRequestMethod("GET");
+            if (authHeader != null) {
+                http.addRequestProperty("authorization", authHeader);
+            }
+            CachedResponse cached = conditionalCache.get(key);
+            if (cached != null) {
+                http.addRequestProperty("If-None-Match", cached.etag());
+            }
+
+            http.connect();
+            if (cached != null && http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return responseClass.cast(cached.body());
+            }
+            throwIfNotSuccessful(http);
+            T body = readBody(http, responseClass);
+            String etag = http.getHeaderField("ETag");
+            if (etag != null && body != null) {
+                conditionalCache.put(key, new CachedResponse(etag, body));
+            }
+            return body;
+        } catch (ResponseException rex) {
+            throw rex;
+        } catch (Exception ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
+    }
+
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = ChessJson.GSON.toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
             }
@@ -141,7 +198,7 @@ public class ServerFacade {
         String message;
         // Try to parse JSON and extract the message field
         try {
-            var errorResponse = new Gson().fromJson(rawResponse, java.util.Map.class);
+            var errorResponse = ChessJson.GSON.fromJson(rawResponse, java.util.Map.class);
             if (errorResponse != null && errorResponse.containsKey("message")) {
                 message = (String) errorResponse.get("message");
             } else {
@@ -176,12 +233,12 @@ public class ServerFacade {
                 return null;
             }
             InputStreamReader reader = new InputStreamReader(respBody);
-            return new Gson().fromJson(reader, responseClass);
+            return ChessJson.GSON.fromJson(reader, responseClass);
         } catch (IOException ioe) {
             InputStream err = http.getErrorStream();
             if (err != null) {
                 try (InputStreamReader reader = new InputStreamReader(err)) {
-                    return new Gson().fromJson(reader, responseClass);
+                    return ChessJson.GSON.fromJson(reader, responseClass);
                 } catch (Exception ignore) {
                     return null;
                 }
@@ -195,6 +252,6 @@ public class ServerFacade {
     }
 
     // Helper record to match the server's JSON response for listGames
-    public record GameListResult(Collection<GameData> games) {
+    public record GameListResult(Collection<GameSummary> games, Integer nextCursor) {
     }
 }
\ No newline at end of file
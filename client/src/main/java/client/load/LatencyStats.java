@@ -0,0 +1,50 @@
+package client.load;
+
+import java.util.Arrays;
+
+/**
+ * Round-trip times collected by one simulated game, merged into a total at the end.
+ * Every sample is kept, so percentiles are exact rather than estimated from buckets.
+ */
+public class LatencyStats {
+
+    private long[] samples = new long[64];
+    private int count;
+
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void addAll(LatencyStats other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + other.count));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99 for p99
+     * @return the smallest sample at least that fraction of samples are no greater
+     * than, in nanoseconds, or 0 if there are none
+     */
+    public long percentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, count);
+        int rank = (int) Math.ceil(quantile * count);
+        return samples[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    public long max() {
+        return percentile(1);
+    }
+}
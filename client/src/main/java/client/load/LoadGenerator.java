@@ -0,0 +1,148 @@
+package client.load;
+
+import client.ServerFacade;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many simultaneous games against a running server and reports move
+ * throughput and round-trip latency percentiles.
+ * <p>
+ * Start a server with {@code -Dchess.storage=memory} so no database is needed, then
+ * run for example
+ * <pre>
+ * mvn -pl client exec:java -Dexec.mainClass=client.load.LoadGenerator \
+ *     -Dexec.args="--games 1000 --observers 2 --think-ms 50"
+ * </pre>
+ * Every game runs on its own virtual thread, so thousands of games need only a
+ * handful of platform threads.
+ */
+public class LoadGenerator {
+
+    /**
+     * @param thinkMillis mean pause between moves; each pause is uniform between 0 and twice this
+     * @param rampMillis  how long to spread the game starts over
+     */
+    public record Options(String serverUrl, int games, int movesPerGame, int observers, long thinkMillis,
+                          long rampMillis, boolean compress, boolean binary, long seed) {
+
+        static Options parse(String[] args) {
+            String serverUrl = "http://localhost:8080";
+            int games = 100;
+            int movesPerGame = 40;
+            int observers = 0;
+            long thinkMillis = 100;
+            long rampMillis = 2000;
+            boolean compress = false;
+            boolean binary = false;
+            long seed = ThreadLocalRandom.current().nextLong();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--server" -> serverUrl = args[++i];
+                    case "--games" -> games = Integer.parseInt(args[++i]);
+                    case "--moves" -> movesPerGame = Integer.parseInt(args[++i]);
+                    case "--observers" -> observers = Integer.parseInt(args[++i]);
+                    case "--think-ms" -> thinkMillis = Long.parseLong(args[++i]);
+                    case "--ramp-ms" -> rampMillis = Long.parseLong(args[++i]);
+                    case "--compress" -> compress = true;
+                    case "--binary" -> binary = true;
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return new Options(serverUrl, games, movesPerGame, observers, thinkMillis, rampMillis, compress,
+                    binary, seed);
+        }
+    }
+
+    public record Report(int gamesFinished, int gamesFailed, LatencyStats latency, long elapsedNanos,
+                         long observerMessages, List<String> failures) {
+
+        public double movesPerSecond() {
+            return latency.count() / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("""
+                    Games:      %d finished, %d failed
+                    Moves:      %d in %.1f s (%.1f moves/s)
+                    Round trip: p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms
+                    Observers:  %d messages received
+                    """, gamesFinished, gamesFailed, latency.count(), elapsedNanos / 1e9, movesPerSecond(),
+                    millis(latency.percentile(0.5)), millis(latency.percentile(0.99)),
+                    millis(latency.percentile(0.999)), millis(latency.max()), observerMessages);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    private final Options options;
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public Report run() throws InterruptedException {
+        ServerFacade facade = new ServerFacade(options.serverUrl());
+        // Usernames must not collide with an earlier run against the same server
+        String runID = Long.toString(System.currentTimeMillis(), 36);
+        LongAdder observerMessages = new LongAdder();
+        List<SimulatedGame> games = new ArrayList<>();
+        List<Future<?>> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.games(); i++) {
+                SimulatedGame game = new SimulatedGame(facade, options, "load-" + runID + "-" + i, observerMessages);
+                long delay = options.games() > 1 ? options.rampMillis() * i / (options.games() - 1) : 0;
+                games.add(game);
+                results.add(executor.submit(() -> {
+                    Thread.sleep(delay);
+                    game.play();
+                    return null;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        LatencyStats latency = new LatencyStats();
+        List<String> failures = new ArrayList<>();
+        int finished = 0;
+        for (int i = 0; i < games.size(); i++) {
+            latency.addAll(games.get(i).latency());
+            if (games.get(i).finished()) {
+                finished++;
+            } else {
+                failures.add(failure(results.get(i)));
+            }
+        }
+        return new Report(finished, games.size() - finished, latency, elapsed, observerMessages.sum(), failures);
+    }
+
+    private static String failure(Future<?> result) {
+        try {
+            result.get();
+            return "unknown";
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.printf("Playing %d games against %s%n", options.games(), options.serverUrl());
+        Report report = new LoadGenerator(options).run();
+        System.out.print(report);
+        report.failures().stream().distinct().limit(10).forEach(failure -> System.out.println("  " + failure));
+    }
+}
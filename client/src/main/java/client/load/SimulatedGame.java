@@ -0,0 +1,180 @@
+package client.load;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import client.ServerFacade;
+import client.websocket.NotificationHandler;
+import client.websocket.WebSocketFacade;
+import datamodel.GameData;
+import datamodel.RegisterResponse;
+import datamodel.UserData;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One game played over the real HTTP and WebSocket APIs by two simulated players
+ * picking random legal moves, watched by any number of observers. Each move's round
+ * trip is timed from sending it to the mover seeing the server apply it.
+ */
+class SimulatedGame {
+
+    private static final long REPLY_TIMEOUT_MILLIS = 10_000;
+
+    private final ServerFacade facade;
+    private final LoadGenerator.Options options;
+    private final String name;
+    private final Random random;
+    private final LongAdder observerMessages;
+    private final LatencyStats latency = new LatencyStats();
+    private final List<Player> players = new ArrayList<>();
+    private boolean finished;
+
+    private static final class Player {
+        final RegisterResponse auth;
+        final BlockingQueue<ServerMessage> inbox = new LinkedBlockingQueue<>();
+        WebSocketFacade socket;
+
+        Player(RegisterResponse auth) {
+            this.auth = auth;
+        }
+    }
+
+    SimulatedGame(ServerFacade facade, LoadGenerator.Options options, String name, LongAdder observerMessages) {
+        this.facade = facade;
+        this.options = options;
+        this.name = name;
+        this.random = new Random(options.seed() ^ name.hashCode());
+        this.observerMessages = observerMessages;
+    }
+
+    LatencyStats latency() {
+        return latency;
+    }
+
+    /**
+     * @return whether the game ran to its end, checkmate, stalemate or a draw, or to the move limit
+     */
+    boolean finished() {
+        return finished;
+    }
+
+    void play() throws Exception {
+        try {
+            Player white = register("w");
+            Player black = register("b");
+            int gameID = facade.createGame(new GameData(0, null, null, name, null), white.auth.authToken()).gameID();
+            facade.joinGame(white.auth.authToken(), "WHITE", gameID);
+            facade.joinGame(black.auth.authToken(), "BLACK", gameID);
+            connect(white, gameID, white.inbox::add);
+            connect(black, gameID, black.inbox::add);
+            for (int i = 0; i < options.observers(); i++) {
+                Player observer = register("o" + i);
+                connect(observer, gameID, message -> observerMessages.increment());
+            }
+            ChessGame game = ((ServerMessage.LoadGameMessage) awaitMove(white, 0)).getGame();
+            awaitMove(black, 0);
+
+            while (game.getMoveSequence() < options.movesPerGame()) {
+                List<ChessMove> moves = legalMoves(game);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                ChessMove move = moves.get(random.nextInt(moves.size()));
+                Player mover = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? white : black;
+
+                long start = System.nanoTime();
+                mover.socket.makeMove(mover.auth.authToken(), gameID, move);
+                ServerMessage reply = awaitMove(mover, game.getMoveSequence() + 1);
+                latency.record(System.nanoTime() - start);
+
+                game.makeMove(move);
+                // The server also ends games by repetition, the fifty-move rule and lack of
+                // material, and refuses any move after that
+                if (status(reply).endsGame() || game.isGameOver()) {
+                    break;
+                }
+                if (options.thinkMillis() > 0) {
+                    Thread.sleep(random.nextLong(options.thinkMillis() * 2 + 1));
+                }
+            }
+            finished = true;
+        } finally {
+            for (Player player : players) {
+                if (player.socket != null) {
+                    try {
+                        player.socket.close();
+                    } catch (IOException ignored) {
+                        // The game is over either way
+                    }
+                }
+            }
+        }
+    }
+
+    private Player register(String role) throws Exception {
+        String username = name + "-" + role;
+        Player player = new Player(facade.register(new UserData(username, "password", username + "@load.test")));
+        players.add(player);
+        return player;
+    }
+
+    private void connect(Player player, int gameID, NotificationHandler handler) throws Exception {
+        player.socket = new WebSocketFacade(facade.getServerUrl(), handler, options.compress(), options.binary());
+        player.socket.connect(player.auth.authToken(), gameID);
+    }
+
+    /**
+     * Waits for the server to tell the player the game has reached the given move
+     * sequence, skipping older updates that arrived while the other player moved
+     *
+     * @return the LOAD_GAME or MOVE_APPLIED message that brought the game there
+     */
+    private ServerMessage awaitMove(Player player, int sequence) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLY_TIMEOUT_MILLIS);
+        while (true) {
+            ServerMessage message = player.inbox.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (message == null) {
+                throw new TimeoutException(name + ": no reply for move " + sequence);
+            } else if (message instanceof ServerMessage.ErrorMessage error) {
+                throw new IllegalStateException(name + ": " + error.getErrorMessage());
+            } else if (message instanceof ServerMessage.LoadGameMessage loadGame
+                    && loadGame.getGame().getMoveSequence() >= sequence) {
+                return loadGame;
+            } else if (message instanceof ServerMessage.MoveAppliedMessage moveApplied
+                    && moveApplied.getSequence() >= sequence) {
+                return moveApplied;
+            }
+        }
+    }
+
+    private static ChessGame.GameStatus status(ServerMessage reply) {
+        return reply instanceof ServerMessage.LoadGameMessage loadGame
+                ? loadGame.getGame().getStatus()
+                : ((ServerMessage.MoveAppliedMessage) reply).getStatus();
+    }
+
+    private static List<ChessMove> legalMoves(ChessGame game) {
+        List<ChessMove> moves = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    moves.addAll(game.validMoves(position));
+                }
+            }
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,122 @@
+package client.websocket;
+
+import jakarta.websocket.Extension;
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Client side of the permessage-deflate WebSocket extension (RFC 7692).
+ * <p>
+ * The extension is only used when the server accepts it during the handshake.
+ * Incoming compressed messages are inflated; outgoing messages that fit in one
+ * frame are compressed, anything else is sent as is.
+ */
+public class PerMessageDeflate implements ExtendedExtension {
+
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+    private static final byte OPCODE_CONTINUATION = 0x0;
+    private static final String INFLATER = "inflater";
+    private static final String DEFLATER = "deflater";
+    private static final String INCOMING_COMPRESSED = "incomingCompressed";
+
+    @Override
+    public String getName() {
+        return "permessage-deflate";
+    }
+
+    @Override
+    public List<Extension.Parameter> getParameters() {
+        return List.of();
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        if (frame.isControlFrame()) {
+            return frame;
+        }
+        var properties = context.getProperties();
+        // Only the first frame of a message carries RSV1
+        if (frame.getOpcode() != OPCODE_CONTINUATION) {
+            properties.put(INCOMING_COMPRESSED, frame.isRsv1());
+        }
+        if (!Boolean.TRUE.equals(properties.get(INCOMING_COMPRESSED))) {
+            return frame;
+        }
+
+        Inflater inflater = (Inflater) properties.computeIfAbsent(INFLATER, key -> new Inflater(true));
+        var out = new ByteArrayOutputStream(frame.getPayloadData().length * 4);
+        try {
+            inflate(inflater, frame.getPayloadData(), out);
+            if (frame.isFin()) {
+                inflate(inflater, TAIL, out);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Malformed compressed message", e);
+        }
+        byte[] payload = out.toByteArray();
+        return Frame.builder(frame).rsv1(false).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        if (frame.isControlFrame() || frame.getOpcode() == OPCODE_CONTINUATION || !frame.isFin()) {
+            return frame;
+        }
+        Deflater deflater = (Deflater) context.getProperties()
+                .computeIfAbsent(DEFLATER, key -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        deflater.setInput(frame.getPayloadData());
+        var out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, count);
+        } while (count == buffer.length);
+
+        // A sync flush always ends with the empty block 00 00 FF FF, which the extension drops
+        byte[] flushed = out.toByteArray();
+        byte[] payload = Arrays.copyOf(flushed, flushed.length - TAIL.length);
+        return Frame.builder(frame).rsv1(true).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    private static void inflate(Inflater inflater, byte[] input, ByteArrayOutputStream out)
+            throws DataFormatException {
+        inflater.setInput(input);
+        byte[] buffer = new byte[1024];
+        while (!inflater.needsInput()) {
+            int count = inflater.inflate(buffer);
+            if (count == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                break;
+            }
+            out.write(buffer, 0, count);
+        }
+    }
+
+    @Override
+    public List<Extension.Parameter> onExtensionNegotiation(ExtensionContext context,
+                                                            List<Extension.Parameter> requestedParameters) {
+        // Only called on the server side
+        return requestedParameters;
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Extension.Parameter> responseParameters) {
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        if (context.getProperties().remove(INFLATER) instanceof Inflater inflater) {
+            inflater.end();
+        }
+        if (context.getProperties().remove(DEFLATER) instanceof Deflater deflater) {
+            deflater.end();
+        }
+    }
+}
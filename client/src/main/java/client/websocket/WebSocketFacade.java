@@ -1,58 +1,156 @@
 package client.websocket;
 
-import com.google.gson.Gson;
+import websocket.BinaryCodec;
+import websocket.commands.ConnectCommand;
 import websocket.commands.UserGameCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.messages.ServerMessage;
 import chess.ChessMove;
 
 import jakarta.websocket.*;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.client.ClientProperties;
 import java.net.URI;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import serialization.ChessJson;
 
 public class WebSocketFacade extends Endpoint {
 
+    private static final int RECONNECT_ATTEMPTS = 5;
+    private static final long RECONNECT_BACKOFF_MILLIS = 500;
+    private static final WebSocketContainer CONTAINER = sharedContainer();
+
     Session session;
     NotificationHandler notificationHandler;
+    private final URI socketURI;
+    private final boolean compress;
+    private final boolean binaryFrames;
+    private volatile String authToken;
+    private volatile Integer gameID;
+    private volatile int lastSeenSeq = -1;
+    private volatile boolean leaving = false;
 
     public WebSocketFacade(String url, NotificationHandler notificationHandler) throws Exception {
+        this(url, notificationHandler, false, false);
+    }
+
+    /**
+     * @param compress     offer permessage-deflate compression during the handshake
+     * @param binaryFrames ask the server to use {@link BinaryCodec} frames instead of JSON
+     */
+    public WebSocketFacade(String url, NotificationHandler notificationHandler, boolean compress,
+                           boolean binaryFrames) throws Exception {
         try {
             url = url.replace("http", "ws");
-            URI socketURI = new URI(url + "/ws");
+            this.socketURI = new URI(url + "/ws");
             this.notificationHandler = notificationHandler;
-
-            WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            this.session = container.connectToServer(this, socketURI);
-
-            this.session.addMessageHandler(new MessageHandler.Whole<String>() {
-                @Override
-                public void onMessage(String message) {
-                    ServerMessage serverMessage = new Gson().fromJson(message, ServerMessage.class);
-                    switch (serverMessage.getServerMessageType()) {
-                        case LOAD_GAME ->
-                            notificationHandler
-                                    .notify(new Gson().fromJson(message, ServerMessage.LoadGameMessage.class));
-                        case ERROR ->
-                            notificationHandler.notify(new Gson().fromJson(message, ServerMessage.ErrorMessage.class));
-                        case NOTIFICATION ->
-                            notificationHandler
-                                    .notify(new Gson().fromJson(message, ServerMessage.NotificationMessage.class));
-                    }
-                }
-            });
+            this.compress = compress;
+            this.binaryFrames = binaryFrames;
+            openSession();
         } catch (DeploymentException | IOException e) {
             throw new Exception("500: " + e.getMessage());
         }
     }
 
+    /**
+     * One transport and thread pool for every socket in the process, rather than a
+     * new set per connection, so a client with many sockets stays light
+     */
+    private static WebSocketContainer sharedContainer() {
+        ClientManager container = ClientManager.createClient();
+        container.getProperties().put(ClientProperties.SHARED_CONTAINER, true);
+        return container;
+    }
+
+    private void openSession() throws DeploymentException, IOException {
+        WebSocketContainer container = CONTAINER;
+        ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                .extensions(compress ? List.of(new PerMessageDeflate()) : List.of())
+                .build();
+        this.session = container.connectToServer(this, config, socketURI);
+
+        this.session.addMessageHandler(new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(String message) {
+                // The shared adapter builds the right subclass from serverMessageType
+                deliver(ChessJson.GSON.fromJson(message, ServerMessage.class));
+            }
+        });
+        this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+            @Override
+            public void onMessage(ByteBuffer message) {
+                byte[] data = new byte[message.remaining()];
+                message.get(data);
+                try {
+                    deliver(BinaryCodec.decodeServerMessage(data, 0, data.length));
+                } catch (IOException e) {
+                    notificationHandler.notify(new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    private void deliver(ServerMessage message) {
+        if (message instanceof ServerMessage.LoadGameMessage loadGame) {
+            lastSeenSeq = loadGame.getGame().getMoveSequence();
+        } else if (message instanceof ServerMessage.MoveAppliedMessage moveApplied
+                && moveApplied.getSequence() == lastSeenSeq + 1) {
+            lastSeenSeq = moveApplied.getSequence();
+        }
+        notificationHandler.notify(message);
+    }
+
     @Override
     public void onOpen(Session session, EndpointConfig endpointConfig) {
     }
 
+    /**
+     * Reconnects when the socket drops while we are still in a game, asking the
+     * server to replay only the moves made since the last one we saw.
+     */
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (leaving || gameID == null || closeReason.getCloseCode() == CloseReason.CloseCodes.NORMAL_CLOSURE) {
+            return;
+        }
+        Thread reconnect = new Thread(this::reconnect, "ws-reconnect");
+        reconnect.setDaemon(true);
+        reconnect.start();
+    }
+
+    private void reconnect() {
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS && !leaving; attempt++) {
+            try {
+                Thread.sleep(RECONNECT_BACKOFF_MILLIS << attempt);
+                openSession();
+                Integer resumeFrom = lastSeenSeq >= 0 ? lastSeenSeq : null;
+                send(new ConnectCommand(authToken, gameID, true, binaryFrames, resumeFrom));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DeploymentException | IOException ignored) {
+                // Try again after a longer wait
+            }
+        }
+        notificationHandler.notify(new ServerMessage.ErrorMessage("Error: lost connection to the server"));
+    }
+
+    private void send(UserGameCommand command) throws IOException {
+        if (binaryFrames) {
+            this.session.getBasicRemote().sendBinary(BinaryCodec.encode(command));
+        } else {
+            this.session.getBasicRemote().sendText(ChessJson.GSON.toJson(command));
+        }
+    }
+
     public void connect(String authToken, Integer gameID) throws Exception {
         try {
-            var action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            this.authToken = authToken;
+            this.gameID = gameID;
+            send(new ConnectCommand(authToken, gameID, true, binaryFrames, null));
         } catch (IOException e) {
             throw new Exception("500: " + e.getMessage());
         }
@@ -60,8 +158,7 @@ public class WebSocketFacade extends Endpoint {
 
     public void makeMove(String authToken, Integer gameID, ChessMove move) throws Exception {
         try {
-            var action = new MakeMoveCommand(authToken, gameID, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(new MakeMoveCommand(authToken, gameID, move));
         } catch (IOException e) {
             throw new Exception("500: " + e.getMessage());
         }
@@ -69,8 +166,8 @@ public class WebSocketFacade extends Endpoint {
 
     public void leave(String authToken, Integer gameID) throws Exception {
         try {
-            var action = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            leaving = true;
+            send(new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameID));
         } catch (IOException e) {
             throw new Exception("500: " + e.getMessage());
         }
@@ -78,10 +175,17 @@ public class WebSocketFacade extends Endpoint {
 
     public void resign(String authToken, Integer gameID) throws Exception {
         try {
-            var action = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID));
         } catch (IOException e) {
             throw new Exception("500: " + e.getMessage());
         }
     }
+
+    /**
+     * Closes the socket without leaving the game or reconnecting
+     */
+    public void close() throws IOException {
+        leaving = true;
+        session.close();
+    }
 }
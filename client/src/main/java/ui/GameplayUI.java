@@ -4,6 +4,7 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
 
 import client.ServerFacade;
 import client.websocket.NotificationHandler;
@@ -32,7 +33,7 @@ public class GameplayUI implements NotificationHandler {
     public void run() {
         try {
             String wsUrl = facade.getServerUrl();
-            wsFacade = new WebSocketFacade(wsUrl, this);
+            wsFacade = new WebSocketFacade(wsUrl, this, true, true);
             wsFacade.connect(authToken, gameID);
 
             System.out.println("Entered Gameplay Mode. Type 'help' for commands.");
@@ -208,6 +209,9 @@ public class GameplayUI implements NotificationHandler {
                 redrawBoard();
                 System.out.print("[GAMEPLAY] >>> "); // Reprint prompt
                 break;
+            case MOVE_APPLIED:
+                applyMove((ServerMessage.MoveAppliedMessage) message);
+                break;
             case ERROR:
                 ServerMessage.ErrorMessage errorMsg = (ServerMessage.ErrorMessage) message;
                 System.out.println("\n" + errorMsg.getErrorMessage());
@@ -220,4 +224,42 @@ public class GameplayUI implements NotificationHandler {
                 break;
         }
     }
+
+    /**
+     * Applies a move delta to the local game. If a move was missed or the local
+     * game has drifted from the server's, ask for the full game instead.
+     */
+    private void applyMove(ServerMessage.MoveAppliedMessage moveMsg) {
+        ChessGame game = this.currentGame;
+        if (game == null || moveMsg.getSequence() != game.getMoveSequence() + 1) {
+            requestResync();
+            return;
+        }
+        try {
+            game.makeMove(moveMsg.getMove());
+        } catch (InvalidMoveException e) {
+            requestResync();
+            return;
+        }
+        if (moveMsg.getPositionHash() != null && moveMsg.getPositionHash() != game.getPositionHash()) {
+            requestResync();
+            return;
+        }
+        if (moveMsg.getStatus() != null && moveMsg.getStatus().endsGame()) {
+            game.setGameOver(true);
+        }
+        redrawBoard();
+        System.out.print("[GAMEPLAY] >>> ");
+    }
+
+    private void requestResync() {
+        this.currentGame = null;
+        try {
+            if (wsFacade != null) {
+                wsFacade.connect(authToken, gameID);
+            }
+        } catch (Exception e) {
+            System.out.println("\nError: " + e.getMessage());
+        }
+    }
 }
@@ -4,6 +4,7 @@ import chess.ChessGame;
 import client.ResponseException;
 import client.ServerFacade;
 import datamodel.GameData;
+import datamodel.GameSummary;
 import datamodel.RegisterResponse;
 import datamodel.UserData;
 
@@ -14,7 +15,8 @@ public class REPL {
     private final Scanner scanner = new Scanner(System.in);
     private String authToken = null;
     private String username = null;
-    private Map<Integer, GameData> gameNumberMap = new HashMap<>();
+    private Map<Integer, GameSummary> gameNumberMap = new HashMap<>();
+    private Integer nextGamesCursor = null;
 
     public REPL(ServerFacade facade) {
         this.facade = facade;
@@ -92,11 +94,17 @@ public class REPL {
                 handleCreateGame();
                 break;
             case "list":
-                handleListGames();
+                handleListGames(null);
+                break;
+            case "more":
+                handleMoreGames();
                 break;
             case "play":
                 handlePlayGame();
                 break;
+            case "bot":
+                handleBotGame();
+                break;
             case "observe":
                 handleObserveGame();
                 break;
@@ -121,8 +129,10 @@ public class REPL {
     private void printPostloginHelp() {
         System.out.println("Available commands:");
         System.out.println("  create - create a new game");
-        System.out.println("  list - list all games");
+        System.out.println("  list - list games");
+        System.out.println("  more - list the next page of games");
         System.out.println("  play - join a game as a player");
+        System.out.println("  bot - play a game against the computer");
         System.out.println("  observe - observe a game");
         System.out.println("  logout - logout of your account");
         System.out.println("  quit - exit the program");
@@ -188,6 +198,7 @@ public class REPL {
             authToken = null;
             username = null;
             gameNumberMap.clear();
+            nextGamesCursor = null;
             System.out.println("Successfully logged out.");
         } catch (ResponseException e) {
             System.out.println("Logout failed: " + getErrorMessage(e));
@@ -213,21 +224,37 @@ public class REPL {
         }
     }
 
-    private void handleListGames() {
+    private void handleMoreGames() {
+        if (nextGamesCursor == null) {
+            System.out.println("No more games. Use 'list' to start from the beginning.");
+            return;
+        }
+        handleListGames(nextGamesCursor);
+    }
+
+    /**
+     * Prints one page of games. Numbering continues across pages so earlier
+     * numbers stay valid for 'play' and 'observe'.
+     */
+    private void handleListGames(Integer cursor) {
         try {
-            ServerFacade.GameListResult result = facade.listGames(authToken);
-            Collection<GameData> games = result.games();
+            ServerFacade.GameListResult result = facade.listGames(authToken, cursor);
+            Collection<GameSummary> games = result.games();
+
+            if (cursor == null) {
+                gameNumberMap.clear();
+            }
+            nextGamesCursor = result.nextCursor();
 
             if (games == null || games.isEmpty()) {
                 System.out.println("No games available.");
                 return;
             }
 
-            gameNumberMap.clear();
-            int number = 1;
+            int number = gameNumberMap.size() + 1;
 
             System.out.println("\nAvailable Games:");
-            for (GameData game : games) {
+            for (GameSummary game : games) {
                 gameNumberMap.put(number, game);
 
                 String whitePlayer = game.whiteUsername() != null ? game.whiteUsername() : "(empty)";
@@ -237,6 +264,9 @@ public class REPL {
                         number, game.gameName(), whitePlayer, blackPlayer);
                 number++;
             }
+            if (nextGamesCursor != null) {
+                System.out.println("Type 'more' to see more games.");
+            }
             System.out.println();
         } catch (ResponseException e) {
             System.out.println("Failed to list games: " + getErrorMessage(e));
@@ -263,7 +293,7 @@ public class REPL {
                 return;
             }
 
-            GameData game = gameNumberMap.get(gameNum);
+            GameSummary game = gameNumberMap.get(gameNum);
             facade.joinGame(authToken, colorStr, game.gameID());
 
             ChessGame.TeamColor clientColor = colorStr.equals("WHITE") ? ChessGame.TeamColor.WHITE
@@ -277,6 +307,42 @@ public class REPL {
         }
     }
 
+    private void handleBotGame() {
+        if (gameNumberMap.isEmpty()) {
+            System.out.println("Please list games first using 'list' command.");
+            return;
+        }
+
+        try {
+            Integer gameNum = getValidGameNumber();
+            if (gameNum == null) {
+                return;
+            }
+
+            System.out.print("Enter your color (WHITE/BLACK): ");
+            String colorStr = scanner.nextLine().trim().toUpperCase();
+
+            if (!colorStr.equals("WHITE") && !colorStr.equals("BLACK")) {
+                System.out.println("Invalid color. Must be WHITE or BLACK.");
+                return;
+            }
+
+            GameSummary game = gameNumberMap.get(gameNum);
+            // Take our seat first, so a game we cannot join is not left with a bot in it
+            facade.joinGame(authToken, colorStr, game.gameID());
+            facade.addBot(authToken, colorStr.equals("WHITE") ? "BLACK" : "WHITE", game.gameID());
+
+            ChessGame.TeamColor clientColor = colorStr.equals("WHITE") ? ChessGame.TeamColor.WHITE
+                    : ChessGame.TeamColor.BLACK;
+            new GameplayUI(facade, authToken, game.gameID(), clientColor).run();
+
+        } catch (ResponseException e) {
+            System.out.println("Failed to start a bot game: " + getErrorMessage(e));
+        } catch (Exception e) {
+            System.out.println("An error occurred: " + getErrorMessage(e));
+        }
+    }
+
     private void handleObserveGame() {
         if (gameNumberMap.isEmpty()) {
             System.out.println("Please list games first using 'list' command.");
@@ -289,7 +355,7 @@ public class REPL {
                 return;
             }
 
-            GameData game = gameNumberMap.get(gameNum);
+            GameSummary game = gameNumberMap.get(gameNum);
 
             // Observer defaults to White perspective
             new GameplayUI(facade, authToken, game.gameID(), ChessGame.TeamColor.WHITE).run();
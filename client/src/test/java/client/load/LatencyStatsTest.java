@@ -0,0 +1,37 @@
+package client.load;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyStatsTest {
+
+    @Test
+    @DisplayName("Percentiles")
+    void percentiles() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 1000; i >= 1; i--) {
+            stats.record(i);
+        }
+        assertEquals(1000, stats.count());
+        assertEquals(500, stats.percentile(0.5));
+        assertEquals(990, stats.percentile(0.99));
+        assertEquals(999, stats.percentile(0.999));
+        assertEquals(1000, stats.max());
+    }
+
+    @Test
+    @DisplayName("Merge")
+    void merge() {
+        LatencyStats total = new LatencyStats();
+        LatencyStats game = new LatencyStats();
+        for (int i = 0; i < 100; i++) {
+            game.record(7);
+        }
+        total.addAll(game);
+        total.addAll(game);
+        assertEquals(200, total.count());
+        assertEquals(7, total.percentile(0.999));
+        assertEquals(0, new LatencyStats().percentile(0.5));
+    }
+}
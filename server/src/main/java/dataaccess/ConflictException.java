@@ -0,0 +1,10 @@
+package dataaccess;
+
+/**
+ * Indicates a write kept losing to concurrent writes of the same game
+ */
+public class ConflictException extends DataAccessException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package dataaccess;
+
+import datamodel.RegisterResponse;
+import serialization.ChessJson;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Auth tokens served from memory and made durable in a {@link RecordLog} in the
+ * given directory
+ */
+public class FileAuthAccess implements AuthAccess, AutoCloseable {
+
+    private final ConcurrentHashMap<String, RegisterResponse> tokens = new ConcurrentHashMap<>();
+    private final RecordLog log;
+
+    public FileAuthAccess(Path directory) throws DataAccessException {
+        log = new RecordLog(directory.resolve("auth.log"));
+        log.forEach((authToken, value) -> tokens.put(authToken,
+                ChessJson.GSON.fromJson(new String(value, StandardCharsets.UTF_8), RegisterResponse.class)));
+    }
+
+    @Override
+    public synchronized void addAuth(RegisterResponse authData) throws DataAccessException {
+        log.put(authData.authToken(), ChessJson.GSON.toJson(authData).getBytes(StandardCharsets.UTF_8));
+        tokens.put(authData.authToken(), authData);
+    }
+
+    @Override
+    public synchronized void deleteAuth(String authToken) throws DataAccessException {
+        log.remove(authToken);
+        tokens.remove(authToken);
+    }
+
+    @Override
+    public RegisterResponse getAuth(String authToken) throws DataAccessException {
+        RegisterResponse authData = authToken == null ? null : tokens.get(authToken);
+        if (authData == null) {
+            throw new DataAccessException("Auth token not found");
+        }
+        return authData;
+    }
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        log.clear();
+        tokens.clear();
+    }
+
+    @Override
+    public synchronized void close() throws DataAccessException {
+        log.close();
+    }
+}
@@ -0,0 +1,121 @@
+package dataaccess;
+
+import datamodel.GameData;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
+import serialization.ChessJson;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Games served from memory and made durable in a {@link RecordLog} in the given
+ * directory, so a single server needs no database.
+ * <p>
+ * Reads go straight to a {@link MemoryGameAccess} without locking. Writes are
+ * checked against memory, appended to the log and then applied to memory, all
+ * under one lock, so the log replays to exactly the state readers saw. Versions
+ * start again at 0 after a restart, as no version read before it can still be in use.
+ */
+public class FileGameAccess implements GameAccess, AutoCloseable {
+
+    private final MemoryGameAccess games = new MemoryGameAccess();
+    private final RecordLog log;
+    private int lastGameID;
+
+    public FileGameAccess(Path directory) throws DataAccessException {
+        log = new RecordLog(directory.resolve("games.log"));
+        DataAccessException[] failure = new DataAccessException[1];
+        log.forEach((key, value) -> {
+            GameData game = decode(value);
+            try {
+                games.createGame(game);
+            } catch (DataAccessException e) {
+                failure[0] = e;
+            }
+            lastGameID = Math.max(lastGameID, game.gameID());
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private static byte[] encode(GameData game) {
+        return ChessJson.GSON.toJson(game).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static GameData decode(byte[] value) {
+        return ChessJson.GSON.fromJson(new String(value, StandardCharsets.UTF_8), GameData.class);
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) {
+        return games.listGames(query);
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) {
+        return games.listGameSummaries(query);
+    }
+
+    @Override
+    public synchronized int createGame(GameData game) throws DataAccessException {
+        int gameID = game.gameID() == 0 ? lastGameID + 1 : game.gameID();
+        if (games.gameExists(gameID)) {
+            throw new DataAccessException("Game already exists, id: " + gameID);
+        }
+        GameData created = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game());
+        log.put(Integer.toString(gameID), encode(created));
+        games.createGame(created);
+        lastGameID = Math.max(lastGameID, gameID);
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws BadRequestException {
+        return games.getStoredGame(gameID).game();
+    }
+
+    @Override
+    public StoredGame getStoredGame(int gameID) throws BadRequestException {
+        return games.getStoredGame(gameID);
+    }
+
+    @Override
+    public boolean gameExists(int gameID) {
+        return games.gameExists(gameID);
+    }
+
+    @Override
+    public synchronized void updateGame(GameData game) throws DataAccessException {
+        log.put(Integer.toString(game.gameID()), encode(game));
+        games.updateGame(game);
+    }
+
+    @Override
+    public synchronized boolean updateGame(GameData game, int expectedVersion) throws DataAccessException {
+        try {
+            if (games.getStoredGame(game.gameID()).version() != expectedVersion) {
+                return false;
+            }
+        } catch (BadRequestException e) {
+            return false;
+        }
+        log.put(Integer.toString(game.gameID()), encode(game));
+        // Every write holds this lock, so the version cannot have moved since the check
+        return games.updateGame(game, expectedVersion);
+    }
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        log.clear();
+        games.clear();
+    }
+
+    @Override
+    public synchronized void close() throws DataAccessException {
+        log.close();
+    }
+}
@@ -0,0 +1,99 @@
+package dataaccess;
+
+import datamodel.UserData;
+import serialization.ChessJson;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users served from memory and made durable in a {@link RecordLog} in the given
+ * directory. Passwords are stored as bcrypt hashes, as in {@link MySQLUserAccess}.
+ */
+public class FileUserAccess implements UserAccess, AutoCloseable {
+
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+    private final RecordLog log;
+    private final PasswordHasher hasher;
+
+    public FileUserAccess(Path directory) throws DataAccessException {
+        this(directory, new PasswordHasher());
+    }
+
+    public FileUserAccess(Path directory, PasswordHasher hasher) throws DataAccessException {
+        this.hasher = hasher;
+        log = new RecordLog(directory.resolve("users.log"));
+        log.forEach((username, value) -> users.put(username,
+                ChessJson.GSON.fromJson(new String(value, StandardCharsets.UTF_8), UserData.class)));
+    }
+
+    private void store(UserData user) throws DataAccessException {
+        log.put(user.username(), ChessJson.GSON.toJson(user).getBytes(StandardCharsets.UTF_8));
+        users.put(user.username(), user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        UserData user = username == null ? null : users.get(username);
+        if (user == null) {
+            throw new DataAccessException("User not found: " + username);
+        }
+        return user;
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        if (users.containsKey(user.username())) {
+            throw new DataAccessException("User already exists: " + user.username());
+        }
+        // Hashed before taking the lock so other writes never wait on bcrypt
+        UserData hashed = new UserData(user.username(), hasher.hash(user.password()), user.email());
+        synchronized (this) {
+            if (users.containsKey(user.username())) {
+                throw new DataAccessException("User already exists: " + user.username());
+            }
+            store(hashed);
+        }
+    }
+
+    @Override
+    public boolean authenticateUser(String username, String password) throws DataAccessException {
+        UserData user = username == null ? null : users.get(username);
+        if (user == null) {
+            return false;
+        }
+        if (!hasher.check(password, user.password())) {
+            return false;
+        }
+        if (hasher.needsRehash(user.password())) {
+            hasher.rehashInBackground(password, newHash -> replacePassword(user, newHash));
+        }
+        return true;
+    }
+
+    /**
+     * Swaps in a hash made with the current cost, unless the user changed since it was read
+     */
+    private synchronized void replacePassword(UserData user, String newHash) {
+        if (users.get(user.username()) != user) {
+            return;
+        }
+        try {
+            store(new UserData(user.username(), newHash, user.email()));
+        } catch (DataAccessException e) {
+            // The old hash still works, so the next login will simply try again
+        }
+    }
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        log.clear();
+        users.clear();
+    }
+
+    @Override
+    public synchronized void close() throws DataAccessException {
+        log.close();
+    }
+}
@@ -1,13 +1,57 @@
 package dataaccess;
 
 import datamodel.GameData;
-import java.util.HashSet;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
+import java.util.List;
 
 public interface GameAccess {
-    HashSet<GameData> listGames() throws DataAccessException;
-    void createGame(GameData game) throws DataAccessException;
+    /**
+     * Lists up to {@code query.limit()} matching games in game ID order
+     */
+    List<GameData> listGames(GameQuery query) throws DataAccessException;
+
+    /**
+     * Same as {@link #listGames(GameQuery)} without loading any boards
+     */
+    List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException;
+
+    /**
+     * Stores a new game. A game ID of 0 asks the store to allocate the next free ID.
+     *
+     * @return the ID the game was stored under
+     */
+    int createGame(GameData game) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException, BadRequestException;
     boolean gameExists(int gameID) throws DataAccessException;
+
+    /**
+     * Reads a game together with its version, for a later {@link #updateGame(GameData, int)}
+     */
+    StoredGame getStoredGame(int gameID) throws DataAccessException, BadRequestException;
+
+    /**
+     * Overwrites a game whatever its current version
+     */
     void updateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Writes a game only if nobody else wrote it since it was read at {@code expectedVersion}
+     *
+     * @return false if the game changed in the meantime, and nothing was written
+     */
+    boolean updateGame(GameData game, int expectedVersion) throws DataAccessException;
+
+    /**
+     * Moves up to {@code limit} finished games out of the storage that active games are
+     * read from. Archived games still read back the same through every other method.
+     * Stores that keep everything in memory have nothing to gain and archive nothing.
+     *
+     * @return how many games were archived
+     */
+    default int archiveFinishedGames(int limit) throws DataAccessException {
+        return 0;
+    }
+
     void clear() throws DataAccessException;
 }
\ No newline at end of file
@@ -1,42 +1,36 @@
 package dataaccess;
 
 import datamodel.RegisterResponse;
-import java.util.HashSet;
+
+import java.util.concurrent.ConcurrentHashMap;
+
 public class MemoryAuthAccess implements AuthAccess {
     
-    HashSet<RegisterResponse> db;
-
-    public MemoryAuthAccess() {
-        db = HashSet.newHashSet(16);
-    }
+    private final ConcurrentHashMap<String, RegisterResponse> db = new ConcurrentHashMap<>();
 
     @Override
     public void addAuth(RegisterResponse authData) {
-        db.add(authData);
+        db.put(authData.authToken(), authData);
     }
 
     @Override
     public void deleteAuth(String authToken) {
-        for (RegisterResponse authData : db) {
-            if (authData.authToken().equals(authToken)) {
-                db.remove(authData);
-                break;
-            }
+        if (authToken != null) {
+            db.remove(authToken);
         }
     }
 
     @Override
     public RegisterResponse getAuth(String authToken) throws DataAccessException {
-        for (RegisterResponse authData : db) {
-            if (authData.authToken().equals(authToken)) {
-                return authData;
-            }
+        RegisterResponse authData = authToken == null ? null : db.get(authToken);
+        if (authData == null) {
+            throw new DataAccessException("Auth Token does not exist: " + authToken);
         }
-        throw new DataAccessException("Auth Token does not exist: " + authToken);
+        return authData;
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(16);
+        db.clear();
     }
 }
@@ -1,59 +1,175 @@
 package dataaccess;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import datamodel.GameData;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
 
-public class MemoryGameAccess implements GameAccess{
-    
-    HashSet<GameData> db;
+/**
+ * Games kept in memory, safe to use from many request threads at once.
+ * <p>
+ * Games live in a map keyed by game ID, each with its version, and are only
+ * written through atomic {@code compute}-style calls. The player indexes are
+ * kept up to date inside those calls, so a game's index entries change together
+ * with the game itself. Both
+ * the ID set and the indexes are sorted, which lets a lobby page start at its
+ * cursor instead of sorting every game.
+ */
+public class MemoryGameAccess implements GameAccess {
 
-    public MemoryGameAccess() {
-        db = HashSet.newHashSet(16);
+    private final ConcurrentHashMap<Integer, StoredGame> games = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Integer> gameIDs = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, NavigableSet<Integer>> gamesByPlayer = new ConcurrentHashMap<>();
+    private final AtomicInteger lastGameID = new AtomicInteger();
+
+    @Override
+    public List<GameData> listGames(GameQuery query) {
+        NavigableSet<Integer> candidates = query.player() == null
+                ? gameIDs
+                : gamesByPlayer.getOrDefault(query.player(), new ConcurrentSkipListSet<>());
+        if (query.afterGameID() != null) {
+            candidates = candidates.tailSet(query.afterGameID(), false);
+        }
+
+        List<GameData> page = new ArrayList<>(Math.min(query.limit(), 64));
+        for (int gameID : candidates) {
+            if (page.size() == query.limit()) {
+                break;
+            }
+            StoredGame stored = games.get(gameID);
+            // Indexes can briefly lag the map, so every filter is checked again here
+            if (stored != null && matches(stored.game(), query)) {
+                page.add(stored.game());
+            }
+        }
+        return page;
     }
 
     @Override
-    public HashSet<GameData> listGames() {
-        return db;
+    public List<GameSummary> listGameSummaries(GameQuery query) {
+        return listGames(query).stream().map(GameSummary::of).toList();
+    }
+
+    private static boolean matches(GameData game, GameQuery query) {
+        if (query.openSeats() && game.whiteUsername() != null && game.blackUsername() != null) {
+            return false;
+        }
+        if (query.player() != null && !query.player().equals(game.whiteUsername())
+                && !query.player().equals(game.blackUsername())) {
+            return false;
+        }
+        return query.gameOver() == null || query.gameOver() == game.game().isGameOver();
     }
 
     @Override
-    public void createGame(GameData game) {
-        db.add(game);
+    public int createGame(GameData game) throws DataAccessException {
+        int gameID;
+        if (game.gameID() == 0) {
+            gameID = lastGameID.incrementAndGet();
+            game = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game());
+        } else {
+            gameID = game.gameID();
+            lastGameID.accumulateAndGet(gameID, Math::max);
+        }
+
+        GameData created = game;
+        boolean[] inserted = {false};
+        games.compute(gameID, (id, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            // While holding the entry, so a seat change right after cannot be indexed first;
+            // readers skip an indexed ID whose game is not there yet
+            indexPlayers(null, created);
+            inserted[0] = true;
+            return new StoredGame(created, 0);
+        });
+        if (!inserted[0]) {
+            throw new DataAccessException("Game already exists, id: " + gameID);
+        }
+        gameIDs.add(gameID);
+        return gameID;
     }
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException, BadRequestException {
-        for (GameData game : db) {
-            if (game.gameID() == gameID) {
-                return game;
-            }
+        return getStoredGame(gameID).game();
+    }
+
+    @Override
+    public StoredGame getStoredGame(int gameID) throws BadRequestException {
+        StoredGame stored = games.get(gameID);
+        if (stored == null) {
+            throw new BadRequestException("Game not found, id: " + gameID);
         }
-        throw new BadRequestException("Game not found, id: " + gameID);
+        return stored;
     }
 
     @Override
     public boolean gameExists(int gameID) {
-        for (GameData game : db) {
-            if (game.gameID() == gameID) {
-                return true;
-            }
-        }
-        return false;
+        return games.containsKey(gameID);
     }
 
     @Override
     public void updateGame(GameData game) {
-        try {
-            db.remove(getGame(game.gameID()));
-            db.add(game);
-        } catch (DataAccessException | BadRequestException e) {
-            db.add(game);
+        games.compute(game.gameID(), (gameID, previous) -> {
+            indexPlayers(previous == null ? null : previous.game(), game);
+            return new StoredGame(game, previous == null ? 0 : previous.version() + 1);
+        });
+        gameIDs.add(game.gameID());
+    }
+
+    @Override
+    public boolean updateGame(GameData game, int expectedVersion) {
+        boolean[] written = {false};
+        games.computeIfPresent(game.gameID(), (gameID, previous) -> {
+            if (previous.version() != expectedVersion) {
+                return previous;
+            }
+            indexPlayers(previous.game(), game);
+            written[0] = true;
+            return new StoredGame(game, expectedVersion + 1);
+        });
+        return written[0];
+    }
+
+    /**
+     * Moves a game between player indexes when its seats change. Only called while
+     * holding the game's map entry, so updates to one game never interleave.
+     */
+    private void indexPlayers(GameData previous, GameData current) {
+        String oldWhite = previous == null ? null : previous.whiteUsername();
+        String oldBlack = previous == null ? null : previous.blackUsername();
+        for (String player : new String[]{oldWhite, oldBlack}) {
+            if (player != null && !player.equals(current.whiteUsername())
+                    && !player.equals(current.blackUsername())) {
+                gamesByPlayer.computeIfPresent(player, (name, ids) -> {
+                    ids.remove(current.gameID());
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (String player : new String[]{current.whiteUsername(), current.blackUsername()}) {
+            if (player != null) {
+                gamesByPlayer.compute(player, (name, ids) -> {
+                    NavigableSet<Integer> updated = ids == null ? new ConcurrentSkipListSet<>() : ids;
+                    updated.add(current.gameID());
+                    return updated;
+                });
+            }
         }
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(16);
+        gameIDs.clear();
+        games.clear();
+        gamesByPlayer.clear();
     }
 }
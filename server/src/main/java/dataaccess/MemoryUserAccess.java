@@ -2,61 +2,41 @@ package dataaccess;
 
 import datamodel.UserData;
 
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryUserAccess implements UserAccess{
     
-    private HashSet<UserData> db;
-    
-    public MemoryUserAccess() {db = HashSet.newHashSet(16); }
+    private final ConcurrentHashMap<String, UserData> db = new ConcurrentHashMap<>();
 
     @Override
     public UserData getUser(String username) throws DataAccessException {
-        for (UserData user : db) {
-            if (user.username().equals(username)) {
-                return user;
-            }
+        UserData user = username == null ? null : db.get(username);
+        if (user == null) {
+            throw new DataAccessException("User not found: " + username);
         }
-        throw new DataAccessException("User not found: " + username);
+        return user;
     }
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
-        try {
-            getUser(user.username());
-        }
-        catch (DataAccessException e) {
-            db.add(user);
-            return;
+        if (db.putIfAbsent(user.username(), user) != null) {
+            throw new DataAccessException("User already exists: " + user.username());
         }
-
-        throw new DataAccessException("User already exists: " + user.username());
     }
 
 
     @Override
     public boolean authenticateUser(String username, String password) throws DataAccessException {
-        boolean userExists = false;
-        for (UserData user : db) {
-            if (user.username().equals(username)) {
-                userExists = true;
-            }
-            if (user.username().equals(username) &&
-                user.password().equals(password)) {
-                return true;
-            }
-        }
-        if (userExists) {
-            return false;
-        }
-        else {
+        UserData user = username == null ? null : db.get(username);
+        if (user == null) {
             throw new DataAccessException("User does not exist: " + username);
         }
+        return user.password().equals(password);
     }
 
     @Override
     public void clear() {
-        db = HashSet.newHashSet(16);
+        db.clear();
     }
 
 
@@ -3,12 +3,21 @@ package dataaccess;
 import chess.ChessGame;
 import com.google.gson.Gson;
 import datamodel.GameData;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import serialization.ChessJson;
 
 public class MySQLGameAccess implements GameAccess {
 
-    private final Gson gson = new Gson();
+    private final Gson gson = ChessJson.GSON;
 
     private static final String CREATE_GAME_TABLE = """
         CREATE TABLE IF NOT EXISTS game (
@@ -16,24 +25,124 @@ public class MySQLGameAccess implements GameAccess {
             `whiteUsername` VARCHAR(255) DEFAULT NULL,
             `blackUsername` VARCHAR(255) DEFAULT NULL,
             `gameName` VARCHAR(255) NOT NULL,
-            `gameData` TEXT NOT NULL,
+            `gameData` TEXT DEFAULT NULL,
+            `gameOver` BOOLEAN NOT NULL DEFAULT FALSE,
+            `moveCount` INT NOT NULL DEFAULT 0,
+            `version` INT NOT NULL DEFAULT 0,
+            PRIMARY KEY (`gameID`),
+            INDEX `idx_game_white` (`whiteUsername`),
+            INDEX `idx_game_black` (`blackUsername`),
+            INDEX `idx_game_over` (`gameOver`)
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+        """;
+
+    /**
+     * Boards of finished games, deflated. Their rows in {@code game} keep the summary
+     * columns with a NULL {@code gameData}, so the hot table only carries boards of
+     * games still in play.
+     */
+    private static final String CREATE_ARCHIVE_TABLE = """
+        CREATE TABLE IF NOT EXISTS game_archive (
+            `gameID` INT NOT NULL,
+            `gameData` BLOB NOT NULL,
             PRIMARY KEY (`gameID`)
         ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
         """;
 
+    /**
+     * Joined in wherever boards are read, so an archived game loads in the same round trip
+     */
+    private static final String GAME_WITH_ARCHIVE = "game g LEFT JOIN game_archive a ON a.gameID = g.gameID";
+    private static final String GAME_COLUMNS =
+            "g.gameID, g.whiteUsername, g.blackUsername, g.gameName, g.gameData, a.gameData AS archivedData";
+
     public MySQLGameAccess() throws DataAccessException {
         configureDatabase();
     }
 
     private void configureDatabase() throws DataAccessException {
         try (var conn = DatabaseManager.getConnection();
-             var ps = conn.prepareStatement(CREATE_GAME_TABLE)) {
+             var ps = conn.prepareStatement(CREATE_GAME_TABLE);
+             var archive = conn.prepareStatement(CREATE_ARCHIVE_TABLE)) {
             ps.executeUpdate();
+            archive.executeUpdate();
+            makeNullable(conn, "gameData", "TEXT");
+            boolean addedSummaryColumns = addColumnIfMissing(conn, "gameOver", "BOOLEAN NOT NULL DEFAULT FALSE");
+            addedSummaryColumns |= addColumnIfMissing(conn, "moveCount", "INT NOT NULL DEFAULT 0");
+            if (addedSummaryColumns) {
+                backfillSummaryColumns(conn);
+            }
+            addColumnIfMissing(conn, "version", "INT NOT NULL DEFAULT 0");
+            // InnoDB secondary indexes end with the primary key, so rows matching one
+            // value of these columns come out in gameID order; see prepareQuery
+            addIndexIfMissing(conn, "idx_game_white", "whiteUsername");
+            addIndexIfMissing(conn, "idx_game_black", "blackUsername");
+            addIndexIfMissing(conn, "idx_game_over", "gameOver");
         } catch (SQLException ex) {
             throw new DataAccessException("Unable to configure game table", ex);
         }
     }
 
+    /**
+     * Tables created by older versions of the server lack newer columns
+     *
+     * @return true if the column had to be added
+     */
+    private boolean addColumnIfMissing(Connection conn, String column, String definition) throws SQLException {
+        try (var rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", column)) {
+            if (rs.next()) {
+                return false;
+            }
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE game ADD COLUMN `" + column + "` " + definition)) {
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    private void makeNullable(Connection conn, String column, String type) throws SQLException {
+        try (var rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", column)) {
+            if (!rs.next() || "YES".equals(rs.getString("IS_NULLABLE"))) {
+                return;
+            }
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE game MODIFY `" + column + "` " + type + " DEFAULT NULL")) {
+            ps.executeUpdate();
+        }
+    }
+
+    private void addIndexIfMissing(Connection conn, String index, String column) throws SQLException {
+        try (var rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, "game", false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        try (var ps = conn.prepareStatement("CREATE INDEX `" + index + "` ON game (`" + column + "`)")) {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Fills in the summary columns of games stored before they existed. This parses
+     * every board once, after which listing the lobby never has to.
+     */
+    private void backfillSummaryColumns(Connection conn) throws SQLException {
+        try (var select = conn.prepareStatement("SELECT gameID, gameData FROM game");
+             var update = conn.prepareStatement("UPDATE game SET gameOver = ?, moveCount = ? WHERE gameID = ?");
+             var rs = select.executeQuery()) {
+            while (rs.next()) {
+                ChessGame game = deserializeGame(rs.getString("gameData"));
+                update.setBoolean(1, game.isGameOver());
+                update.setInt(2, game.getMoveSequence());
+                update.setInt(3, rs.getInt("gameID"));
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+
     private String serializeGame(ChessGame game) {
         return gson.toJson(game);
     }
@@ -42,21 +151,95 @@ public class MySQLGameAccess implements GameAccess {
         return gson.fromJson(gameData, ChessGame.class);
     }
 
+    /**
+     * Reads the board from the hot row, or from the archive once it has been moved there
+     */
+    private ChessGame deserializeGame(ResultSet rs) throws SQLException {
+        String gameData = rs.getString("gameData");
+        if (gameData != null) {
+            return deserializeGame(gameData);
+        }
+        byte[] archived = rs.getBytes("archivedData");
+        if (archived == null) {
+            throw new SQLException("Game " + rs.getInt("gameID") + " has no board");
+        }
+        return deserializeGame(inflate(archived));
+    }
+
+    private static byte[] deflate(String gameData) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(gameData.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            var out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[512];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] archived) throws SQLException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(archived);
+            var out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[512];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(chunk);
+                if (read == 0 && inflater.needsInput()) {
+                    throw new SQLException("Archived game data is truncated");
+                }
+                out.write(chunk, 0, read);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new SQLException("Archived game data is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
     @Override
-    public HashSet<GameData> listGames() throws DataAccessException {
-        HashSet<GameData> games = new HashSet<>();
-        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameData FROM game";
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        List<GameData> games = new ArrayList<>();
         try (var conn = DatabaseManager.getConnection();
-             var ps = conn.prepareStatement(sql);
+             var ps = prepareQuery(conn, GAME_COLUMNS, GAME_WITH_ARCHIVE, query);
+             var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                games.add(new GameData(
+                        rs.getInt("gameID"),
+                        rs.getString("whiteUsername"),
+                        rs.getString("blackUsername"),
+                        rs.getString("gameName"),
+                        deserializeGame(rs)
+                ));
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing games: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        List<GameSummary> games = new ArrayList<>();
+        try (var conn = DatabaseManager.getConnection();
+             var ps = prepareQuery(conn, "g.gameID, g.whiteUsername, g.blackUsername, g.gameName, g.gameOver, g.moveCount",
+                     "game g", query);
              var rs = ps.executeQuery()) {
             while (rs.next()) {
-                int gameID = rs.getInt("gameID");
-                String whiteUsername = rs.getString("whiteUsername");
-                String blackUsername = rs.getString("blackUsername");
-                String gameName = rs.getString("gameName");
-                String gameDataJson = rs.getString("gameData");
-                ChessGame game = deserializeGame(gameDataJson);
-                games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, game));
+                games.add(new GameSummary(
+                        rs.getInt("gameID"),
+                        rs.getString("whiteUsername"),
+                        rs.getString("blackUsername"),
+                        rs.getString("gameName"),
+                        rs.getBoolean("gameOver"),
+                        rs.getInt("moveCount")
+                ));
             }
             return games;
         } catch (SQLException e) {
@@ -64,18 +247,93 @@ public class MySQLGameAccess implements GameAccess {
         }
     }
 
+    /**
+     * Builds a keyset query for one lobby page: rows after the cursor in primary key
+     * order, so every page is an index range scan however deep the listing goes.
+     * <p>
+     * A player's games are one range scan of each seat's index rather than an OR of
+     * the two, which MySQL can only answer by merging and sorting every game the
+     * player ever had. Each scan stops after a page of rows; the games from the black
+     * seat skip those where the player also holds the white seat, so none comes twice.
+     */
+    private PreparedStatement prepareQuery(Connection conn, String columns, String from, GameQuery query)
+            throws SQLException {
+        var select = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(from).append(" WHERE 1 = 1");
+        List<Object> filters = new ArrayList<>();
+        if (query.afterGameID() != null) {
+            select.append(" AND g.gameID > ?");
+            filters.add(query.afterGameID());
+        }
+        if (query.openSeats()) {
+            select.append(" AND (g.whiteUsername IS NULL OR g.blackUsername IS NULL)");
+        }
+        if (query.gameOver() != null) {
+            select.append(" AND g.gameOver = ?");
+            filters.add(query.gameOver());
+        }
+
+        StringBuilder sql;
+        List<Object> params = new ArrayList<>(filters);
+        if (query.player() == null) {
+            sql = select.append(" ORDER BY g.gameID LIMIT ?");
+        } else {
+            sql = new StringBuilder("SELECT * FROM ((")
+                    .append(select).append(" AND g.whiteUsername = ? ORDER BY g.gameID LIMIT ?) UNION ALL (")
+                    .append(select).append(" AND g.blackUsername = ? AND NOT (g.whiteUsername <=> ?)")
+                    .append(" ORDER BY g.gameID LIMIT ?)) p ORDER BY p.gameID LIMIT ?");
+            params.add(query.player());
+            params.add(query.limit());
+            params.addAll(filters);
+            params.add(query.player());
+            params.add(query.player());
+            params.add(query.limit());
+        }
+        params.add(query.limit());
+
+        var ps = conn.prepareStatement(sql.toString());
+        try {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
+    }
+
+    /**
+     * For a gameID of 0 the insert passes NULL, so AUTO_INCREMENT allocates the ID in
+     * the same round trip without any locking of ours.
+     */
     @Override
-    public void createGame(GameData game) throws DataAccessException {
+    public int createGame(GameData game) throws DataAccessException {
         String gameDataJson = serializeGame(game.game());
-        String sql = "INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, gameData) VALUES (?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, gameData, gameOver, moveCount) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
         try (var conn = DatabaseManager.getConnection();
-             var ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, game.gameID());
+             var ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (game.gameID() == 0) {
+                ps.setNull(1, Types.INTEGER);
+            } else {
+                ps.setInt(1, game.gameID());
+            }
             ps.setString(2, game.whiteUsername());
             ps.setString(3, game.blackUsername());
             ps.setString(4, game.gameName());
             ps.setString(5, gameDataJson);
+            ps.setBoolean(6, game.game().isGameOver());
+            ps.setInt(7, game.game().getMoveSequence());
             ps.executeUpdate();
+            if (game.gameID() != 0) {
+                return game.gameID();
+            }
+            try (var keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new DataAccessException("Error creating game: no ID was generated");
+                }
+                return keys.getInt(1);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("Error creating game: " + e.getMessage(), e);
         }
@@ -83,19 +341,24 @@ public class MySQLGameAccess implements GameAccess {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException, BadRequestException {
-        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameData FROM game WHERE gameID = ?";
+        return getStoredGame(gameID).game();
+    }
+
+    @Override
+    public StoredGame getStoredGame(int gameID) throws DataAccessException, BadRequestException {
+        String sql = "SELECT " + GAME_COLUMNS + ", g.version FROM " + GAME_WITH_ARCHIVE + " WHERE g.gameID = ?";
         try (var conn = DatabaseManager.getConnection();
              var ps = conn.prepareStatement(sql)) {
             ps.setInt(1, gameID);
             try (var rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return new GameData(
+                    return new StoredGame(new GameData(
                             rs.getInt("gameID"),
                             rs.getString("whiteUsername"),
                             rs.getString("blackUsername"),
                             rs.getString("gameName"),
-                            deserializeGame(rs.getString("gameData"))
-                    );
+                            deserializeGame(rs)
+                    ), rs.getInt("version"));
                 } else {
                     // Game not found is a bad request - don't include SQLException
                     throw new BadRequestException("Game not found: " + gameID);
@@ -121,16 +384,14 @@ public class MySQLGameAccess implements GameAccess {
         }
     }
 
+    private static final String UPDATE_GAME = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameData = ?, "
+            + "gameOver = ?, moveCount = ?, version = version + 1 WHERE gameID = ?";
+
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        String gameDataJson = serializeGame(game.game());
-        String sql = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameData = ? WHERE gameID = ?";
         try (var conn = DatabaseManager.getConnection();
-             var ps = conn.prepareStatement(sql)) {
-            ps.setString(1, game.whiteUsername());
-            ps.setString(2, game.blackUsername());
-            ps.setString(3, gameDataJson);
-            ps.setInt(4, game.gameID());
+             var ps = conn.prepareStatement(UPDATE_GAME)) {
+            setUpdateParams(ps, game);
             int rowsAffected = ps.executeUpdate();
             if (rowsAffected == 0) {
                 throw new DataAccessException("Game not found, could not update: " + game.gameID());
@@ -140,12 +401,76 @@ public class MySQLGameAccess implements GameAccess {
         }
     }
 
+    /**
+     * The version check is part of the UPDATE itself, so InnoDB's row lock makes the
+     * compare and the write one step without any lock held between the read and
+     * the write.
+     */
+    @Override
+    public boolean updateGame(GameData game, int expectedVersion) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement(UPDATE_GAME + " AND version = ?")) {
+            setUpdateParams(ps, game);
+            ps.setInt(7, expectedVersion);
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating game: " + e.getMessage(), e);
+        }
+    }
+
+    private void setUpdateParams(PreparedStatement ps, GameData game) throws SQLException {
+        ps.setString(1, game.whiteUsername());
+        ps.setString(2, game.blackUsername());
+        ps.setString(3, serializeGame(game.game()));
+        ps.setBoolean(4, game.game().isGameOver());
+        ps.setInt(5, game.game().getMoveSequence());
+        ps.setInt(6, game.gameID());
+    }
+
+    /**
+     * Deflates the boards of finished games into {@code game_archive} and drops them
+     * from their hot rows. The hot row is only cleared if the game was not written
+     * since it was read here; a game written after archiving gets its board back in
+     * the hot row, which then takes precedence over the stale archived copy.
+     */
+    @Override
+    public int archiveFinishedGames(int limit) throws DataAccessException {
+        String select = "SELECT gameID, gameData, version FROM game "
+                + "WHERE gameOver = TRUE AND gameData IS NOT NULL ORDER BY gameID LIMIT ?";
+        String archive = "REPLACE INTO game_archive (gameID, gameData) VALUES (?, ?)";
+        String clearHot = "UPDATE game SET gameData = NULL WHERE gameID = ? AND version = ?";
+        try (var conn = DatabaseManager.getConnection();
+             var selectPs = conn.prepareStatement(select);
+             var archivePs = conn.prepareStatement(archive);
+             var clearPs = conn.prepareStatement(clearHot)) {
+            selectPs.setInt(1, limit);
+            int archived = 0;
+            try (var rs = selectPs.executeQuery()) {
+                while (rs.next()) {
+                    int gameID = rs.getInt("gameID");
+                    archivePs.setInt(1, gameID);
+                    archivePs.setBytes(2, deflate(rs.getString("gameData")));
+                    archivePs.executeUpdate();
+                    // Version is left alone: the game reads back exactly the same
+                    clearPs.setInt(1, gameID);
+                    clearPs.setInt(2, rs.getInt("version"));
+                    archived += clearPs.executeUpdate();
+                }
+            }
+            return archived;
+        } catch (SQLException e) {
+            throw new DataAccessException("Error archiving games: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void clear() throws DataAccessException {
         String sql = "DELETE FROM game";
         try (var conn = DatabaseManager.getConnection();
-             var ps = conn.prepareStatement(sql)) {
+             var ps = conn.prepareStatement(sql);
+             var archive = conn.prepareStatement("DELETE FROM game_archive")) {
             ps.executeUpdate();
+            archive.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Error clearing game table: " + e.getMessage(), e);
         }
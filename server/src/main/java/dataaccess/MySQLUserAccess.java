@@ -2,7 +2,6 @@
 package dataaccess;
 
 import datamodel.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 import java.sql.*;
 
 public class MySQLUserAccess implements UserAccess {
@@ -16,7 +15,14 @@ public class MySQLUserAccess implements UserAccess {
         ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
         """;
 
+    private final PasswordHasher hasher;
+
     public MySQLUserAccess() throws DataAccessException {
+        this(new PasswordHasher());
+    }
+
+    public MySQLUserAccess(PasswordHasher hasher) throws DataAccessException {
+        this.hasher = hasher;
         configureDatabase();
     }
 
@@ -56,7 +62,7 @@ public class MySQLUserAccess implements UserAccess {
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
-        String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
+        String hashedPassword = hasher.hash(user.password());
         String sql = "INSERT INTO user (username, password, email) VALUES (?, ?, ?)";
         try (var conn = DatabaseManager.getConnection();
              var ps = conn.prepareStatement(sql)) {
@@ -79,7 +85,15 @@ public class MySQLUserAccess implements UserAccess {
     public boolean authenticateUser(String username, String password) throws DataAccessException {
         try {
             UserData user = getUser(username);
-            return BCrypt.checkpw(password, user.password());
+            if (!hasher.check(password, user.password())) {
+                return false;
+            }
+            if (hasher.needsRehash(user.password())) {
+                hasher.rehashInBackground(password, newHash -> replacePassword(username, user.password(), newHash));
+            }
+            return true;
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (DataAccessException e) {
             // If it's a database connection error, rethrow it
             if (e.getCause() instanceof SQLException) {
@@ -90,6 +104,23 @@ public class MySQLUserAccess implements UserAccess {
         }
     }
 
+    /**
+     * Swaps in a hash made with the current cost, unless the password was changed
+     * since the old hash was read
+     */
+    private void replacePassword(String username, String oldHash, String newHash) {
+        String sql = "UPDATE user SET password = ? WHERE username = ? AND password = ?";
+        try (var conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement(sql)) {
+            ps.setString(1, newHash);
+            ps.setString(2, username);
+            ps.setString(3, oldHash);
+            ps.executeUpdate();
+        } catch (SQLException | DataAccessException e) {
+            // The old hash still works, so the next login will simply try again
+        }
+    }
+
     @Override
     public void clear() throws DataAccessException {
         String sql = "DELETE FROM user";
@@ -0,0 +1,103 @@
+package dataaccess;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs bcrypt on a small pool of its own instead of on request threads.
+ * <p>
+ * bcrypt is slow on purpose, so a burst of logins could otherwise tie up every
+ * request thread and stall game traffic behind it. The pool has one thread per
+ * core and a short queue; once both are full, further hashing is refused with
+ * {@link ServiceUnavailableException} rather than queued, which bounds how many
+ * request threads can be waiting on bcrypt at once.
+ * <p>
+ * The cost is read from the {@code chess.bcrypt.cost} system property. Hashes made
+ * with another cost still verify, and {@link #needsRehash} tells callers to
+ * replace them.
+ */
+public class PasswordHasher {
+
+    public static final int DEFAULT_COST = 10;
+
+    private final int cost;
+    private final ThreadPoolExecutor pool;
+
+    public PasswordHasher() {
+        this(Integer.getInteger("chess.bcrypt.cost", DEFAULT_COST),
+                Runtime.getRuntime().availableProcessors(),
+                4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public PasswordHasher(int cost, int threads, int queueSize) {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalArgumentException("bcrypt cost must be between 4 and 31, was " + cost);
+        }
+        this.cost = cost;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public String hash(String password) throws DataAccessException {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    public boolean check(String password, String hash) throws DataAccessException {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * @return true if the hash was made with a different cost than the configured one
+     */
+    public boolean needsRehash(String hash) {
+        // A bcrypt hash looks like $2a$10$..., with the cost as two digits after the version
+        String[] parts = hash.split("\\$");
+        return parts.length < 3 || !parts[2].equals("%02d".formatted(cost));
+    }
+
+    /**
+     * Hashes the password again with the configured cost when there is spare capacity
+     * and hands the new hash to {@code store}. Skipped when the pool is busy, since
+     * the old hash still works and the next login can try again.
+     */
+    public void rehashInBackground(String password, Consumer<String> store) {
+        try {
+            pool.execute(() -> store.accept(BCrypt.hashpw(password, BCrypt.gensalt(cost))));
+        } catch (RejectedExecutionException e) {
+            // Busy; not worth shedding a login over
+        }
+    }
+
+    private <T> T run(Callable<T> task) throws DataAccessException {
+        try {
+            return pool.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many logins in progress, try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new DataAccessException("Error hashing password: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
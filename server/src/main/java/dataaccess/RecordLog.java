@@ -0,0 +1,240 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of key/value records in a memory-mapped file, used by the
+ * embedded DAOs to make their in-memory state durable.
+ * <p>
+ * Each change appends one record: {@code [length][crc32][op][key length][key][value]},
+ * followed by a zero length that marks the end of the log. An in-memory index
+ * points at the latest record for every key, so compaction copies live records
+ * without decoding them. It runs once superseded records take up more room than
+ * live ones.
+ * <p>
+ * Appending is a copy into the mapping, and the OS writes the pages back on its
+ * own. A record is therefore safe once the append returns if the process dies,
+ * but only after {@link #close()} or a compaction if the machine does. On open
+ * the log is replayed up to the first record that is cut short or fails its
+ * checksum, which is where a crash interrupted a write, and appending resumes
+ * there.
+ * <p>
+ * Not thread-safe on its own; callers hold their own lock around each change so
+ * the log records changes in the same order they were applied.
+ */
+final class RecordLog implements AutoCloseable {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int END_MARKER_BYTES = 4;
+    private static final int MIN_FILE_BYTES = 64 * 1024;
+    private static final int MIN_COMPACT_BYTES = 1024 * 1024;
+
+    private record Location(int offset, int length) {}
+
+    private final Path file;
+    private final Map<String, Location> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long liveBytes;
+
+    RecordLog(Path file) throws DataAccessException {
+        this.file = file;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            // Left behind if a compaction was interrupted before replacing the log
+            Files.deleteIfExists(compactionFile());
+            open();
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessException("Unable to open " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Path compactionFile() {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), MIN_FILE_BYTES));
+    }
+
+    private void recover() throws IOException, DataAccessException {
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_BYTES, payload);
+            if (checksum(payload) != buffer.getInt(position + 4)) {
+                break;
+            }
+            apply(position, payload);
+            position += HEADER_BYTES + length;
+        }
+        end = position;
+        ensureCapacity((long) end + END_MARKER_BYTES);
+        // Anything after this point is a torn write and is overwritten by the next append
+        buffer.putInt(end, 0);
+    }
+
+    private void apply(int offset, byte[] payload) {
+        int keyLength = ((payload[1] & 0xff) << 8) | (payload[2] & 0xff);
+        String key = new String(payload, 3, keyLength, StandardCharsets.UTF_8);
+        Location previous = index.remove(key);
+        if (previous != null) {
+            liveBytes -= previous.length();
+        }
+        if (payload[0] == PUT) {
+            Location location = new Location(offset, HEADER_BYTES + payload.length);
+            index.put(key, location);
+            liveBytes += location.length();
+        }
+    }
+
+    /**
+     * Passes every live key with its latest value to {@code action}, in no particular order
+     */
+    void forEach(BiConsumer<String, byte[]> action) {
+        index.forEach((key, location) -> {
+            byte[] payload = new byte[location.length() - HEADER_BYTES];
+            buffer.get(location.offset() + HEADER_BYTES, payload);
+            int valueStart = 3 + (((payload[1] & 0xff) << 8) | (payload[2] & 0xff));
+            byte[] value = new byte[payload.length - valueStart];
+            System.arraycopy(payload, valueStart, value, 0, value.length);
+            action.accept(key, value);
+        });
+    }
+
+    void put(String key, byte[] value) throws DataAccessException {
+        append(PUT, key, value);
+    }
+
+    void remove(String key) throws DataAccessException {
+        if (index.containsKey(key)) {
+            append(REMOVE, key, new byte[0]);
+        }
+    }
+
+    /**
+     * Drops every record by compacting down to an empty log
+     */
+    void clear() throws DataAccessException {
+        index.clear();
+        liveBytes = 0;
+        compact();
+    }
+
+    private void append(byte op, String key, byte[] value) throws DataAccessException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > 0xffff) {
+            throw new DataAccessException("Key too long for the record log: " + key);
+        }
+        byte[] payload = new byte[3 + keyBytes.length + value.length];
+        payload[0] = op;
+        payload[1] = (byte) (keyBytes.length >>> 8);
+        payload[2] = (byte) keyBytes.length;
+        System.arraycopy(keyBytes, 0, payload, 3, keyBytes.length);
+        System.arraycopy(value, 0, payload, 3 + keyBytes.length, value.length);
+
+        int recordBytes = HEADER_BYTES + payload.length;
+        try {
+            ensureCapacity((long) end + recordBytes + END_MARKER_BYTES);
+        } catch (IOException e) {
+            throw new DataAccessException("Error growing " + file + ": " + e.getMessage(), e);
+        }
+        int offset = end;
+        // The new end marker goes down first and the length last, so a record is
+        // never visible to recovery before all of it has been written
+        buffer.putInt(offset + recordBytes, 0);
+        buffer.put(offset + HEADER_BYTES, payload);
+        buffer.putInt(offset + 4, checksum(payload));
+        buffer.putInt(offset, payload.length);
+        end = offset + recordBytes;
+        apply(offset, payload);
+
+        if (end > MIN_COMPACT_BYTES && end - liveBytes > liveBytes) {
+            compact();
+        }
+    }
+
+    private void ensureCapacity(long needed) throws IOException, DataAccessException {
+        if (needed <= buffer.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new DataAccessException("Record log " + file + " is full");
+        }
+        long size = Math.max(needed, 2L * buffer.capacity());
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Copies the live records into a new file and swaps it in. The swap is an atomic
+     * rename, so a crash at any point leaves either the old log or the new one.
+     */
+    private void compact() throws DataAccessException {
+        Path target = compactionFile();
+        try {
+            Map<String, Location> moved = new HashMap<>();
+            int position = 0;
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = Math.max(MIN_FILE_BYTES, 2 * liveBytes + END_MARKER_BYTES);
+                MappedByteBuffer compacted = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    Location location = entry.getValue();
+                    compacted.put(position, buffer, location.offset(), location.length());
+                    moved.put(entry.getKey(), new Location(position, location.length()));
+                    position += location.length();
+                }
+                compacted.putInt(position, 0);
+                compacted.force();
+            }
+            Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel.close();
+            open();
+            index.clear();
+            index.putAll(moved);
+            end = position;
+        } catch (IOException e) {
+            throw new DataAccessException("Error compacting " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Flushes every appended record to disk and releases the file
+     */
+    @Override
+    public void close() throws DataAccessException {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new DataAccessException("Error closing " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package dataaccess;
+
+/**
+ * Indicates the server is too busy to take on the work right now and the client
+ * should try again shortly
+ */
+public class ServiceUnavailableException extends DataAccessException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package dataaccess;
+
+import datamodel.GameData;
+
+/**
+ * A game as read from the store, with the version it had at the time
+ *
+ * @param version goes up by one with every write of the game
+ */
+public record StoredGame(GameData game, int version) {}
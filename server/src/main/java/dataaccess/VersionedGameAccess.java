@@ -0,0 +1,108 @@
+package dataaccess;
+
+import datamodel.GameData;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps another {@link GameAccess} and counts writes, so callers can tell
+ * whether the lobby or a single game changed without reading it.
+ * <p>
+ * Every write takes the next value of one counter. The lobby version is the
+ * latest value handed out and a game's version is the value of its latest
+ * write. Versions never repeat, even across {@link #clear()}, and are bumped after
+ * the write finishes: reading a version before the data never pairs a new
+ * version with old data.
+ */
+public class VersionedGameAccess implements GameAccess {
+
+    private final GameAccess delegate;
+    private final AtomicLong lobbyVersion = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Long> gameVersions = new ConcurrentHashMap<>();
+
+    public VersionedGameAccess(GameAccess delegate) {
+        this.delegate = delegate;
+    }
+
+    public long lobbyVersion() {
+        return lobbyVersion.get();
+    }
+
+    /**
+     * @return the version of the game's latest write, or 0 if it has not changed since startup
+     */
+    public long gameVersion(int gameID) {
+        return gameVersions.getOrDefault(gameID, 0L);
+    }
+
+    private void changed(int gameID) {
+        gameVersions.put(gameID, lobbyVersion.incrementAndGet());
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        return delegate.listGames(query);
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        return delegate.listGameSummaries(query);
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        int gameID = delegate.createGame(game);
+        changed(gameID);
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException, BadRequestException {
+        return delegate.getGame(gameID);
+    }
+
+    @Override
+    public boolean gameExists(int gameID) throws DataAccessException {
+        return delegate.gameExists(gameID);
+    }
+
+    @Override
+    public StoredGame getStoredGame(int gameID) throws DataAccessException, BadRequestException {
+        return delegate.getStoredGame(gameID);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        delegate.updateGame(game);
+        changed(game.gameID());
+    }
+
+    @Override
+    public boolean updateGame(GameData game, int expectedVersion) throws DataAccessException {
+        if (!delegate.updateGame(game, expectedVersion)) {
+            return false;
+        }
+        changed(game.gameID());
+        return true;
+    }
+
+    /**
+     * Not counted as a change, since archived games read back exactly the same
+     */
+    @Override
+    public int archiveFinishedGames(int limit) throws DataAccessException {
+        return delegate.archiveFinishedGames(limit);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        // A game ID handed out again is created afresh and so gets a newer version
+        gameVersions.clear();
+        lobbyVersion.incrementAndGet();
+    }
+}
@@ -0,0 +1,53 @@
+package metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, kept separately for each combination of label values
+ */
+public class Counter implements MetricsRegistry.Metric {
+
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final ConcurrentHashMap<List<String>, LongAdder> series = new ConcurrentHashMap<>();
+
+    Counter(String name, String help, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+    }
+
+    public void inc(String... labelValues) {
+        add(1, labelValues);
+    }
+
+    public void add(long amount, String... labelValues) {
+        series.computeIfAbsent(MetricsRegistry.labelValues(labelNames, labelValues), values -> new LongAdder())
+                .add(amount);
+    }
+
+    /**
+     * @return the current count for the given label values
+     */
+    public long get(String... labelValues) {
+        LongAdder count = series.get(List.of(labelValues));
+        return count == null ? 0 : count.sum();
+    }
+
+    @Override
+    public void writeTo(StringBuilder out) {
+        MetricsRegistry.writeHeader(out, name, help, "counter");
+        Map<String, String> lines = new TreeMap<>();
+        series.forEach((values, count) -> {
+            StringBuilder line = new StringBuilder(name);
+            MetricsRegistry.writeLabels(line, labelNames, values, null);
+            lines.put(line.toString(), line.append(' ').append(count.sum()).append('\n').toString());
+        });
+        lines.values().forEach(out::append);
+    }
+}
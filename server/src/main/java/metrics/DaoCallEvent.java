@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one call through a DAO wrapped by {@link TimedAccess}
+ */
+@Name("chess.DaoCall")
+@Label("DAO Call")
+@Category({"Chess", "Data Access"})
+@Description("A call to a data access object")
+class DaoCallEvent extends jdk.jfr.Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("Game ID")
+    @Description("The game the call was about, or 0 when it was not about one game")
+    int gameID;
+
+    @Label("Failed")
+    boolean failed;
+}
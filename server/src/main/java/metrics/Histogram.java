@@ -0,0 +1,93 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts observations into fixed buckets, separately for each combination of
+ * label values, from which a scraper can estimate percentiles
+ */
+public class Histogram implements MetricsRegistry.Metric {
+
+    private final String name;
+    private final String help;
+    private final double[] buckets;
+    private final String[] labelNames;
+    private final ConcurrentHashMap<List<String>, Series> series = new ConcurrentHashMap<>();
+
+    private static final class Series {
+        final LongAdder[] counts;
+        final DoubleAdder sum = new DoubleAdder();
+
+        Series(int buckets) {
+            // One more for observations above the highest bucket
+            counts = new LongAdder[buckets + 1];
+            Arrays.setAll(counts, i -> new LongAdder());
+        }
+    }
+
+    Histogram(String name, String help, double[] buckets, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.buckets = buckets.clone();
+        Arrays.sort(this.buckets);
+        this.labelNames = labelNames;
+    }
+
+    public void observe(double value, String... labelValues) {
+        Series s = series.computeIfAbsent(MetricsRegistry.labelValues(labelNames, labelValues),
+                values -> new Series(buckets.length));
+        int bucket = Arrays.binarySearch(buckets, value);
+        s.counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        s.sum.add(value);
+    }
+
+    /**
+     * Records a duration measured with {@link System#nanoTime()} in seconds
+     */
+    public void observeSince(long startNanos, String... labelValues) {
+        observe((System.nanoTime() - startNanos) / 1e9, labelValues);
+    }
+
+    /**
+     * @return how many observations were made with the given label values
+     */
+    public long count(String... labelValues) {
+        Series s = series.get(List.of(labelValues));
+        return s == null ? 0 : Arrays.stream(s.counts).mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public void writeTo(StringBuilder out) {
+        MetricsRegistry.writeHeader(out, name, help, "histogram");
+        // Sorted by rendered labels so consecutive scrapes list series in the same order
+        Map<String, Map.Entry<List<String>, Series>> sorted = new TreeMap<>();
+        for (Map.Entry<List<String>, Series> entry : series.entrySet()) {
+            StringBuilder labels = new StringBuilder();
+            MetricsRegistry.writeLabels(labels, labelNames, entry.getKey(), null);
+            sorted.put(labels.toString(), entry);
+        }
+        sorted.forEach((labels, entry) -> {
+            Series s = entry.getValue();
+            long cumulative = 0;
+            for (int i = 0; i <= buckets.length; i++) {
+                cumulative += s.counts[i].sum();
+                String le = i < buckets.length ? format(buckets[i]) : "+Inf";
+                out.append(name).append("_bucket");
+                MetricsRegistry.writeLabels(out, labelNames, entry.getKey(), "le=\"" + le + "\"");
+                out.append(' ').append(cumulative).append('\n');
+            }
+            out.append(name).append("_sum").append(labels).append(' ').append(s.sum.sum()).append('\n');
+            out.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+        });
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+    }
+}
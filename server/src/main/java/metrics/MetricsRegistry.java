@@ -0,0 +1,120 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the server's metrics and renders them in the Prometheus text exposition
+ * format, so any Prometheus-compatible scraper can read {@code /metrics}.
+ * <p>
+ * Recording a value is a lock-free add, so instrumenting a hot path costs next to
+ * nothing. Metrics are created once at startup and kept for the life of the server.
+ */
+public class MetricsRegistry {
+
+    /** In seconds, from half a millisecond up to ten seconds */
+    public static final double[] LATENCY_BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    interface Metric {
+        void writeTo(StringBuilder out);
+    }
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(name, new Counter(name, help, labelNames));
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return register(name, new Histogram(name, help, buckets, labelNames));
+    }
+
+    /**
+     * A counter kept elsewhere, read at scrape time
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        register(name, out -> writeSampled(out, name, help, "counter", value));
+    }
+
+    /**
+     * A value that can go up and down, read at scrape time
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        register(name, out -> writeSampled(out, name, help, "gauge", value));
+    }
+
+    /**
+     * A gauge with one label, the value for each of its values read at scrape time
+     */
+    public void gauge(String name, String help, String labelName, Map<String, LongSupplier> values) {
+        String[] labelNames = {labelName};
+        register(name, out -> {
+            writeHeader(out, name, help, "gauge");
+            values.forEach((labelValue, value) -> {
+                out.append(name);
+                writeLabels(out, labelNames, List.of(labelValue), null);
+                out.append(' ').append(value.getAsLong()).append('\n');
+            });
+        });
+    }
+
+    private <M extends Metric> M register(String name, M metric) {
+        if (metrics.putIfAbsent(name, metric) != null) {
+            throw new IllegalArgumentException("Metric already registered: " + name);
+        }
+        return metric;
+    }
+
+    private static void writeSampled(StringBuilder out, String name, String help, String type, LongSupplier value) {
+        writeHeader(out, name, help, type);
+        out.append(name).append(' ').append(value.getAsLong()).append('\n');
+    }
+
+    /**
+     * @return every metric in the Prometheus text format, sorted by name
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            metric.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    static void writeHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ')
+                .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes {@code {a="x",b="y"}}, with {@code extra} appended as a final pre-rendered
+     * label, or nothing when there are no labels at all
+     */
+    static void writeLabels(StringBuilder out, String[] names, List<String> values, String extra) {
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            String value = values.get(i)
+                    .replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            pairs.add(names[i] + "=\"" + value + "\"");
+        }
+        if (extra != null) {
+            pairs.add(extra);
+        }
+        if (!pairs.isEmpty()) {
+            out.append('{').append(String.join(",", pairs)).append('}');
+        }
+    }
+
+    static List<String> labelValues(String[] names, String[] values) {
+        if (names.length != values.length) {
+            throw new IllegalArgumentException("Expected labels " + List.of(names) + ", got " + List.of(values));
+        }
+        return List.of(values);
+    }
+}
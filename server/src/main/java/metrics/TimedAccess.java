@@ -0,0 +1,58 @@
+package metrics;
+
+import datamodel.GameData;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps a DAO so every call through its interface is timed, labelled with the
+ * DAO's name and the method called, and recorded as a Flight Recorder event
+ */
+public final class TimedAccess {
+
+    private TimedAccess() {
+    }
+
+    public static <T> T wrap(Class<T> type, T target, String dao, Histogram timings) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            DaoCallEvent event = new DaoCallEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                event.failed = true;
+                throw e.getCause();
+            } finally {
+                timings.observeSince(start, dao, method.getName());
+                if (event.shouldCommit()) {
+                    event.dao = dao;
+                    event.method = method.getName();
+                    event.gameID = gameID(args);
+                    event.commit();
+                }
+            }
+        });
+        return type.cast(proxy);
+    }
+
+    /**
+     * @return the game a DAO call was about, taken from its first argument
+     */
+    private static int gameID(Object[] args) {
+        if (args == null || args.length == 0) {
+            return 0;
+        }
+        if (args[0] instanceof Integer gameID) {
+            return gameID;
+        }
+        if (args[0] instanceof GameData game) {
+            return game.gameID();
+        }
+        return 0;
+    }
+}
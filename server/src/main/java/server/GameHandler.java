@@ -2,30 +2,83 @@ package server;
 
 import dataaccess.DataAccessException;
 import service.GameService;
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import io.javalin.http.Context;
-import java.util.HashSet;
 import java.util.Map;
-import datamodel.GameData;
+import datamodel.GamePage;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
 import dataaccess.BadRequestException;
+import dataaccess.ConflictException;
+import dataaccess.ForbiddenException;
 import dataaccess.UnauthorizedException;
+import serialization.ChessJson;
+import server.websocket.LoadGameCache;
 
 
 
 public class GameHandler {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String ETAG_EPOCH = Long.toHexString(System.currentTimeMillis());
+
     GameService gameService;
+    LoadGameCache gameCache;
 
     public GameHandler(GameService gameService) {
+        this(gameService, new LoadGameCache());
+    }
+
+    public GameHandler(GameService gameService, LoadGameCache gameCache) {
         this.gameService = gameService;
+        this.gameCache = gameCache;
     }
 
+    /**
+     * Lists one page of the lobby in game ID order. Supported query parameters:
+     * cursor (the nextCursor of the previous page), limit, openSeats=true,
+     * player=username, status=active|finished, and includeBoards=true to send
+     * full games instead of summaries.
+     */
     public void listGames(Context ctx) {
         String authToken = ctx.header("authorization");
         try {
-            HashSet<GameData> games = gameService.listGames(authToken);
-            ctx.status(200).json(Map.of("games", games));
+            GameQuery query = parseQuery(ctx);
+            // Every page and filter of an unchanged lobby is unchanged too
+            if (notModified(ctx, "lobby-" + gameService.lobbyVersion(authToken))) {
+                return;
+            }
+            if (Boolean.parseBoolean(ctx.queryParam("includeBoards"))) {
+                ctx.status(200).json(gameService.listGames(authToken, query));
+                return;
+            }
+            GamePage<GameSummary> page = gameService.listGameSummaries(authToken, query);
+            ctx.status(200).json(page);
+        } catch (BadRequestException e) {
+            ctx.status(400).json(Map.of("message", "Error: " + e.getMessage()));
+        } catch (UnauthorizedException e) {
+            ctx.status(401).json(Map.of("message", "Error: Unauthorized"));
+        } catch (DataAccessException e) {
+            ctx.status(500).json(Map.of("message", "Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Sends one game, answering 304 Not Modified when the client already has its current version
+     */
+    public void getGame(Context ctx) {
+        String authToken = ctx.header("authorization");
+        try {
+            int gameID = Integer.parseInt(ctx.pathParam("gameID"));
+            if (notModified(ctx, "game-" + gameID + "-" + gameService.gameVersion(authToken, gameID))) {
+                return;
+            }
+            ctx.status(200).json(gameService.getGame(authToken, gameID));
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of("message", "Error: gameID must be a number"));
+        } catch (BadRequestException e) {
+            ctx.status(404).json(Map.of("message", "Error: game not found"));
         } catch (UnauthorizedException e) {
             ctx.status(401).json(Map.of("message", "Error: Unauthorized"));
         } catch (DataAccessException e) {
@@ -33,11 +86,62 @@ public class GameHandler {
         }
     }
 
+    /**
+     * Sets the ETag for the given version and checks it against If-None-Match.
+     * Versions are counted from server startup, so the tag includes the startup time.
+     *
+     * @return true if a 304 was sent and the handler is done
+     */
+    private static boolean notModified(Context ctx, String version) {
+        String etag = "W/\"" + ETAG_EPOCH + "-" + version + "\"";
+        ctx.header("ETag", etag);
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || ("W/" + tag).equals(etag)) {
+                ctx.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static GameQuery parseQuery(Context ctx) throws BadRequestException {
+        try {
+            String cursor = ctx.queryParam("cursor");
+            String limitParam = ctx.queryParam("limit");
+            int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+
+            String status = ctx.queryParam("status");
+            Boolean gameOver;
+            if (status == null) {
+                gameOver = null;
+            } else if (status.equalsIgnoreCase("active")) {
+                gameOver = false;
+            } else if (status.equalsIgnoreCase("finished")) {
+                gameOver = true;
+            } else {
+                throw new BadRequestException("status must be active or finished");
+            }
+
+            return new GameQuery(cursor == null ? null : Integer.parseInt(cursor), limit,
+                    Boolean.parseBoolean(ctx.queryParam("openSeats")), ctx.queryParam("player"), gameOver);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("cursor and limit must be numbers");
+        }
+    }
+
     public void createGame(Context ctx) {
         String authToken = ctx.header("authorization");
         try {
             record CreateGameRequest(String gameName) {}
-            CreateGameRequest req = new Gson().fromJson(ctx.body(), CreateGameRequest.class);
+            CreateGameRequest req = ChessJson.GSON.fromJson(ctx.body(), CreateGameRequest.class);
             String gameName = req.gameName();
 
             if (gameName == null || gameName.trim().isEmpty()) {
@@ -57,6 +161,39 @@ public class GameHandler {
 
     }
 
+    /**
+     * Seats the bot in a game, given the gameID and the playerColor it should play
+     */
+    public void addBot(Context ctx) {
+        String authToken = ctx.header("authorization");
+        try {
+            record AddBotRequest(String playerColor, Integer gameID) {}
+            AddBotRequest req = ChessJson.GSON.fromJson(ctx.body(), AddBotRequest.class);
+            if (req == null || req.gameID() == null) {
+                ctx.status(400).json(Map.of("message", "Error: No gameID provided"));
+                return;
+            }
+            if (!gameService.seatBot(authToken, req.gameID(), req.playerColor())) {
+                ctx.status(403).json(Map.of("message", "Error: already taken"));
+                return;
+            }
+            gameCache.invalidate(req.gameID());
+            ctx.status(200).json(Map.of());
+        } catch (JsonSyntaxException e) {
+            ctx.status(400).json(Map.of("message", "Error: malformed JSON"));
+        } catch (UnauthorizedException e) {
+            ctx.status(401).json(Map.of("message", "Error: unauthorized"));
+        } catch (ForbiddenException e) {
+            ctx.status(403).json(Map.of("message", "Error: " + e.getMessage()));
+        } catch (BadRequestException e) {
+            ctx.status(400).json(Map.of("message", "Error: bad request"));
+        } catch (ConflictException e) {
+            ctx.status(409).json(Map.of("message", "Error: " + e.getMessage()));
+        } catch (DataAccessException e) {
+            ctx.status(500).json(Map.of("message", "Error: " + e.getMessage()));
+        }
+    }
+
     public void joinGame(Context ctx) {
         if (!ctx.body().contains("\"gameID\":")) {
             ctx.status(400).json(Map.of("message", "Error: No gameID provided"));
@@ -64,18 +201,21 @@ public class GameHandler {
         }
         String authToken = ctx.header("authorization");
         record JoinGameData(String playerColor, int gameID) {}
-        JoinGameData joinData = new Gson().fromJson(ctx.body(), JoinGameData.class);
+        JoinGameData joinData = ChessJson.GSON.fromJson(ctx.body(), JoinGameData.class);
         try {
             boolean joinSuccess = gameService.joinGame(authToken, joinData.gameID(), joinData.playerColor());
             if (!joinSuccess) {
                 ctx.status(403).json(Map.of("message", "Error: already taken"));
                 return;
             }
+            gameCache.invalidate(joinData.gameID());
             ctx.status(200).json(Map.of());
         } catch (UnauthorizedException e) {
             ctx.status(401).json(Map.of("message", "Error: unauthorized"));
         } catch (BadRequestException e) {
             ctx.status(400).json(Map.of("message", "Error: bad request"));
+        } catch (ConflictException e) {
+            ctx.status(409).json(Map.of("message", "Error: " + e.getMessage()));
         } catch (DataAccessException e) {
             ctx.status(500).json(Map.of("message", "Error: " + e.getMessage()));
         }
@@ -0,0 +1,96 @@
+package server;
+
+import dataaccess.DataAccessException;
+import dataaccess.UnauthorizedException;
+import datamodel.LobbyEvent;
+import io.javalin.http.Context;
+import io.javalin.http.sse.SseClient;
+import io.javalin.http.sse.SseHandler;
+import serialization.ChessJson;
+import service.GameService;
+import service.LobbyEvents;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams lobby changes to clients as Server-Sent Events (requests must send
+ * Accept: text/event-stream, as EventSource does), so they can keep a
+ * game list current after one GET /game instead of polling it.
+ * <p>
+ * Each event is named after its {@link LobbyEvent.Type} and carries the event
+ * as JSON. Every client has its own bounded queue and sender thread. A client
+ * that falls too far behind is disconnected rather than slowing down the
+ * handlers that publish; it can reconnect and list the lobby again.
+ */
+public class LobbyFeedHandler {
+
+    private static final int CLIENT_QUEUE_SIZE = 256;
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final GameService gameService;
+    private final LobbyEvents lobbyEvents;
+    private final SseHandler sseHandler = new SseHandler(this::stream);
+
+    public LobbyFeedHandler(GameService gameService, LobbyEvents lobbyEvents) {
+        this.gameService = gameService;
+        this.lobbyEvents = lobbyEvents;
+    }
+
+    /**
+     * Browsers' EventSource cannot set headers, so the auth token may also be
+     * passed as the auth query parameter.
+     */
+    public void handle(Context ctx) throws Exception {
+        String authToken = ctx.header("authorization");
+        if (authToken == null) {
+            authToken = ctx.queryParam("auth");
+        }
+        try {
+            gameService.lobbyVersion(authToken);
+        } catch (UnauthorizedException e) {
+            ctx.status(401).json(Map.of("message", "Error: Unauthorized"));
+            return;
+        } catch (DataAccessException e) {
+            ctx.status(500).json(Map.of("message", "Error: " + e.getMessage()));
+            return;
+        }
+        sseHandler.handle(ctx);
+    }
+
+    private void stream(SseClient client) {
+        client.keepAlive();
+        BlockingQueue<LobbyEvent> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_SIZE);
+        Thread sender = Thread.ofVirtual().name("lobby-feed").unstarted(() -> send(client, queue));
+        Runnable unsubscribe = lobbyEvents.subscribe(event -> {
+            if (!queue.offer(event)) {
+                sender.interrupt();
+            }
+        });
+        client.onClose(() -> {
+            unsubscribe.run();
+            sender.interrupt();
+        });
+        sender.start();
+    }
+
+    private static void send(SseClient client, BlockingQueue<LobbyEvent> queue) {
+        try {
+            while (!client.terminated()) {
+                LobbyEvent event = queue.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    // Writing is the only way to notice a client that went away
+                    client.sendComment("heartbeat");
+                } else {
+                    client.sendEvent(event.type().name(), ChessJson.GSON.toJson(event), String.valueOf(event.id()));
+                }
+            }
+        } catch (InterruptedException e) {
+            // Unsubscribed, or the client fell behind
+        } finally {
+            client.close();
+        }
+    }
+}
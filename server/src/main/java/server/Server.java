@@ -1,51 +1,158 @@
 package server;
 
+import chess.PositionCache;
+import chess.engine.SearchLimits;
 import dataaccess.*;
+import datamodel.LobbyEvent;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import service.*;
 import com.google.gson.Gson;
 import io.javalin.json.JavalinGson;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.TimedAccess;
+import serialization.ChessJson;
+import server.websocket.LoadGameCache;
 import server.websocket.WebSocketHandler;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
 public class Server {
 
     UserAccess userAccess;
     AuthAccess authAccess;
+    GameAccess gameStore;
     GameAccess gameAccess;
     UserService userService;
     GameService gameService;
     UserHandler userHandler;
     GameHandler gameHandler;
     WebSocketHandler webSocketHandler;
+    LoadGameCache gameCache;
+    LobbyEvents lobbyEvents;
+    LobbyFeedHandler lobbyFeedHandler;
+    GameArchiver gameArchiver;
+    EngineScheduler engine;
+    BotPlayer bot;
+    MetricsRegistry metrics = new MetricsRegistry();
+    Counter httpRequests = metrics.counter("chess_http_requests_total",
+            "HTTP requests handled, by method, route and status", "method", "route", "status");
+    Histogram httpLatency = metrics.histogram("chess_http_request_duration_seconds",
+            "Time to handle an HTTP request, by method and route", MetricsRegistry.LATENCY_BUCKETS,
+            "method", "route");
 
     private Javalin server;
 
+    /**
+     * Stores data in MySQL, or with {@code -Dchess.storage=file} in log files under
+     * the directory named by {@code chess.dataDir} (default {@code data}) without a
+     * database server. {@code -Dchess.storage=memory} keeps everything in memory and
+     * loses it on exit, which suits load tests.
+     */
     public Server() {
         try {
-            DatabaseManager.createDatabase(); // Ensure DB exists before any connections
-
-            userAccess = new MySQLUserAccess();
-            authAccess = new MySQLAuthAccess();
-            gameAccess = new MySQLGameAccess();
+            String storage = System.getProperty("chess.storage", "mysql");
+            if ("memory".equals(storage)) {
+                userAccess = new MemoryUserAccess();
+                authAccess = new MemoryAuthAccess();
+                gameStore = new MemoryGameAccess();
+            } else if ("file".equals(storage)) {
+                Path dataDir = Path.of(System.getProperty("chess.dataDir", "data"));
+                userAccess = new FileUserAccess(dataDir);
+                authAccess = new FileAuthAccess(dataDir);
+                gameStore = new FileGameAccess(dataDir);
+            } else {
+                DatabaseManager.createDatabase(); // Ensure DB exists before any connections
+
+                userAccess = new MySQLUserAccess();
+                authAccess = new MySQLAuthAccess();
+                gameStore = new MySQLGameAccess();
+            }
         } catch (DataAccessException e) {
             System.err.println("Failed to initialize database access: " + e.getMessage());
             System.exit(1);
         }
-        userService = new UserService(userAccess, authAccess);
-        gameService = new GameService(gameAccess, authAccess);
+        Histogram daoLatency = metrics.histogram("chess_dao_duration_seconds",
+                "Time spent in each data access call, by DAO and method", MetricsRegistry.LATENCY_BUCKETS,
+                "dao", "method");
+        UserAccess timedUsers = TimedAccess.wrap(UserAccess.class, userAccess, "user", daoLatency);
+        AuthAccess timedAuth = TimedAccess.wrap(AuthAccess.class, authAccess, "auth", daoLatency);
+        // Shared by the HTTP and WebSocket handlers so both count towards ETag versions
+        gameAccess = new VersionedGameAccess(TimedAccess.wrap(GameAccess.class, gameStore, "game", daoLatency));
+
+        userService = new UserService(timedUsers, timedAuth);
+        lobbyEvents = new LobbyEvents();
+        gameService = new GameService(gameAccess, timedAuth, lobbyEvents);
+        metrics.counter("chess_game_update_conflicts_total",
+                "Game writes that found the game changed since it was read and retried", gameService::updateConflicts);
+        metrics.counter("chess_game_updates_abandoned_total",
+                "Game writes that gave up after losing every attempt", gameService::updatesAbandoned);
         userHandler = new UserHandler(userService);
-        gameHandler = new GameHandler(gameService);
-        webSocketHandler = new WebSocketHandler(authAccess, gameAccess);
+        gameCache = new LoadGameCache();
+        metrics.gauge("chess_load_game_cache_entries", "Games whose LOAD_GAME frame is cached", gameCache::size);
+        gameHandler = new GameHandler(gameService, gameCache);
+        PositionCache positionCache = new PositionCache(Integer.getInteger("chess.positionCache.size", 65536));
+        metrics.counter("chess_position_cache_hits_total",
+                "Positions whose legal moves and status were found in the cache", positionCache::hits);
+        metrics.counter("chess_position_cache_misses_total",
+                "Positions whose legal moves and status had to be computed", positionCache::misses);
+        metrics.counter("chess_position_cache_evictions_total",
+                "Positions dropped from the full cache to make room", positionCache::evictions);
+        metrics.gauge("chess_position_cache_entries", "Positions in the cache", positionCache::size);
+        // Searching takes whole cores, so all engine work shares a fixed number of threads
+        engine = new EngineScheduler(Integer.getInteger("chess.engine.threads", 1),
+                Integer.getInteger("chess.engine.userQuota", 2), Integer.getInteger("chess.engine.userBacklog", 8));
+        Map<String, LongSupplier> queued = new LinkedHashMap<>();
+        for (EngineScheduler.Priority priority : EngineScheduler.Priority.values()) {
+            queued.put(priority.name().toLowerCase(), () -> engine.queued(priority));
+        }
+        metrics.gauge("chess_engine_jobs_queued", "Engine jobs waiting for a thread, by priority",
+                "priority", queued);
+        metrics.gauge("chess_engine_jobs_deferred", "Engine jobs waiting for their user's earlier jobs to finish",
+                engine::deferred);
+        metrics.gauge("chess_engine_jobs_running", "Engine jobs running", engine::running);
+        metrics.counter("chess_engine_jobs_completed_total", "Engine jobs finished", engine::completed);
+        metrics.counter("chess_engine_jobs_cancelled_total", "Engine jobs cancelled because their game ended",
+                engine::cancelled);
+        metrics.counter("chess_engine_jobs_rejected_total", "Engine jobs refused because their user had too many",
+                engine::rejected);
+        // Nobody is waiting on a finished game's bot move or analysis any more
+        lobbyEvents.subscribe(event -> {
+            if (event.type() == LobbyEvent.Type.FINISHED) {
+                engine.cancelGame(event.game().gameID());
+            }
+        });
+        bot = new BotPlayer(gameAccess, new SearchLimits(SearchLimits.MAX_DEPTH,
+                Long.getLong("chess.bot.nodes", Long.MAX_VALUE),
+                Duration.ofMillis(Long.getLong("chess.bot.moveMillis", 1000))), engine);
+        metrics.counter("chess_bot_moves_total", "Moves chosen by the bot", bot::moves);
+        metrics.counter("chess_bot_nodes_total", "Positions searched by the bot", bot::nodes);
+        metrics.counter("chess_bot_move_retries_total", "Bot moves tried again after failing", bot::retries);
+        metrics.counter("chess_bot_moves_abandoned_total", "Bot moves given up on after every attempt failed",
+                bot::abandoned);
+        metrics.gauge("chess_bot_games_waiting", "Games waiting for the bot to move", bot::gamesThinking);
+        webSocketHandler = new WebSocketHandler(timedAuth, gameAccess, gameService, gameCache, lobbyEvents, metrics,
+                positionCache, bot);
+        lobbyFeedHandler = new LobbyFeedHandler(gameService, lobbyEvents);
+        gameArchiver = new GameArchiver(gameAccess,
+                Duration.ofSeconds(Long.getLong("chess.archive.intervalSeconds", 60)), 500);
     }
 
     public int run(int desiredPort) {
         server = Javalin.create(config -> {
             config.staticFiles.add("web");
-            config.jsonMapper(new JavalinGson()); // <-- Add this line here
+            config.jsonMapper(new JavalinGson(ChessJson.GSON, false));
+            config.requestLogger.http(this::recordRequest);
         }).start(desiredPort);
 
         server.ws("/ws", webSocketHandler::register);
+        gameArchiver.start();
 
         server.delete("/db", this::clear);
         server.post("/user", userHandler::register);
@@ -55,6 +162,11 @@ public class Server {
         server.get("/game", gameHandler::listGames);
         server.post("/game", gameHandler::createGame);
         server.put("/game", gameHandler::joinGame);
+        server.put("/game/bot", gameHandler::addBot);
+        server.get("/game/{gameID}", gameHandler::getGame);
+        server.get("/lobby/events", lobbyFeedHandler::handle);
+        server.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4; charset=utf-8")
+                .result(metrics.scrape()));
 
         server.exception(UnauthorizedException.class,
                 (e, ctx) -> ctx.status(401).json(new ErrorResponse("Error: unauthorized")));
@@ -69,12 +181,43 @@ public class Server {
         if (server != null) {
             server.stop();
         }
+        gameArchiver.close();
+        bot.close();
+        engine.close();
+        // The embedded stores flush their logs to disk on close
+        for (Object store : new Object[]{userAccess, authAccess, gameStore}) {
+            if (store instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close storage: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Labels requests with the route they matched rather than the raw path, so
+     * every game ID shares one series
+     */
+    private void recordRequest(Context ctx, float executionTimeMs) {
+        String route;
+        try {
+            route = ctx.endpointHandlerPath();
+        } catch (IllegalStateException e) {
+            // Requests that matched no endpoint, such as 404s and static files
+            route = "unmatched";
+        }
+        String method = ctx.method().name();
+        httpRequests.inc(method, route, Integer.toString(ctx.statusCode()));
+        httpLatency.observe(executionTimeMs / 1000.0, method, route);
     }
 
     private void clear(Context ctx) {
         try {
             userService.clear();
             gameService.clear();
+            gameCache.clear();
             ctx.status(200).json("{}");
         } catch (DataAccessException e) {
             ctx.status(500).json(new ErrorResponse("Internal server error: " + e.getMessage()));
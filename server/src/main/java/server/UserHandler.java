@@ -2,13 +2,14 @@ package server;
 
 import service.UserService;
 import io.javalin.http.Context;
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
 import dataaccess.BadRequestException;
 import dataaccess.UnauthorizedException;
 import dataaccess.ForbiddenException;
+import dataaccess.ServiceUnavailableException;
 import datamodel.*;
+import serialization.ChessJson;
 
 
 
@@ -23,7 +24,7 @@ public class UserHandler {
 
     public void register(Context ctx) {
         try {
-            UserData userData = new Gson().fromJson(ctx.body(), UserData.class);
+            UserData userData = ChessJson.GSON.fromJson(ctx.body(), UserData.class);
 
             if (userData.username() == null || userData.password() == null) {
                 ctx.status(400).json(new ErrorResponse("Error: No username or password given"));
@@ -36,6 +37,8 @@ public class UserHandler {
             ctx.status(403).json(new ErrorResponse("Error: already registered"));
         } catch (BadRequestException e) {
             ctx.status(400).json(new ErrorResponse("Error: Bad Request"));
+        } catch (ServiceUnavailableException e) {
+            busy(ctx);
         } catch (JsonSyntaxException e) {
             ctx.status(400).json(new ErrorResponse("Malformed JSON"));
         } catch (Exception e) {
@@ -45,7 +48,7 @@ public class UserHandler {
 
     public void login(Context ctx) {
         try {
-            UserData userData = new Gson().fromJson(ctx.body(), UserData.class);
+            UserData userData = ChessJson.GSON.fromJson(ctx.body(), UserData.class);
 
             if (userData.username() == null || userData.password() == null) {
                 ctx.status(400).json(new ErrorResponse("Error: No username or password given"));
@@ -56,6 +59,8 @@ public class UserHandler {
             ctx.status(200).json(registerResponse);
         } catch (UnauthorizedException e) {
             ctx.status(401).json(new ErrorResponse("Error: Unauthorized"));
+        } catch (ServiceUnavailableException e) {
+            busy(ctx);
         } catch (JsonSyntaxException e) {
             ctx.status(400).json(new ErrorResponse("Malformed JSON"));
         } catch (Exception e) {
@@ -68,7 +73,7 @@ public class UserHandler {
             String authToken = ctx.header("authorization");
             userService.logoutUser(authToken);
 
-            ctx.status(200).json(new Gson().fromJson("{}", Object.class));
+            ctx.status(200).json(ChessJson.GSON.fromJson("{}", Object.class));
         } catch (UnauthorizedException e) {
             ctx.status(401).json(new ErrorResponse("Error: unauthorized"));
         } catch (Exception e) {
@@ -76,6 +81,14 @@ public class UserHandler {
         }
     }
 
+    /**
+     * Password hashing is full; the client should back off and retry rather than wait
+     */
+    private static void busy(Context ctx) {
+        ctx.header("Retry-After", "1");
+        ctx.status(503).json(new ErrorResponse("Error: server busy, try again"));
+    }
+
     private static class ErrorResponse {
         public final String message;
         public ErrorResponse(String message) {
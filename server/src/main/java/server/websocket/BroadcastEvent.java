@@ -0,0 +1,25 @@
+package server.websocket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for sending one message to the connections in a game
+ */
+@Name("chess.Broadcast")
+@Label("Broadcast")
+@Category({"Chess", "WebSocket"})
+@Description("Sending a message to everyone connected to a game")
+class BroadcastEvent extends jdk.jfr.Event {
+
+    @Label("Game ID")
+    int gameID;
+
+    @Label("Message Type")
+    String messageType;
+
+    @Label("Recipients")
+    int recipients;
+}
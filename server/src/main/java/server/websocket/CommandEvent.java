@@ -0,0 +1,23 @@
+package server.websocket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for handling one WebSocket command. The rules, DAO and
+ * broadcast events it causes run on the same thread inside its duration.
+ */
+@Name("chess.Command")
+@Label("WebSocket Command")
+@Category({"Chess", "WebSocket"})
+@Description("Handling a command from a WebSocket client")
+class CommandEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Game ID")
+    int gameID;
+}
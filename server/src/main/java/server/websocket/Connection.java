@@ -6,10 +6,19 @@ public class Connection {
     public String authToken;
     public Integer gameID;
     public WsContext session;
+    public boolean moveDeltas;
+    public boolean binaryFrames;
 
     public Connection(String authToken, Integer gameID, WsContext session) {
+        this(authToken, gameID, session, false, false);
+    }
+
+    public Connection(String authToken, Integer gameID, WsContext session, boolean moveDeltas,
+                      boolean binaryFrames) {
         this.authToken = authToken;
         this.gameID = gameID;
         this.session = session;
+        this.moveDeltas = moveDeltas;
+        this.binaryFrames = binaryFrames;
     }
 }
@@ -1,16 +1,28 @@
 package server.websocket;
 
 import io.javalin.websocket.WsContext;
+import metrics.Histogram;
 import websocket.messages.ServerMessage;
-import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ConnectionManager {
     public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private final Histogram fanOut;
+
+    /**
+     * @param fanOut records how many connections each broadcast reached
+     */
+    public ConnectionManager(Histogram fanOut) {
+        this.fanOut = fanOut;
+    }
 
     public void add(String authToken, Integer gameID, WsContext session) {
-        var connection = new Connection(authToken, gameID, session);
+        add(authToken, gameID, session, false, false);
+    }
+
+    public void add(String authToken, Integer gameID, WsContext session, boolean moveDeltas, boolean binaryFrames) {
+        var connection = new Connection(authToken, gameID, session, moveDeltas, binaryFrames);
         connections.put(authToken, connection);
     }
 
@@ -18,17 +30,107 @@ public class ConnectionManager {
         connections.remove(authToken);
     }
 
+    /**
+     * Forgets the connection on a closed socket
+     *
+     * @return the game it was connected to, or null if it had not connected to one
+     */
+    public Integer removeSession(WsContext session) {
+        for (var c : connections.values()) {
+            if (c.session.sessionId().equals(session.sessionId()) && connections.remove(c.authToken, c)) {
+                return c.gameID;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if anyone is connected to the game
+     */
+    public boolean hasConnections(Integer gameID) {
+        for (var c : connections.values()) {
+            if (c.gameID.equals(gameID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the auth token already has an open connection to the given game
+     */
+    public boolean isConnected(String authToken, Integer gameID) {
+        var c = connections.get(authToken);
+        return c != null && c.gameID.equals(gameID) && c.session.session.isOpen();
+    }
+
+    /**
+     * @return how many connections are open
+     */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return how many games have at least one connection
+     */
+    public long activeGameCount() {
+        return connections.values().stream().map(c -> c.gameID).distinct().count();
+    }
+
     public void broadcast(Integer gameID, String excludeAuthToken, ServerMessage message) {
+        var event = new BroadcastEvent();
+        event.begin();
+        var encoded = new EncodedMessage(message);
         var removeList = new ArrayList<Connection>();
+        int recipients = 0;
         for (var c : connections.values()) {
             if (c.session.session.isOpen()) {
                 if (c.gameID.equals(gameID) && !c.authToken.equals(excludeAuthToken)) {
-                    c.session.send(new Gson().toJson(message));
+                    encoded.sendTo(c);
+                    recipients++;
                 }
             } else {
                 removeList.add(c);
             }
         }
+        fanOut.observe(recipients);
+        commit(event, gameID, message.getServerMessageType().name(), recipients);
+
+        for (var c : removeList) {
+            connections.remove(c.authToken);
+        }
+    }
+
+    private static void commit(BroadcastEvent event, Integer gameID, String messageType, int recipients) {
+        if (event.shouldCommit()) {
+            event.gameID = gameID == null ? 0 : gameID;
+            event.messageType = messageType;
+            event.recipients = recipients;
+            event.commit();
+        }
+    }
+
+    /**
+     * Sends the result of a move to everyone in the game. Connections that asked for
+     * move deltas get the small delta, everyone else gets the full game.
+     */
+    void broadcastMove(Integer gameID, EncodedMessage encodedFull, ServerMessage.MoveAppliedMessage delta) {
+        var event = new BroadcastEvent();
+        event.begin();
+        var encodedDelta = new EncodedMessage(delta);
+        var removeList = new ArrayList<Connection>();
+        int recipients = 0;
+        for (var c : connections.values()) {
+            if (!c.session.session.isOpen()) {
+                removeList.add(c);
+            } else if (c.gameID.equals(gameID)) {
+                (c.moveDeltas ? encodedDelta : encodedFull).sendTo(c);
+                recipients++;
+            }
+        }
+        fanOut.observe(recipients);
+        commit(event, gameID, delta.getServerMessageType().name(), recipients);
 
         for (var c : removeList) {
             connections.remove(c.authToken);
@@ -38,7 +140,14 @@ public class ConnectionManager {
     public void send(String authToken, ServerMessage message) {
         var c = connections.get(authToken);
         if (c != null && c.session.session.isOpen()) {
-            c.session.send(new Gson().toJson(message));
+            new EncodedMessage(message).sendTo(c);
+        }
+    }
+
+    void send(String authToken, EncodedMessage message) {
+        var c = connections.get(authToken);
+        if (c != null && c.session.session.isOpen()) {
+            message.sendTo(c);
         }
     }
 }
@@ -0,0 +1,46 @@
+package server.websocket;
+
+import serialization.ChessJson;
+import websocket.BinaryCodec;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message that is serialized at most once per encoding, however many
+ * connections it is sent to.
+ */
+class EncodedMessage {
+    private final ServerMessage message;
+    private String json;
+    private ByteBuffer binary;
+
+    EncodedMessage(ServerMessage message) {
+        this.message = message;
+    }
+
+    /**
+     * Encodes the message in both formats straight away, so the result is a
+     * snapshot that can be shared between threads.
+     */
+    static EncodedMessage eager(ServerMessage message) {
+        var encoded = new EncodedMessage(message);
+        encoded.json = ChessJson.GSON.toJson(message);
+        encoded.binary = BinaryCodec.encode(message);
+        return encoded;
+    }
+
+    void sendTo(Connection c) {
+        if (c.binaryFrames) {
+            if (binary == null) {
+                binary = BinaryCodec.encode(message);
+            }
+            c.session.send(binary.duplicate());
+        } else {
+            if (json == null) {
+                json = ChessJson.GSON.toJson(message);
+            }
+            c.session.send(json);
+        }
+    }
+}
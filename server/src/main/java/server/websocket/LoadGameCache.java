@@ -0,0 +1,95 @@
+package server.websocket;
+
+import dataaccess.StoredGame;
+import datamodel.GameData;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latest state of each game with open connections together with its LOAD_GAME
+ * frame, encoded once and shared by every client that connects until the game
+ * changes.
+ * <p>
+ * Entries carry the store's version of the game, which every write raises, seat
+ * changes included, and only a newer version replaces an entry. A game's entry is
+ * dropped when it finishes, when its last connection goes or when it changes
+ * outside the WebSocket handler; a state read from the store before the entry was
+ * dropped must not bring it back, so callers take a {@link #stamp()} before
+ * touching the store and an empty slot is only filled if nothing was dropped since.
+ */
+public class LoadGameCache {
+
+    record Entry(GameData gameData, int version, EncodedMessage loadGame) {
+        int moveSequence() {
+            return gameData.game().getMoveSequence();
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // Counts every removal; only ever changed inside compute() for the game removed
+    private final AtomicLong removals = new AtomicLong();
+
+    Entry get(int gameID) {
+        return entries.get(gameID);
+    }
+
+    /**
+     * @return a stamp to take before reading or writing the store, for {@link #update}
+     */
+    long stamp() {
+        return removals.get();
+    }
+
+    /**
+     * Stores the given state unless the cache already holds the same or a later version
+     * of the game, or the game may have been dropped since the stamp was taken
+     *
+     * @return the entry now cached for the game, or one for the given state alone if
+     * it was not cached
+     */
+    Entry update(StoredGame stored, long stamp) {
+        GameData gameData = stored.game();
+        Entry[] uncached = new Entry[1];
+        Entry cached = entries.compute(gameData.gameID(), (id, current) -> {
+            if (current != null) {
+                return current.version() >= stored.version() ? current : entry(stored);
+            }
+            if (removals.get() != stamp) {
+                uncached[0] = entry(stored);
+                return null;
+            }
+            return entry(stored);
+        });
+        return cached != null ? cached : uncached[0];
+    }
+
+    private static Entry entry(StoredGame stored) {
+        return new Entry(stored.game(), stored.version(),
+                EncodedMessage.eager(new ServerMessage.LoadGameMessage(stored.game().game())));
+    }
+
+    /**
+     * Drops a game that finished, has nobody connected, or whose players or state
+     * changed outside the WebSocket handler
+     */
+    public void invalidate(int gameID) {
+        entries.compute(gameID, (id, current) -> {
+            removals.incrementAndGet();
+            return null;
+        });
+    }
+
+    public void clear() {
+        removals.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return how many games are cached
+     */
+    public int size() {
+        return entries.size();
+    }
+}
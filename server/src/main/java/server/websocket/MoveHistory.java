@@ -0,0 +1,63 @@
+package server.websocket;
+
+import websocket.messages.ServerMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded ring of the most recent moves of one game, used to replay only the
+ * moves a reconnecting client missed.
+ */
+public class MoveHistory {
+    private final ServerMessage.MoveAppliedMessage[] ring;
+    private int size = 0;
+    private int next = 0;
+
+    public MoveHistory(int capacity) {
+        ring = new ServerMessage.MoveAppliedMessage[capacity];
+    }
+
+    public synchronized void add(ServerMessage.MoveAppliedMessage move) {
+        if (size > 0 && move.getSequence() != newest().getSequence() + 1) {
+            // A gap means the ring no longer matches the stored game, start over
+            size = 0;
+        }
+        ring[next] = move;
+        next = (next + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    /**
+     * Gets the moves made after lastSeenSeq, up to and including currentSeq
+     *
+     * @return the missing moves in order, or null if the ring can't cover them
+     * and the client needs the full game instead
+     */
+    public synchronized List<ServerMessage.MoveAppliedMessage> since(int lastSeenSeq, int currentSeq) {
+        if (lastSeenSeq > currentSeq) {
+            return null;
+        }
+        if (lastSeenSeq == currentSeq) {
+            return List.of();
+        }
+        if (size == 0 || newest().getSequence() != currentSeq) {
+            return null;
+        }
+        int oldestSeq = currentSeq - size + 1;
+        if (lastSeenSeq + 1 < oldestSeq) {
+            return null;
+        }
+        int count = currentSeq - lastSeenSeq;
+        List<ServerMessage.MoveAppliedMessage> missed = new ArrayList<>(count);
+        int index = Math.floorMod(next - count, ring.length);
+        for (int i = 0; i < count; i++) {
+            missed.add(ring[(index + i) % ring.length]);
+        }
+        return missed;
+    }
+
+    private ServerMessage.MoveAppliedMessage newest() {
+        return ring[Math.floorMod(next - 1, ring.length)];
+    }
+}
@@ -1,33 +1,113 @@
 package server.websocket;
 
+import io.javalin.websocket.WsBinaryMessageContext;
 import io.javalin.websocket.WsConfig;
 import io.javalin.websocket.WsContext;
 import io.javalin.websocket.WsMessageContext;
-import com.google.gson.Gson;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import websocket.BinaryCodec;
+import websocket.commands.ConnectCommand;
 import websocket.commands.UserGameCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.messages.ServerMessage;
 import dataaccess.AuthAccess;
+import dataaccess.BadRequestException;
 import dataaccess.GameAccess;
+import dataaccess.StoredGame;
+import service.BotPlayer;
+import service.EngineScheduler;
+import service.GameService;
+import service.LobbyEvents;
 import datamodel.GameData;
+import datamodel.GameSummary;
+import datamodel.LobbyEvent;
 import datamodel.RegisterResponse;
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.PositionCache;
+import chess.engine.SearchLimits;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.time.Duration;
+import serialization.ChessJson;
 
 public class WebSocketHandler {
 
-    private final ConnectionManager connections = new ConnectionManager();
+    private static final int MOVE_HISTORY_SIZE = 64;
+
+    private static final double[] FAN_OUT_BUCKETS = {0, 1, 2, 5, 10, 25, 50, 100, 250, 1000};
+
+    private final ConnectionManager connections;
+    private final Histogram commandLatency;
+    private final ConcurrentHashMap<Integer, MoveHistory> moveHistories = new ConcurrentHashMap<>();
     private final AuthAccess authAccess;
     private final GameAccess gameAccess;
+    private final GameService gameService;
+    private final LoadGameCache gameCache;
+    private final LobbyEvents lobbyEvents;
+    private final PositionCache positionCache;
+    private final BotPlayer bot;
+
+    /**
+     * Plays the bot's moves like anyone else's. A move that fails, because the game
+     * changed while the bot was thinking or the write lost a race, goes back to the
+     * bot, which reads the game again and tries again if it is still its turn.
+     */
+    private final BotPlayer.MoveListener botMoves = new BotPlayer.MoveListener() {
+        @Override
+        public void moveChosen(int gameID, int moveSequence, ChessMove move) throws Exception {
+            playMove(gameID, BotPlayer.USERNAME, null, move, moveSequence);
+        }
+
+        @Override
+        public void gaveUp(int gameID, String reason) {
+            connections.broadcast(gameID, null, new ServerMessage.ErrorMessage(
+                    "Error: The bot could not make its move (" + reason + "), reconnect to ask it again"));
+        }
+    };
 
     public WebSocketHandler(AuthAccess authAccess, GameAccess gameAccess) {
+        this(authAccess, gameAccess, new GameService(gameAccess, authAccess), new LoadGameCache(),
+                new LobbyEvents(), new MetricsRegistry(), new PositionCache(1024),
+                new BotPlayer(gameAccess, SearchLimits.time(Duration.ofSeconds(1)), new EngineScheduler(1, 2, 8)));
+    }
+
+    /**
+     * Game writes go through the service so they are retried on conflict like any
+     * other; {@code gameAccess} should be the same instance the service writes to.
+     * Moves are checked against {@code positionCache}, which may be shared with anything
+     * else that needs legal moves. The {@code bot} is asked for a move whenever it is
+     * seated or its turn comes, and its moves are played here like anyone else's.
+     */
+    public WebSocketHandler(AuthAccess authAccess, GameAccess gameAccess, GameService gameService,
+                            LoadGameCache gameCache, LobbyEvents lobbyEvents, MetricsRegistry metrics,
+                            PositionCache positionCache, BotPlayer bot) {
+        this.connections = new ConnectionManager(metrics.histogram("chess_websocket_broadcast_recipients",
+                "Connections reached by each WebSocket broadcast", FAN_OUT_BUCKETS));
+        this.commandLatency = metrics.histogram("chess_websocket_command_duration_seconds",
+                "Time to handle a WebSocket command, by command type", MetricsRegistry.LATENCY_BUCKETS, "command");
+        metrics.gauge("chess_websocket_connections", "Open WebSocket connections", connections::connectionCount);
+        metrics.gauge("chess_active_games", "Games with at least one open WebSocket connection",
+                connections::activeGameCount);
         this.authAccess = authAccess;
         this.gameAccess = gameAccess;
+        this.gameService = gameService;
+        this.gameCache = gameCache;
+        this.lobbyEvents = lobbyEvents;
+        this.positionCache = positionCache;
+        this.bot = bot;
+        // Covers the bot being seated where it moves first, with nobody to make a move it could answer
+        lobbyEvents.subscribe(event -> {
+            if (event.type() == LobbyEvent.Type.SEAT_TAKEN && (BotPlayer.isBot(event.game().whiteUsername())
+                    || BotPlayer.isBot(event.game().blackUsername()))) {
+                bot.requestMove(event.game(), botMoves);
+            }
+        });
     }
 
     public void register(WsConfig ws) {
@@ -35,34 +115,109 @@ public class WebSocketHandler {
             ctx.session.setIdleTimeout(Duration.ofMinutes(20));
         });
         ws.onMessage(this::onMessage);
+        ws.onBinaryMessage(this::onBinaryMessage);
+        ws.onClose(ctx -> {
+            Integer gameID = connections.removeSession(ctx);
+            if (gameID != null) {
+                forgetIfUnwatched(gameID);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached state of a game nobody is connected to any more
+     */
+    private void forgetIfUnwatched(int gameID) {
+        if (!connections.hasConnections(gameID)) {
+            gameCache.invalidate(gameID);
+        }
     }
 
     private void onMessage(WsMessageContext ctx) {
         try {
-            UserGameCommand command = new Gson().fromJson(ctx.message(), UserGameCommand.class);
+            UserGameCommand command = ChessJson.GSON.fromJson(ctx.message(), UserGameCommand.class);
             switch (command.getCommandType()) {
-                case CONNECT -> connect(command.getAuthToken(), command.getGameID(), ctx);
-                case MAKE_MOVE -> makeMove(ctx.message(), ctx);
+                case CONNECT -> command = ChessJson.GSON.fromJson(ctx.message(), ConnectCommand.class);
+                case MAKE_MOVE -> command = ChessJson.GSON.fromJson(ctx.message(), MakeMoveCommand.class);
+                default -> {
+                }
+            }
+            handleCommand(command, ctx);
+        } catch (Exception e) {
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    private void onBinaryMessage(WsBinaryMessageContext ctx) {
+        try {
+            handleCommand(BinaryCodec.decodeCommand(ctx.data(), ctx.offset(), ctx.length()), ctx);
+        } catch (Exception e) {
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    private void handleCommand(UserGameCommand command, WsContext ctx) throws IOException {
+        var event = new CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            switch (command.getCommandType()) {
+                case CONNECT -> connect((ConnectCommand) command, ctx);
+                case MAKE_MOVE -> makeMove((MakeMoveCommand) command, ctx);
                 case LEAVE -> leave(command.getAuthToken(), command.getGameID(), ctx);
                 case RESIGN -> resign(command.getAuthToken(), command.getGameID(), ctx);
             }
-        } catch (Exception e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: " + e.getMessage())));
+        } finally {
+            commandLatency.observeSince(start, command.getCommandType().name());
+            if (event.shouldCommit()) {
+                event.command = command.getCommandType().name();
+                event.gameID = command.getGameID() == null ? 0 : command.getGameID();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Replies in the same encoding the client used for its command
+     */
+    private void reply(WsContext ctx, ServerMessage message) {
+        if (ctx instanceof WsBinaryMessageContext) {
+            ctx.send(BinaryCodec.encode(message));
+        } else {
+            ctx.send(ChessJson.GSON.toJson(message));
         }
     }
 
-    private void connect(String authToken, Integer gameID, WsContext ctx) throws IOException {
+    private void connect(ConnectCommand command, WsContext ctx) throws IOException {
+        String authToken = command.getAuthToken();
+        Integer gameID = command.getGameID();
         try {
             RegisterResponse authData = authAccess.getAuth(authToken);
-            GameData gameData = gameAccess.getGame(gameID);
 
-            if (gameData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Game not found")));
+            // Observers joining a busy game are served from the cache without touching the database
+            LoadGameCache.Entry cached = gameCache.get(gameID);
+            if (cached == null) {
+                long stamp = gameCache.stamp();
+                StoredGame loaded;
+                try {
+                    loaded = gameAccess.getStoredGame(gameID);
+                } catch (BadRequestException e) {
+                    reply(ctx, new ServerMessage.ErrorMessage("Error: Game not found"));
+                    return;
+                }
+                cached = gameCache.update(loaded, stamp);
+            }
+            GameData gameData = cached.gameData();
+
+            // A client that is already connected is resynchronising after a missed delta,
+            // one that sends lastSeenSeq is resuming after its socket dropped
+            boolean resync = connections.isConnected(authToken, gameID) || command.getLastSeenSeq() != null;
+            connections.add(authToken, gameID, ctx, command.wantsMoveDeltas(), command.wantsBinaryFrames());
+            if (resync) {
+                sendMissedMoves(command, cached);
                 return;
             }
 
-            connections.add(authToken, gameID, ctx);
-
             String message;
             if (Objects.equals(authData.username(), gameData.whiteUsername())) {
                 message = String.format("%s joined the game as WHITE", authData.username());
@@ -72,87 +227,151 @@ public class WebSocketHandler {
                 message = String.format("%s joined the game as an observer", authData.username());
             }
 
-            ctx.send(new Gson().toJson(new ServerMessage.LoadGameMessage(gameData.game())));
+            connections.send(authToken, cached.loadGame());
             connections.broadcast(gameID, authToken, new ServerMessage.NotificationMessage(message));
+            // The bot may have been left waiting by a restart
+            askBot(gameData);
 
         } catch (Exception e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: " + e.getMessage())));
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Replays only the moves a resuming client missed when the move history still
+     * holds them, otherwise sends the full game.
+     */
+    private void sendMissedMoves(ConnectCommand command, LoadGameCache.Entry cached) {
+        List<ServerMessage.MoveAppliedMessage> missed = null;
+        Integer lastSeenSeq = command.getLastSeenSeq();
+        if (command.wantsMoveDeltas() && lastSeenSeq != null) {
+            if (lastSeenSeq == cached.moveSequence()) {
+                missed = List.of();
+            } else {
+                MoveHistory history = moveHistories.get(command.getGameID());
+                if (history != null) {
+                    missed = history.since(lastSeenSeq, cached.moveSequence());
+                }
+            }
+        }
+
+        if (missed == null) {
+            connections.send(command.getAuthToken(), cached.loadGame());
+            return;
+        }
+        for (ServerMessage.MoveAppliedMessage move : missed) {
+            connections.send(command.getAuthToken(), move);
         }
     }
 
-    private void makeMove(String message, WsContext ctx) throws IOException {
+    private void makeMove(MakeMoveCommand command, WsContext ctx) throws IOException {
         try {
-            MakeMoveCommand command = new Gson().fromJson(message, MakeMoveCommand.class);
             String authToken = command.getAuthToken();
             Integer gameID = command.getGameID();
             ChessMove move = command.getMove();
 
             RegisterResponse authData = authAccess.getAuth(authToken);
             if (authData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Invalid auth token")));
+                reply(ctx, new ServerMessage.ErrorMessage("Error: Invalid auth token"));
                 return;
             }
 
-            GameData gameData = gameAccess.getGame(gameID);
-            if (gameData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Game not found")));
-                return;
-            }
+            playMove(gameID, authData.username(), authToken, move, -1);
 
-            ChessGame game = gameData.game();
+        } catch (chess.InvalidMoveException e) {
+            reply(ctx, new ServerMessage.ErrorMessage("Error: Invalid move"));
+        } catch (Exception e) {
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Plays a move for whoever holds the seat of the side to move and tells everyone
+     * watching the game, then asks the bot to reply if it is the bot's turn
+     *
+     * @param authToken    the mover's, who is not sent the notification describing the move,
+     *                     or null to send it to everyone
+     * @param moveSequence the move sequence the move was chosen at, or -1 to play it whenever it is legal
+     */
+    private void playMove(int gameID, String username, String authToken, ChessMove move, int moveSequence)
+            throws Exception {
+        ChessGame.GameStatus[] result = new ChessGame.GameStatus[1];
+        long stamp = gameCache.stamp();
+        StoredGame written = gameService.updateStoredGame(gameID, current -> {
+            ChessGame game = current.game();
 
             if (game.isGameOver()) {
                 throw new Exception("Game is over");
             }
+            if (moveSequence >= 0 && game.getMoveSequence() != moveSequence) {
+                throw new Exception("The game has moved on");
+            }
 
             if (game.getTeamTurn() == ChessGame.TeamColor.WHITE) {
-                if (!Objects.equals(authData.username(), gameData.whiteUsername())) {
+                if (!Objects.equals(username, current.whiteUsername())) {
                     throw new Exception("Not your turn or not your piece");
                 }
             } else {
-                if (!Objects.equals(authData.username(), gameData.blackUsername())) {
+                if (!Objects.equals(username, current.blackUsername())) {
                     throw new Exception("Not your turn or not your piece");
                 }
             }
 
-            game.makeMove(move);
-            gameAccess.updateGame(gameData);
-
-            connections.send(authToken, new ServerMessage.LoadGameMessage(game));
-            connections.broadcast(gameID, authToken, new ServerMessage.LoadGameMessage(game));
-
-            String moveMessage = String.format("%s made a move: %s", authData.username(), move.toString());
-            connections.broadcast(gameID, authToken, new ServerMessage.NotificationMessage(moveMessage));
-
-            String whiteUser = gameData.whiteUsername() != null ? gameData.whiteUsername() : "White";
-            String blackUser = gameData.blackUsername() != null ? gameData.blackUsername() : "Black";
-
-            if (game.isInCheckmate(ChessGame.TeamColor.WHITE)) {
-                connections.broadcast(gameID, null,
-                        new ServerMessage.NotificationMessage(String.format("%s is in CHECKMATE", whiteUser)));
-                game.setGameOver(true);
-                gameAccess.updateGame(gameData);
-            } else if (game.isInCheckmate(ChessGame.TeamColor.BLACK)) {
-                connections.broadcast(gameID, null,
-                        new ServerMessage.NotificationMessage(String.format("%s is in CHECKMATE", blackUser)));
+            result[0] = positionCache.makeMove(game, move);
+            if (result[0].endsGame()) {
                 game.setGameOver(true);
-                gameAccess.updateGame(gameData);
-            } else if (game.isInCheck(ChessGame.TeamColor.WHITE)) {
-                connections.broadcast(gameID, null,
-                        new ServerMessage.NotificationMessage(String.format("%s is in CHECK", whiteUser)));
-            } else if (game.isInCheck(ChessGame.TeamColor.BLACK)) {
-                connections.broadcast(gameID, null,
-                        new ServerMessage.NotificationMessage(String.format("%s is in CHECK", blackUser)));
-            } else if (game.isInStalemate(ChessGame.TeamColor.WHITE) || game.isInStalemate(ChessGame.TeamColor.BLACK)) {
-                connections.broadcast(gameID, null, new ServerMessage.NotificationMessage("Stalemate!"));
-                game.setGameOver(true);
-                gameAccess.updateGame(gameData);
             }
+            return current;
+        });
+        GameData gameData = written.game();
+        ChessGame game = gameData.game();
+        ChessGame.GameStatus status = result[0];
+        LoadGameCache.Entry cached = gameCache.update(written, stamp);
+
+        var moveApplied = new ServerMessage.MoveAppliedMessage(move, game.getMoveSequence(), status,
+                game.getPositionHash());
+        if (game.isGameOver()) {
+            moveHistories.remove(gameID);
+            lobbyEvents.publish(LobbyEvent.Type.FINISHED, gameData);
+        } else {
+            moveHistories.computeIfAbsent(gameID, id -> new MoveHistory(MOVE_HISTORY_SIZE)).add(moveApplied);
+        }
+        connections.broadcastMove(gameID, cached.loadGame(), moveApplied);
+        if (game.isGameOver()) {
+            // Whoever connects to a finished game later reads it from the store
+            gameCache.invalidate(gameID);
+        }
 
-        } catch (chess.InvalidMoveException e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Invalid move")));
-        } catch (Exception e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: " + e.getMessage())));
+        String moveMessage = String.format("%s made a move: %s", username, move.toString());
+        connections.broadcast(gameID, authToken, new ServerMessage.NotificationMessage(moveMessage));
+
+        String whiteUser = gameData.whiteUsername() != null ? gameData.whiteUsername() : "White";
+        String blackUser = gameData.blackUsername() != null ? gameData.blackUsername() : "Black";
+        String sideToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? whiteUser : blackUser;
+
+        switch (status) {
+            case CHECKMATE -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage(String.format("%s is in CHECKMATE", sideToMove)));
+            case CHECK -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage(String.format("%s is in CHECK", sideToMove)));
+            case STALEMATE -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage("Stalemate!"));
+            case DRAW_BY_REPETITION -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage("Draw by threefold repetition"));
+            case DRAW_BY_FIFTY_MOVES -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage("Draw by the fifty-move rule"));
+            case DRAW_BY_INSUFFICIENT_MATERIAL -> connections.broadcast(gameID, null,
+                    new ServerMessage.NotificationMessage("Draw, neither side can checkmate"));
+            case ACTIVE -> {
+            }
+        }
+
+        askBot(gameData);
+    }
+
+    private void askBot(GameData gameData) {
+        if (BotPlayer.isBotsTurn(gameData)) {
+            bot.requestMove(GameSummary.of(gameData), botMoves);
         }
     }
 
@@ -160,33 +379,35 @@ public class WebSocketHandler {
         try {
             RegisterResponse authData = authAccess.getAuth(authToken);
             if (authData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Invalid auth token")));
+                reply(ctx, new ServerMessage.ErrorMessage("Error: Invalid auth token"));
                 return;
             }
 
-            GameData gameData = gameAccess.getGame(gameID);
-            if (gameData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Game not found")));
-                return;
-            }
+            long stamp = gameCache.stamp();
+            StoredGame updatedGame = gameService.updateStoredGame(gameID, gameData -> {
+                if (Objects.equals(authData.username(), gameData.whiteUsername())) {
+                    return new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(),
+                            gameData.game());
+                } else if (Objects.equals(authData.username(), gameData.blackUsername())) {
+                    return new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(),
+                            gameData.game());
+                }
+                return null; // Observers hold no seat
+            });
 
             connections.remove(authToken);
 
             String message = String.format("%s left the game", authData.username());
             connections.broadcast(gameID, authToken, new ServerMessage.NotificationMessage(message));
 
-            if (Objects.equals(authData.username(), gameData.whiteUsername())) {
-                GameData updatedGame = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(),
-                        gameData.game());
-                gameAccess.updateGame(updatedGame);
-            } else if (Objects.equals(authData.username(), gameData.blackUsername())) {
-                GameData updatedGame = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(),
-                        gameData.game());
-                gameAccess.updateGame(updatedGame);
+            if (updatedGame != null) {
+                gameCache.update(updatedGame, stamp);
+                lobbyEvents.publish(LobbyEvent.Type.SEAT_FREED, updatedGame.game());
             }
+            forgetIfUnwatched(gameID);
 
         } catch (Exception e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: " + e.getMessage())));
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
         }
     }
 
@@ -194,35 +415,32 @@ public class WebSocketHandler {
         try {
             RegisterResponse authData = authAccess.getAuth(authToken);
             if (authData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Invalid auth token")));
+                reply(ctx, new ServerMessage.ErrorMessage("Error: Invalid auth token"));
                 return;
             }
 
-            GameData gameData = gameAccess.getGame(gameID);
-            if (gameData == null) {
-                ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: Game not found")));
-                return;
-            }
-
-            ChessGame game = gameData.game();
-
-            if (game.isGameOver()) {
-                throw new Exception("Game is already over");
-            }
+            GameData gameData = gameService.updateGame(gameID, current -> {
+                if (current.game().isGameOver()) {
+                    throw new Exception("Game is already over");
+                }
 
-            if (!Objects.equals(authData.username(), gameData.whiteUsername())
-                    && !Objects.equals(authData.username(), gameData.blackUsername())) {
-                throw new Exception("Observers cannot resign");
-            }
+                if (!Objects.equals(authData.username(), current.whiteUsername())
+                        && !Objects.equals(authData.username(), current.blackUsername())) {
+                    throw new Exception("Observers cannot resign");
+                }
 
-            game.setGameOver(true);
-            gameAccess.updateGame(gameData);
+                current.game().setGameOver(true);
+                return current;
+            });
+            gameCache.invalidate(gameID);
+            moveHistories.remove(gameID);
+            lobbyEvents.publish(LobbyEvent.Type.FINISHED, gameData);
 
             String message = String.format("%s resigned", authData.username());
             connections.broadcast(gameID, null, new ServerMessage.NotificationMessage(message));
 
         } catch (Exception e) {
-            ctx.send(new Gson().toJson(new ServerMessage.ErrorMessage("Error: " + e.getMessage())));
+            reply(ctx, new ServerMessage.ErrorMessage("Error: " + e.getMessage()));
         }
     }
 }
@@ -0,0 +1,251 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.Searcher;
+import dataaccess.BadRequestException;
+import dataaccess.DataAccessException;
+import dataaccess.GameAccess;
+import dataaccess.ServiceUnavailableException;
+import datamodel.GameData;
+import datamodel.GameSummary;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays every seat held by {@link #USERNAME}, choosing moves with the engine.
+ * <p>
+ * Searches run on the {@link EngineScheduler} ahead of any other engine work, each
+ * within the same limits, and count against the quota of the user the bot is playing,
+ * so however many bot games one user starts they take no more than their share of
+ * the engine's threads.
+ * <p>
+ * A move that could not be chosen or played, because the engine was busy, the game
+ * could not be read or the write lost a race, is asked for again after a growing
+ * delay, reading the game afresh each time. After {@link #MAX_ATTEMPTS} the bot
+ * gives up and says so, rather than leaving the game waiting on it in silence.
+ */
+public class BotPlayer implements AutoCloseable {
+
+    /** Seated in place of a user; nobody can register it */
+    public static final String USERNAME = "[bot]";
+
+    /** Tries at choosing and playing one move before giving up */
+    public static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * Receives the bot's move on one of the engine's threads, to be played like any other
+     */
+    @FunctionalInterface
+    public interface MoveListener {
+        /**
+         * @param moveSequence the game's move sequence when the move was chosen, so a
+         *                     move for a position the game has since left is not played
+         * @throws Exception if the move could not be played, so the bot tries again
+         */
+        void moveChosen(int gameID, int moveSequence, ChessMove move) throws Exception;
+
+        /**
+         * Called when the bot has stopped trying to move in the game
+         *
+         * @param reason why the last attempt failed
+         */
+        default void gaveUp(int gameID, String reason) {
+        }
+    }
+
+    private record Choice(int moveSequence, ChessMove move) {
+    }
+
+    private final GameAccess gameAccess;
+    private final SearchLimits limits;
+    private final EngineScheduler engine;
+    private final Duration firstRetryDelay;
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "chess-bot-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Games with a move being chosen, retries included, so asking again meanwhile adds nothing
+    private final Set<Integer> thinking = ConcurrentHashMap.newKeySet();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public BotPlayer(GameAccess gameAccess, SearchLimits limits, EngineScheduler engine) {
+        this(gameAccess, limits, engine, Duration.ofMillis(250));
+    }
+
+    /**
+     * @param firstRetryDelay how long to wait before the first retry, doubling for each after it
+     */
+    public BotPlayer(GameAccess gameAccess, SearchLimits limits, EngineScheduler engine, Duration firstRetryDelay) {
+        this.gameAccess = gameAccess;
+        this.limits = limits;
+        this.engine = engine;
+        this.firstRetryDelay = firstRetryDelay;
+    }
+
+    public static boolean isBot(String username) {
+        return USERNAME.equals(username);
+    }
+
+    /**
+     * @return whether the game is waiting for the bot to move
+     */
+    public static boolean isBotsTurn(GameData gameData) {
+        ChessGame game = gameData.game();
+        if (game.isGameOver()) {
+            return false;
+        }
+        return isBot(game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                ? gameData.whiteUsername() : gameData.blackUsername());
+    }
+
+    /**
+     * Starts choosing the bot's move if it is the bot's turn in the game, which is
+     * read afresh once the engine gets to it. Returns straight away.
+     */
+    public void requestMove(GameSummary game, MoveListener listener) {
+        if (thinking.add(game.gameID())) {
+            attempt(game, listener, 1);
+        }
+    }
+
+    private void attempt(GameSummary game, MoveListener listener, int attempt) {
+        int gameID = game.gameID();
+        CompletableFuture<Choice> choosing;
+        try {
+            choosing = engine.submit(EngineScheduler.Priority.BOT_MOVE, opponent(game), gameID,
+                    searcher -> think(gameID, searcher));
+        } catch (ServiceUnavailableException e) {
+            retry(game, listener, attempt, e);
+            return;
+        }
+        choosing.whenComplete((choice, failure) -> {
+            if (failure instanceof CancellationException) {
+                // The game ended
+                thinking.remove(gameID);
+                return;
+            }
+            if (failure != null) {
+                retry(game, listener, attempt, failure);
+                return;
+            }
+            // Done before the move is played, so a reply to it can be asked for at once
+            thinking.remove(gameID);
+            if (choice == null) {
+                return;
+            }
+            moves.increment();
+            try {
+                listener.moveChosen(gameID, choice.moveSequence(), choice.move());
+            } catch (Exception e) {
+                // Unless the move was asked for again meanwhile, which will play it
+                if (thinking.add(gameID)) {
+                    retry(game, listener, attempt, e);
+                }
+            }
+        });
+    }
+
+    private void retry(GameSummary game, MoveListener listener, int attempt, Throwable failure) {
+        int gameID = game.gameID();
+        if (attempt >= MAX_ATTEMPTS) {
+            System.err.println("Bot gave up moving in game " + gameID + ": " + failure.getMessage());
+            abandoned.increment();
+            thinking.remove(gameID);
+            listener.gaveUp(gameID, failure.getMessage());
+            return;
+        }
+        System.err.println("Bot could not move in game " + gameID + ", trying again: " + failure.getMessage());
+        retried.increment();
+        try {
+            retries.schedule(() -> attempt(game, listener, attempt + 1),
+                    firstRetryDelay.toMillis() << (attempt - 1), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            thinking.remove(gameID);
+        }
+    }
+
+    /**
+     * @return the user playing the bot, or the bot if it is playing itself or nobody
+     */
+    private static String opponent(GameSummary game) {
+        String opponent = isBot(game.whiteUsername()) ? game.blackUsername() : game.whiteUsername();
+        return opponent == null ? USERNAME : opponent;
+    }
+
+    /**
+     * @return the move to play, or null if there is none to play
+     * @throws DataAccessException if the game could not be read, to be tried again
+     */
+    private Choice think(int gameID, Searcher searcher) throws DataAccessException {
+        try {
+            GameData gameData = gameAccess.getGame(gameID);
+            if (gameData != null && isBotsTurn(gameData)) {
+                SearchResult result = searcher.search(gameData.game(), limits);
+                nodes.add(result.nodes());
+                if (result.bestMove() != null) {
+                    return new Choice(gameData.game().getMoveSequence(), result.bestMove());
+                }
+            }
+        } catch (BadRequestException e) {
+            // The game is gone
+        }
+        return null;
+    }
+
+    /**
+     * @return how many moves the bot has chosen
+     */
+    public long moves() {
+        return moves.sum();
+    }
+
+    /**
+     * @return how many positions the bot has searched
+     */
+    public long nodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * @return how many times a move that could not be chosen or played was tried again
+     */
+    public long retries() {
+        return retried.sum();
+    }
+
+    /**
+     * @return how many times the bot gave up on moving in a game
+     */
+    public long abandoned() {
+        return abandoned.sum();
+    }
+
+    /**
+     * @return how many games are waiting for a bot move
+     */
+    public int gamesThinking() {
+        return thinking.size();
+    }
+
+    @Override
+    public void close() {
+        retries.shutdownNow();
+    }
+}
@@ -0,0 +1,327 @@
+package service;
+
+import chess.engine.Searcher;
+import dataaccess.ServiceUnavailableException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs all engine work, bot moves and anything else that searches, on a fixed number
+ * of low-priority threads of its own. However much is asked for, the engine never
+ * uses more cores than it has threads and never holds up a thread serving requests.
+ * <p>
+ * Waiting jobs run in order of {@link Priority}, then in the order they were
+ * submitted. Each user may have only so many jobs queued or running at once; the
+ * rest are deferred behind them, so one user asking for a lot cannot crowd out
+ * everyone else, and past a backlog are refused. Jobs for a game can be cancelled,
+ * which interrupts a search already under way.
+ */
+public class EngineScheduler implements AutoCloseable {
+
+    /**
+     * Most urgent first
+     */
+    public enum Priority {
+        /** A bot's move, with a player waiting on it */
+        BOT_MOVE,
+        /** A suggestion a player asked for */
+        HINT,
+        /** Analysis nobody is waiting on */
+        ANALYSIS
+    }
+
+    /**
+     * Work for one of the engine's threads, given that thread's searcher. Searches
+     * are interrupted when the job is cancelled.
+     */
+    @FunctionalInterface
+    public interface EngineTask<T> {
+        T run(Searcher searcher) throws Exception;
+    }
+
+    private static final Comparator<Job<?>> ORDER = Comparator
+            .comparing((Job<?> job) -> job.priority)
+            .thenComparingLong(job -> job.sequence);
+
+    private static final class Job<T> {
+        final Priority priority;
+        long sequence;
+        final String owner;
+        final int gameID;
+        final EngineTask<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Guarded by the scheduler
+        Thread runner;
+        boolean cancelled;
+
+        Job(Priority priority, long sequence, String owner, int gameID, EngineTask<T> task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.owner = owner;
+            this.gameID = gameID;
+            this.task = task;
+        }
+    }
+
+    /**
+     * One user's jobs: how many are queued or running, and those deferred behind them
+     */
+    private static final class Account {
+        int active;
+        final PriorityQueue<Job<?>> deferred = new PriorityQueue<>(ORDER);
+    }
+
+    private final int userQuota;
+    private final int userBacklog;
+    private final List<Thread> threads = new ArrayList<>();
+    // All guarded by this
+    private final PriorityQueue<Job<?>> ready = new PriorityQueue<>(ORDER);
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final Set<Job<?>> running = new HashSet<>();
+    private final int[] waiting = new int[Priority.values().length];
+    private long nextSequence;
+    private boolean closed;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param threadCount how many jobs run at once, each taking a core while it searches
+     * @param userQuota   how many of one user's jobs may be queued or running at once
+     * @param userBacklog how many more of one user's jobs may wait for those to finish
+     */
+    public EngineScheduler(int threadCount, int userQuota, int userBacklog) {
+        if (threadCount < 1 || userQuota < 1 || userBacklog < 0) {
+            throw new IllegalArgumentException("Engine needs a thread and a quota of at least one job");
+        }
+        this.userQuota = userQuota;
+        this.userBacklog = userBacklog;
+        for (int i = 1; i <= threadCount; i++) {
+            Thread thread = new Thread(this::work, "chess-engine-" + i);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues a job, returning straight away. The future completes on the engine's
+     * thread with what the task returned, or is cancelled with the job.
+     *
+     * @param owner  the user the job is for, whose quota it counts against
+     * @param gameID the game the job is about, by which it can be cancelled
+     * @throws ServiceUnavailableException if the user has too many jobs waiting already
+     */
+    public synchronized <T> CompletableFuture<T> submit(Priority priority, String owner, int gameID,
+                                                         EngineTask<T> task) throws ServiceUnavailableException {
+        if (closed) {
+            throw new ServiceUnavailableException("The engine is shutting down");
+        }
+        Account account = accounts.computeIfAbsent(owner, name -> new Account());
+        Job<T> job = new Job<>(priority, nextSequence++, owner, gameID, task);
+        if (account.active < userQuota) {
+            account.active++;
+            ready.add(job);
+            notify();
+        } else if (account.deferred.size() < userBacklog) {
+            account.deferred.add(job);
+        } else {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many engine requests in progress, try again shortly");
+        }
+        waiting[priority.ordinal()]++;
+        return job.future;
+    }
+
+    /**
+     * Cancels every job for the game, dropping those waiting and interrupting those running
+     *
+     * @return how many jobs were cancelled
+     */
+    public int cancelGame(int gameID) {
+        List<Job<?>> dropped = new ArrayList<>();
+        int interrupted = 0;
+        synchronized (this) {
+            // Deferred jobs first, so freeing quota below cannot promote one for this game
+            for (Account account : accounts.values()) {
+                account.deferred.removeIf(job -> job.gameID == gameID && dropped.add(job));
+            }
+            int deferredCount = dropped.size();
+            ready.removeIf(job -> job.gameID == gameID && dropped.add(job));
+            for (Job<?> job : dropped.subList(deferredCount, dropped.size())) {
+                release(job.owner);
+            }
+            for (Job<?> job : dropped) {
+                waiting[job.priority.ordinal()]--;
+            }
+            for (Job<?> job : running) {
+                if (job.gameID == gameID && !job.cancelled) {
+                    job.cancelled = true;
+                    job.runner.interrupt();
+                    interrupted++;
+                }
+            }
+            removeIdleAccounts();
+        }
+        // Outside the lock, since cancelling runs whatever is waiting on the future
+        for (Job<?> job : dropped) {
+            job.future.cancel(false);
+        }
+        cancelled.add(dropped.size() + interrupted);
+        return dropped.size() + interrupted;
+    }
+
+    private void work() {
+        // Each thread keeps its searcher, and with it its transposition table, from job to job
+        Searcher searcher = new Searcher();
+        while (true) {
+            Job<?> job;
+            synchronized (this) {
+                while (ready.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only closing interrupts a thread with nothing to run
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                job = ready.poll();
+                waiting[job.priority.ordinal()]--;
+                job.runner = Thread.currentThread();
+                running.add(job);
+            }
+            run(job, searcher);
+        }
+    }
+
+    private <T> void run(Job<T> job, Searcher searcher) {
+        T result = null;
+        Exception failure = null;
+        try {
+            result = job.task.run(searcher);
+        } catch (Exception e) {
+            failure = e;
+        }
+        boolean wasCancelled;
+        synchronized (this) {
+            running.remove(job);
+            job.runner = null;
+            wasCancelled = job.cancelled;
+            release(job.owner);
+            removeIdleAccounts();
+            // A cancellation may have come after the task returned; it must not reach the next job
+            Thread.interrupted();
+        }
+        // Completed outside the lock, on this thread, so a bot's move is played here
+        if (wasCancelled) {
+            job.future.cancel(false);
+        } else if (failure != null) {
+            job.future.completeExceptionally(failure);
+        } else {
+            completed.increment();
+            job.future.complete(result);
+        }
+    }
+
+    /**
+     * Frees one of the user's places in the queue, for their next deferred job if they have one
+     */
+    private void release(String owner) {
+        Account account = accounts.get(owner);
+        Job<?> next = account.deferred.poll();
+        if (next != null) {
+            // Behind everyone else's jobs that arrived while it was deferred
+            next.sequence = nextSequence++;
+            ready.add(next);
+            notify();
+        } else {
+            account.active--;
+        }
+    }
+
+    private void removeIdleAccounts() {
+        accounts.values().removeIf(account -> account.active == 0 && account.deferred.isEmpty());
+    }
+
+    /**
+     * @return how many jobs of the priority are waiting to run, deferred ones included
+     */
+    public synchronized int queued(Priority priority) {
+        return waiting[priority.ordinal()];
+    }
+
+    /**
+     * @return how many jobs are waiting for the same user's earlier jobs to finish
+     */
+    public synchronized int deferred() {
+        int count = 0;
+        for (Account account : accounts.values()) {
+            count += account.deferred.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return how many jobs are running now
+     */
+    public synchronized int running() {
+        return running.size();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    public long cancelled() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return how many jobs were refused because their user had too many waiting
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Cancels every job and stops the threads
+     */
+    @Override
+    public void close() {
+        List<Job<?>> dropped = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            dropped.addAll(ready);
+            ready.clear();
+            for (Account account : accounts.values()) {
+                dropped.addAll(account.deferred);
+                account.deferred.clear();
+            }
+            Arrays.fill(waiting, 0);
+            for (Job<?> job : running) {
+                job.cancelled = true;
+            }
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            notifyAll();
+        }
+        for (Job<?> job : dropped) {
+            job.future.cancel(false);
+        }
+    }
+}
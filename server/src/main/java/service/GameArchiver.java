@@ -0,0 +1,62 @@
+package service;
+
+import dataaccess.DataAccessException;
+import dataaccess.GameAccess;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves finished games into the store's archive, in batches, so the
+ * storage that active games are read from only grows with the games in play.
+ */
+public class GameArchiver implements AutoCloseable {
+
+    private final GameAccess gameAccess;
+    private final Duration interval;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "game-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GameArchiver(GameAccess gameAccess, Duration interval, int batchSize) {
+        this.gameAccess = gameAccess;
+        this.interval = interval;
+        this.batchSize = batchSize;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveAll();
+            } catch (DataAccessException e) {
+                // Try again next time; the games are still readable where they are
+                System.err.println("Failed to archive finished games: " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archives batches until a batch comes back short
+     *
+     * @return how many games were archived
+     */
+    public int archiveAll() throws DataAccessException {
+        int total = 0;
+        int archived;
+        do {
+            archived = gameAccess.archiveFinishedGames(batchSize);
+            total += archived;
+        } while (archived == batchSize);
+        return total;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
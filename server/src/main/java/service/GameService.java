@@ -4,33 +4,73 @@ import dataaccess.*;
 import datamodel.*;
 
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
 public class GameService {
+    /** How often a write that keeps losing to other writers is retried before giving up */
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+
     GameAccess gameAccess;
     AuthAccess authAccess;
+    VersionedGameAccess versions;
+    LobbyEvents lobbyEvents;
+    private final AtomicLong updateConflicts = new AtomicLong();
+    private final AtomicLong updatesAbandoned = new AtomicLong();
+
+    /**
+     * A change to one game, given a copy of the game as currently stored. It may be
+     * applied more than once if other writers get in first, so it should only
+     * compute the new game and leave side effects to the caller.
+     */
+    @FunctionalInterface
+    public interface GameUpdate<E extends Exception> {
+        /**
+         * @return the game to store, or null to leave the game unchanged
+         */
+        GameData apply(GameData current) throws E;
+    }
 
     public GameService(GameAccess gameAccess, AuthAccess authAccess) {
-        this.gameAccess = gameAccess;
+        this(gameAccess, authAccess, new LobbyEvents());
+    }
+
+    /**
+     * Wraps the game DAO in a {@link VersionedGameAccess} unless it already is one. Pass
+     * the same wrapped instance to anything else that writes games so every change counts.
+     */
+    public GameService(GameAccess gameAccess, AuthAccess authAccess, LobbyEvents lobbyEvents) {
+        this.versions = gameAccess instanceof VersionedGameAccess versioned
+                ? versioned
+                : new VersionedGameAccess(gameAccess);
+        this.gameAccess = versions;
         this.authAccess = authAccess;
+        this.lobbyEvents = lobbyEvents;
     }
 
-    public HashSet<GameData> listGames(String authToken) throws UnauthorizedException, DataAccessException {
+    /**
+     * @return a number that changes whenever anything shown in the lobby changes
+     */
+    public long lobbyVersion(String authToken) throws UnauthorizedException, DataAccessException {
         try {
             authAccess.getAuth(authToken);
         } catch (DataAccessException e) {
-            // If it's a SQLException, it's a database connection issue
             if (e.getCause() instanceof SQLException) {
                 throw e;
             }
             throw new UnauthorizedException();
         }
-        return gameAccess.listGames();
+        return versions.lobbyVersion();
     }
 
-    public int createGame(String authToken, String gameName) throws UnauthorizedException, DataAccessException {
+    /**
+     * @return a number that changes whenever the given game changes
+     * @throws BadRequestException if there is no such game, so no version to match
+     */
+    public long gameVersion(String authToken, int gameID)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
         try {
             authAccess.getAuth(authToken);
         } catch (DataAccessException e) {
@@ -39,14 +79,88 @@ public class GameService {
             }
             throw new UnauthorizedException();
         }
+        long version = versions.gameVersion(gameID);
+        // A game written since startup has a version of its own; any other may not exist at all
+        if (version == 0 && !gameAccess.gameExists(gameID)) {
+            throw new BadRequestException("Game not found");
+        }
+        return version;
+    }
 
-        Random rand = new Random();
-        int gameID;
-        do {
-            gameID = rand.nextInt(9999) + 1;
-        } while (gameAccess.gameExists(gameID));
+    public GameData getGame(String authToken, int gameID)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        try {
+            authAccess.getAuth(authToken);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw e;
+            }
+            throw new UnauthorizedException();
+        }
+        return gameAccess.getGame(gameID);
+    }
 
-        gameAccess.createGame(new GameData(gameID, null, null, gameName, new chess.ChessGame()));
+    /**
+     * Lists one page of the lobby without loading any boards
+     */
+    public GamePage<GameSummary> listGameSummaries(String authToken, GameQuery query)
+            throws UnauthorizedException, DataAccessException {
+        try {
+            authAccess.getAuth(authToken);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw e;
+            }
+            throw new UnauthorizedException();
+        }
+        return page(gameAccess.listGameSummaries(withOneExtra(query)), query.limit(), GameSummary::gameID);
+    }
+
+    /**
+     * Lists one page of the lobby including every game's board
+     */
+    public GamePage<GameData> listGames(String authToken, GameQuery query)
+            throws UnauthorizedException, DataAccessException {
+        try {
+            authAccess.getAuth(authToken);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw e;
+            }
+            throw new UnauthorizedException();
+        }
+        return page(gameAccess.listGames(withOneExtra(query)), query.limit(), GameData::gameID);
+    }
+
+    /**
+     * Asking for one row more than the page size tells us whether another page follows
+     */
+    private static GameQuery withOneExtra(GameQuery query) {
+        return new GameQuery(query.afterGameID(), query.limit() + 1, query.openSeats(), query.player(),
+                query.gameOver());
+    }
+
+    private static <T> GamePage<T> page(List<T> rows, int limit, ToIntFunction<T> gameID) {
+        if (rows.size() <= limit) {
+            return new GamePage<>(rows, null);
+        }
+        List<T> games = rows.subList(0, limit);
+        return new GamePage<>(games, gameID.applyAsInt(games.get(limit - 1)));
+    }
+
+    public int createGame(String authToken, String gameName) throws UnauthorizedException, DataAccessException {
+        try {
+            authAccess.getAuth(authToken);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw e;
+            }
+            throw new UnauthorizedException();
+        }
+
+        GameData game = new GameData(0, null, null, gameName, new chess.ChessGame());
+        int gameID = gameAccess.createGame(game);
+        lobbyEvents.publish(LobbyEvent.Type.CREATED, new GameData(gameID, null, null, gameName, game.game()));
 
         return gameID;
     }
@@ -55,7 +169,6 @@ public class GameService {
             throws UnauthorizedException, BadRequestException, DataAccessException {
 
         RegisterResponse registerResponse;
-        GameData gameData;
 
         try {
             registerResponse = authAccess.getAuth(authToken);
@@ -66,32 +179,133 @@ public class GameService {
             throw new UnauthorizedException();
         }
 
-        gameData = gameAccess.getGame(gameID);
-
-        String whiteUser = gameData.whiteUsername();
-        String blackUser = gameData.blackUsername();
+        return takeSeat(gameID, color, registerResponse.username());
+    }
 
-        if (Objects.equals(color, "WHITE")) {
-            if (whiteUser != null) {
-                return false; // Spot taken
-            } else {
-                whiteUser = registerResponse.username();
+    /**
+     * Seats the {@link BotPlayer} opposite the signed in user, so they can play it
+     *
+     * @return false if the seat is already taken
+     * @throws ForbiddenException if the user does not hold the other seat, which also
+     *                            keeps the bot from being seated against itself
+     */
+    public boolean seatBot(String authToken, int gameID, String color)
+            throws UnauthorizedException, BadRequestException, ForbiddenException, DataAccessException {
+        RegisterResponse registerResponse;
+        try {
+            registerResponse = authAccess.getAuth(authToken);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw e;
             }
-        } else if (Objects.equals(color, "BLACK")) {
-            if (blackUser != null) {
-                return false; // Spot taken
-            } else {
-                blackUser = registerResponse.username();
+            throw new UnauthorizedException();
+        }
+
+        boolean white = isWhite(color);
+        GameData seated = updateGame(gameID, gameData -> {
+            String opponent = white ? gameData.blackUsername() : gameData.whiteUsername();
+            if (!Objects.equals(opponent, registerResponse.username())) {
+                throw new ForbiddenException("Join the other seat before adding the bot");
             }
-        } else {
-            throw new BadRequestException("%s is not a valid team color".formatted(color));
+            return seat(gameData, white, BotPlayer.USERNAME);
+        });
+        if (seated == null) {
+            return false;
+        }
+        lobbyEvents.publish(LobbyEvent.Type.SEAT_TAKEN, seated);
+        return true;
+    }
+
+    private boolean takeSeat(int gameID, String color, String username)
+            throws BadRequestException, DataAccessException {
+        boolean white = isWhite(color);
+
+        // Two players racing for the same seat both see it free, but only one write
+        // can match the version they read; the other retries and finds it taken
+        GameData joined = updateGame(gameID, gameData -> seat(gameData, white, username));
+        if (joined == null) {
+            return false;
         }
-        // If we reach here, color must have been valid (WHITE/BLACK) and the spot free.
-        gameAccess.updateGame(new GameData(gameID, whiteUser, blackUser, gameData.gameName(), gameData.game()));
+        lobbyEvents.publish(LobbyEvent.Type.SEAT_TAKEN, joined);
         return true;
     }
 
+    private static boolean isWhite(String color) throws BadRequestException {
+        boolean white = Objects.equals(color, "WHITE");
+        if (!white && !Objects.equals(color, "BLACK")) {
+            throw new BadRequestException("%s is not a valid team color".formatted(color));
+        }
+        return white;
+    }
+
+    /**
+     * @return the game with the user in the seat, or null if the seat is taken
+     */
+    private static GameData seat(GameData gameData, boolean white, String username) {
+        int gameID = gameData.gameID();
+        if ((white ? gameData.whiteUsername() : gameData.blackUsername()) != null) {
+            return null; // Spot taken
+        }
+        return white
+                ? new GameData(gameID, username, gameData.blackUsername(), gameData.gameName(), gameData.game())
+                : new GameData(gameID, gameData.whiteUsername(), username, gameData.gameName(), gameData.game());
+    }
+
+    /**
+     * Applies a change to a game without holding any lock between reading and writing
+     * it. The write only succeeds if the game is still at the version that was read;
+     * otherwise the change is applied again to the newer game.
+     *
+     * @return the game as written, or null if the update left it unchanged
+     * @throws ConflictException if other writers won every attempt
+     */
+    public <E extends Exception> GameData updateGame(int gameID, GameUpdate<E> update)
+            throws E, BadRequestException, DataAccessException {
+        StoredGame written = updateStoredGame(gameID, update);
+        return written == null ? null : written.game();
+    }
+
+    /**
+     * Same as {@link #updateGame}, also returning the version the write gave the game,
+     * for anything that keeps its own copy of the game and must not let an older
+     * copy replace a newer one
+     */
+    public <E extends Exception> StoredGame updateStoredGame(int gameID, GameUpdate<E> update)
+            throws E, BadRequestException, DataAccessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            StoredGame stored = gameAccess.getStoredGame(gameID);
+            GameData current = stored.game();
+            // The update gets its own copy, so a retry never sees a half-applied change
+            GameData updated = update.apply(new GameData(current.gameID(), current.whiteUsername(),
+                    current.blackUsername(), current.gameName(), current.game().copy()));
+            if (updated == null) {
+                return null;
+            }
+            if (gameAccess.updateGame(updated, stored.version())) {
+                return new StoredGame(updated, stored.version() + 1);
+            }
+            updateConflicts.incrementAndGet();
+        }
+        updatesAbandoned.incrementAndGet();
+        throw new ConflictException("Game " + gameID + " is being changed by someone else, try again");
+    }
+
+    /**
+     * @return how many game writes found the game changed since it was read and had to retry
+     */
+    public long updateConflicts() {
+        return updateConflicts.get();
+    }
+
+    /**
+     * @return how many game writes gave up after losing every attempt
+     */
+    public long updatesAbandoned() {
+        return updatesAbandoned.get();
+    }
+
     public void clear() throws DataAccessException {
         gameAccess.clear();
+        lobbyEvents.publish(LobbyEvent.Type.CLEARED, null);
     }
 }
\ No newline at end of file
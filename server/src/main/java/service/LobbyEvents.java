@@ -0,0 +1,46 @@
+package service;
+
+import datamodel.GameData;
+import datamodel.GameSummary;
+import datamodel.LobbyEvent;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory bus for lobby changes. The HTTP and WebSocket handlers publish
+ * to it and live lobby feeds subscribe to it.
+ * <p>
+ * Listeners run on the publishing thread, so they should only hand the event
+ * off (to a queue, for example) and never block.
+ */
+public class LobbyEvents {
+
+    private final CopyOnWriteArrayList<Consumer<LobbyEvent>> listeners = new CopyOnWriteArrayList<>();
+    private long lastID = 0;
+
+    /**
+     * @return call to unsubscribe
+     */
+    public Runnable subscribe(Consumer<LobbyEvent> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public void publish(LobbyEvent.Type type, GameData game) {
+        publish(type, game == null ? null : GameSummary.of(game));
+    }
+
+    /**
+     * Synchronized so every listener sees events in ID order
+     */
+    private synchronized void publish(LobbyEvent.Type type, GameSummary game) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        var event = new LobbyEvent(++lastID, type, game);
+        for (var listener : listeners) {
+            listener.accept(event);
+        }
+    }
+}
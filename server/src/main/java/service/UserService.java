@@ -24,6 +24,9 @@ public class UserService {
             user.email() == null || user.email().isEmpty()) {
             throw new BadRequestException("Missing required registration fields");
         }
+        if (BotPlayer.isBot(user.username())) {
+            throw new ForbiddenException("User already registered");
+        }
 
         try {
             userAccess.createUser(user);
@@ -50,6 +53,9 @@ public class UserService {
         boolean userAuth = false;
         try {
             userAuth = userAccess.authenticateUser(userData.username(), userData.password());
+        } catch (ServiceUnavailableException e) {
+            // Too busy to check the password, which says nothing about whether it is right
+            throw e;
         } catch (DataAccessException e) {
             // If it's a SQLException, it's a database connection issue
             if (e.getCause() instanceof SQLException) {
@@ -0,0 +1,58 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import datamodel.GameData;
+import datamodel.GameQuery;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileGameAccessTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Games Survive Restart")
+    void gamesSurviveRestart() throws Exception {
+        int gameID;
+        try (FileGameAccess gameDAO = new FileGameAccess(directory)) {
+            gameID = gameDAO.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+            ChessGame game = new ChessGame();
+            game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            StoredGame stored = gameDAO.getStoredGame(gameID);
+            assertTrue(gameDAO.updateGame(new GameData(gameID, "alice", null, "Game", game), stored.version()));
+        }
+
+        try (FileGameAccess gameDAO = new FileGameAccess(directory)) {
+            GameData game = gameDAO.getGame(gameID);
+            assertEquals("alice", game.whiteUsername());
+            assertEquals(1, game.game().getMoveSequence());
+            assertEquals(List.of(gameID), gameDAO.listGames(new GameQuery(null, 10, false, "alice", null))
+                    .stream().map(GameData::gameID).toList());
+            assertTrue(gameDAO.createGame(new GameData(0, null, null, "Next", new ChessGame())) > gameID);
+        }
+    }
+
+    @Test
+    @DisplayName("Stale Version Not Logged")
+    void staleVersionNotLogged() throws Exception {
+        int gameID;
+        try (FileGameAccess gameDAO = new FileGameAccess(directory)) {
+            gameID = gameDAO.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+            int version = gameDAO.getStoredGame(gameID).version();
+            assertTrue(gameDAO.updateGame(new GameData(gameID, "alice", null, "Game", new ChessGame()), version));
+            assertFalse(gameDAO.updateGame(new GameData(gameID, "bob", null, "Game", new ChessGame()), version));
+        }
+
+        try (FileGameAccess gameDAO = new FileGameAccess(directory)) {
+            assertEquals("alice", gameDAO.getGame(gameID).whiteUsername());
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import datamodel.GameData;
+import datamodel.GameQuery;
+import datamodel.GameSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import java.util.HashSet;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GameAccessTest {
@@ -48,6 +52,16 @@ public class GameAccessTest {
         }, "Should throw DataAccessException for duplicate game ID");
     }
 
+    @Test
+    public void createGameGeneratesID() throws DataAccessException, BadRequestException {
+        int first = gameDAO.createGame(new GameData(0, null, null, "Game 1", new ChessGame()));
+        int second = gameDAO.createGame(new GameData(0, null, null, "Game 2", new ChessGame()));
+
+        assertTrue(first > 0);
+        assertNotEquals(first, second);
+        assertEquals("Game 2", gameDAO.getGame(second).gameName());
+    }
+
     // --- getGame ---
 
     @Test
@@ -84,7 +98,7 @@ public class GameAccessTest {
         gameDAO.createGame(new GameData(2, "player3", "player4", "Game 2", game2));
         gameDAO.createGame(new GameData(3, null, null, "Game 3", game3));
 
-        HashSet<GameData> games = gameDAO.listGames();
+        List<GameData> games = gameDAO.listGames(new GameQuery(null, 10, false, null, null));
         assertNotNull(games);
         assertEquals(3, games.size());
     }
@@ -92,9 +106,48 @@ public class GameAccessTest {
     @Test
     public void listGamesNegative() throws DataAccessException {
         // List games when database is empty
-        HashSet<GameData> games = gameDAO.listGames();
+        List<GameData> games = gameDAO.listGames(new GameQuery(null, 10, false, null, null));
         assertNotNull(games);
-        assertEquals(0, games.size(), "Empty database should return empty set");
+        assertEquals(0, games.size(), "Empty database should return empty list");
+    }
+
+    // --- listGameSummaries ---
+
+    @Test
+    public void listGameSummariesPositive() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.createGame(new GameData(2, "player1", null, "Game 2", game));
+        gameDAO.createGame(new GameData(1, null, null, "Game 1", new ChessGame()));
+
+        List<GameSummary> games = gameDAO.listGameSummaries(new GameQuery(null, 10, false, null, null));
+        assertEquals(List.of(
+                new GameSummary(1, null, null, "Game 1", false, 0),
+                new GameSummary(2, "player1", null, "Game 2", false, 1)), games);
+
+        List<GameSummary> playing = gameDAO.listGameSummaries(new GameQuery(1, 10, false, "player1", false));
+        assertEquals(List.of(2), playing.stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    public void listGameSummariesByPlayerInGameIDOrder() throws DataAccessException {
+        gameDAO.createGame(new GameData(1, null, "player1", "Game 1", new ChessGame()));
+        gameDAO.createGame(new GameData(2, "player1", null, "Game 2", new ChessGame()));
+        gameDAO.createGame(new GameData(3, "player2", null, "Game 3", new ChessGame()));
+        gameDAO.createGame(new GameData(4, "player1", "player1", "Game 4", new ChessGame()));
+        gameDAO.createGame(new GameData(5, null, "player1", "Game 5", new ChessGame()));
+
+        List<GameSummary> first = gameDAO.listGameSummaries(new GameQuery(null, 2, false, "player1", null));
+        assertEquals(List.of(1, 2), first.stream().map(GameSummary::gameID).toList());
+        List<GameSummary> rest = gameDAO.listGameSummaries(new GameQuery(2, 10, false, "player1", null));
+        assertEquals(List.of(4, 5), rest.stream().map(GameSummary::gameID).toList(),
+                "A game with the player in both seats should be listed once");
+    }
+
+    @Test
+    public void listGameSummariesNegative() throws DataAccessException {
+        assertTrue(gameDAO.listGameSummaries(new GameQuery(null, 10, false, null, null)).isEmpty(),
+                "Empty database should return no summaries");
     }
 
     // --- gameExists ---
@@ -147,6 +200,52 @@ public class GameAccessTest {
         }, "Should throw DataAccessException when updating non-existent game");
     }
 
+    @Test
+    public void updateGameStaleVersionRejected() throws DataAccessException, BadRequestException {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        StoredGame read = gameDAO.getStoredGame(gameID);
+
+        assertTrue(gameDAO.updateGame(new GameData(gameID, "alice", null, "Game", new ChessGame()), read.version()));
+        assertFalse(gameDAO.updateGame(new GameData(gameID, "bob", null, "Game", new ChessGame()), read.version()));
+
+        StoredGame stored = gameDAO.getStoredGame(gameID);
+        assertEquals("alice", stored.game().whiteUsername());
+        assertEquals(read.version() + 1, stored.version());
+    }
+
+    // --- archiveFinishedGames ---
+
+    @Test
+    public void archiveFinishedGamesPositive() throws DataAccessException, BadRequestException {
+        ChessGame finished = new ChessGame();
+        finished.setGameOver(true);
+        int finishedID = gameDAO.createGame(new GameData(0, "white", "black", "Done", finished));
+        int activeID = gameDAO.createGame(new GameData(0, "white", null, "Playing", new ChessGame()));
+
+        assertEquals(1, gameDAO.archiveFinishedGames(10));
+
+        assertEquals(finished, gameDAO.getGame(finishedID).game());
+        assertEquals(2, gameDAO.listGames(new GameQuery(null, 10, false, null, null)).size());
+        assertEquals(List.of(finishedID), gameDAO.listGameSummaries(new GameQuery(null, 10, false, null, true))
+                .stream().map(GameSummary::gameID).toList());
+        assertEquals(0, gameDAO.archiveFinishedGames(10));
+        assertTrue(gameDAO.gameExists(activeID));
+    }
+
+    @Test
+    public void archiveFinishedGamesUpdatedAfterwards() throws DataAccessException, BadRequestException {
+        ChessGame finished = new ChessGame();
+        finished.setGameOver(true);
+        int gameID = gameDAO.createGame(new GameData(0, "white", "black", "Done", finished));
+        gameDAO.archiveFinishedGames(10);
+
+        StoredGame stored = gameDAO.getStoredGame(gameID);
+        assertTrue(gameDAO.updateGame(new GameData(gameID, null, "black", "Done", stored.game().game()),
+                stored.version()));
+        assertNull(gameDAO.getGame(gameID).whiteUsername());
+        assertEquals(finished, gameDAO.getGame(gameID).game());
+    }
+
     // --- clear ---
 
     @Test
@@ -160,7 +259,7 @@ public class GameAccessTest {
         gameDAO.clear();
 
         // Verify all games are gone
-        HashSet<GameData> games = gameDAO.listGames();
+        List<GameData> games = gameDAO.listGames(new GameQuery(null, 10, false, null, null));
         assertEquals(0, games.size(), "All games should be cleared");
         
         assertThrows(BadRequestException.class, () -> gameDAO.getGame(1));
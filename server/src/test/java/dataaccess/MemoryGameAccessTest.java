@@ -0,0 +1,101 @@
+package dataaccess;
+
+import chess.ChessGame;
+import datamodel.GameData;
+import datamodel.GameQuery;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryGameAccessTest {
+
+    private MemoryGameAccess gameDAO;
+
+    @BeforeEach
+    void setUp() {
+        gameDAO = new MemoryGameAccess();
+    }
+
+    private static GameQuery byPlayer(String player) {
+        return new GameQuery(null, 100, false, player, null);
+    }
+
+    @Test
+    @DisplayName("Player Index Follows Seats")
+    void playerIndexFollowsSeats() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, "alice", null, "Game", new ChessGame()));
+        assertEquals(1, gameDAO.listGames(byPlayer("alice")).size());
+
+        GameData game = gameDAO.getGame(gameID);
+        gameDAO.updateGame(new GameData(gameID, null, "bob", game.gameName(), game.game()));
+
+        assertTrue(gameDAO.listGames(byPlayer("alice")).isEmpty());
+        assertEquals(List.of(gameID), gameDAO.listGames(byPlayer("bob")).stream().map(GameData::gameID).toList());
+    }
+
+    @Test
+    @DisplayName("Duplicate ID Rejected")
+    void duplicateIDRejected() throws Exception {
+        gameDAO.createGame(new GameData(7, null, null, "Game", new ChessGame()));
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.createGame(new GameData(7, null, null, "Again", new ChessGame())));
+        assertEquals("Game", gameDAO.getGame(7).gameName());
+    }
+
+    @Test
+    @DisplayName("Stale Version Rejected")
+    void staleVersionRejected() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        StoredGame read = gameDAO.getStoredGame(gameID);
+
+        assertTrue(gameDAO.updateGame(new GameData(gameID, "alice", null, "Game", new ChessGame()), read.version()));
+        assertFalse(gameDAO.updateGame(new GameData(gameID, "bob", null, "Game", new ChessGame()), read.version()));
+
+        StoredGame stored = gameDAO.getStoredGame(gameID);
+        assertEquals("alice", stored.game().whiteUsername());
+        assertEquals(read.version() + 1, stored.version());
+        assertTrue(gameDAO.listGames(byPlayer("bob")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent Creates And Joins")
+    void concurrentCreatesAndJoins() throws Exception {
+        int threads = 8;
+        int gamesPerThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String player = "player" + t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < gamesPerThread; i++) {
+                        int gameID = gameDAO.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+                        GameData game = gameDAO.getGame(gameID);
+                        gameDAO.updateGame(new GameData(gameID, player, null, game.gameName(), game.game()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        GameQuery everything = new GameQuery(null, threads * gamesPerThread + 1, false, null, null);
+        List<Integer> ids = gameDAO.listGames(everything).stream().map(GameData::gameID).toList();
+        assertEquals(threads * gamesPerThread, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids, "Listing should be in game ID order");
+        for (int t = 0; t < threads; t++) {
+            GameQuery mine = new GameQuery(null, threads * gamesPerThread, false, "player" + t, null);
+            assertEquals(gamesPerThread, gameDAO.listGames(mine).size());
+        }
+    }
+}
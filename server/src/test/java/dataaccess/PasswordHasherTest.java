@@ -0,0 +1,71 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+    @Test
+    @DisplayName("Hash And Check")
+    void hashAndCheck() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 1);
+        String hash = hasher.hash("secret");
+
+        assertTrue(hasher.check("secret", hash));
+        assertFalse(hasher.check("wrong", hash));
+        assertFalse(hasher.needsRehash(hash));
+    }
+
+    @Test
+    @DisplayName("Other Cost Needs Rehash")
+    void otherCostNeedsRehash() throws Exception {
+        String oldHash = new PasswordHasher(4, 1, 1).hash("secret");
+        PasswordHasher hasher = new PasswordHasher(5, 1, 1);
+
+        assertTrue(hasher.check("secret", oldHash));
+        assertTrue(hasher.needsRehash(oldHash));
+    }
+
+    @Test
+    @DisplayName("Sheds Load When Full")
+    void shedsLoadWhenFull() throws Exception {
+        // One slow hash running and one queued fill the pool, so the rest are refused
+        PasswordHasher hasher = new PasswordHasher(12, 1, 1);
+        int callers = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> hashes = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                hashes.add(pool.submit(() -> {
+                    start.await();
+                    return hasher.hash("secret");
+                }));
+            }
+            start.countDown();
+
+            int shed = 0;
+            for (Future<String> hash : hashes) {
+                try {
+                    hash.get();
+                } catch (ExecutionException e) {
+                    assertInstanceOf(ServiceUnavailableException.class, e.getCause());
+                    shed++;
+                }
+            }
+            assertTrue(shed >= 1, "Hashing beyond the pool and queue should be refused");
+            assertTrue(shed <= callers - 2, "The running and queued hashes should complete");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
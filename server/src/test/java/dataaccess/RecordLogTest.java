@@ -0,0 +1,107 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordLogTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file() {
+        return directory.resolve("test.log");
+    }
+
+    private static Map<String, String> contents(RecordLog log) {
+        Map<String, String> contents = new HashMap<>();
+        log.forEach((key, value) -> contents.put(key, new String(value, StandardCharsets.UTF_8)));
+        return contents;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Replays Latest Values")
+    void replaysLatestValues() throws Exception {
+        try (RecordLog log = new RecordLog(file())) {
+            log.put("a", bytes("1"));
+            log.put("b", bytes("2"));
+            log.put("a", bytes("3"));
+            log.remove("b");
+        }
+
+        try (RecordLog log = new RecordLog(file())) {
+            assertEquals(Map.of("a", "3"), contents(log));
+        }
+    }
+
+    @Test
+    @DisplayName("Torn Write Ignored")
+    void tornWriteIgnored() throws Exception {
+        try (RecordLog log = new RecordLog(file())) {
+            log.put("a", bytes("kept"));
+            log.put("b", bytes("torn"));
+        }
+        // Corrupt the last byte of the second record, as if the crash came mid-write
+        String text = new String(Files.readAllBytes(file()), StandardCharsets.ISO_8859_1);
+        int tornByte = text.indexOf("torn") + 3;
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), tornByte);
+        }
+
+        try (RecordLog log = new RecordLog(file())) {
+            assertEquals(Map.of("a", "kept"), contents(log));
+            log.put("c", bytes("after"));
+        }
+        try (RecordLog log = new RecordLog(file())) {
+            assertEquals(Map.of("a", "kept", "c", "after"), contents(log));
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction Keeps Live Records")
+    void compactionKeepsLiveRecords() throws Exception {
+        byte[] value = new byte[1024];
+        try (RecordLog log = new RecordLog(file())) {
+            for (int i = 0; i < 5000; i++) {
+                log.put("key" + (i % 10), value);
+            }
+            log.put("last", bytes("value"));
+        }
+
+        // Without compaction the 5 MB written would need an 8 MB file
+        assertTrue(Files.size(file()) <= 2 * 1024 * 1024, "Superseded records should have been compacted away");
+        try (RecordLog log = new RecordLog(file())) {
+            Map<String, String> contents = contents(log);
+            assertEquals(11, contents.size());
+            assertEquals("value", contents.get("last"));
+        }
+    }
+
+    @Test
+    @DisplayName("Clear Survives Reopen")
+    void clearSurvivesReopen() throws Exception {
+        try (RecordLog log = new RecordLog(file())) {
+            log.put("a", bytes("1"));
+            log.clear();
+            log.put("b", bytes("2"));
+        }
+
+        try (RecordLog log = new RecordLog(file())) {
+            assertEquals(Map.of("b", "2"), contents(log));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dataaccess;
+
+import chess.ChessGame;
+import datamodel.GameData;
+import datamodel.GameQuery;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedGameAccessTest {
+
+    private VersionedGameAccess gameDAO;
+
+    @BeforeEach
+    void setUp() {
+        gameDAO = new VersionedGameAccess(new MemoryGameAccess());
+    }
+
+    @Test
+    @DisplayName("Writes Change Versions")
+    void writesChangeVersions() throws Exception {
+        long emptyLobby = gameDAO.lobbyVersion();
+        gameDAO.createGame(new GameData(1, null, null, "Game 1", new ChessGame()));
+        gameDAO.createGame(new GameData(2, null, null, "Game 2", new ChessGame()));
+        long game1 = gameDAO.gameVersion(1);
+        long game2 = gameDAO.gameVersion(2);
+        assertTrue(gameDAO.lobbyVersion() > emptyLobby);
+
+        gameDAO.updateGame(new GameData(1, "white", null, "Game 1", gameDAO.getGame(1).game()));
+        assertTrue(gameDAO.gameVersion(1) > game1);
+        assertEquals(game2, gameDAO.gameVersion(2), "Other games should keep their version");
+    }
+
+    @Test
+    @DisplayName("Reads Keep Versions")
+    void readsKeepVersions() throws Exception {
+        gameDAO.createGame(new GameData(1, null, null, "Game 1", new ChessGame()));
+        long lobby = gameDAO.lobbyVersion();
+
+        gameDAO.getGame(1);
+        gameDAO.listGames(new GameQuery(null, 10, false, null, null));
+        assertEquals(lobby, gameDAO.lobbyVersion());
+    }
+
+    @Test
+    @DisplayName("Clear Never Repeats Versions")
+    void clearNeverRepeatsVersions() throws Exception {
+        gameDAO.createGame(new GameData(1, null, null, "Game 1", new ChessGame()));
+        long before = gameDAO.gameVersion(1);
+
+        gameDAO.clear();
+        gameDAO.createGame(new GameData(1, null, null, "Game 1 again", new ChessGame()));
+        assertTrue(gameDAO.gameVersion(1) > before);
+    }
+}
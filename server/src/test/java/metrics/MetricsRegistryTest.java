@@ -0,0 +1,70 @@
+package metrics;
+
+import org.junit.jupiter.api.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    @DisplayName("Counter Text Format")
+    void counterTextFormat() {
+        Counter requests = registry.counter("requests_total", "Requests handled", "route");
+        requests.inc("/game");
+        requests.add(2, "/game");
+        requests.inc("say \"hi\"");
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# HELP requests_total Requests handled\n# TYPE requests_total counter\n"));
+        assertTrue(text.contains("requests_total{route=\"/game\"} 3\n"));
+        assertTrue(text.contains("requests_total{route=\"say \\\"hi\\\"\"} 1\n"));
+    }
+
+    @Test
+    @DisplayName("Histogram Buckets Are Cumulative")
+    void histogramBucketsAreCumulative() {
+        Histogram latency = registry.histogram("latency_seconds", "Latency", new double[]{0.1, 1}, "op");
+        latency.observe(0.05, "get");
+        latency.observe(0.1, "get");
+        latency.observe(0.5, "get");
+        latency.observe(3, "get");
+
+        String text = registry.scrape();
+        assertTrue(text.contains("latency_seconds_bucket{op=\"get\",le=\"0.1\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_bucket{op=\"get\",le=\"1\"} 3\n"));
+        assertTrue(text.contains("latency_seconds_bucket{op=\"get\",le=\"+Inf\"} 4\n"));
+        assertTrue(text.contains("latency_seconds_sum{op=\"get\"} 3.65\n"));
+        assertTrue(text.contains("latency_seconds_count{op=\"get\"} 4\n"));
+    }
+
+    @Test
+    @DisplayName("Labelled Gauge Reads Each Value")
+    void labelledGauge() {
+        Map<String, LongSupplier> queued = new LinkedHashMap<>();
+        queued.put("high", () -> 3);
+        queued.put("low", () -> 0);
+        registry.gauge("jobs_queued", "Jobs waiting", "priority", queued);
+
+        assertTrue(registry.scrape().contains("# TYPE jobs_queued gauge\n"
+                + "jobs_queued{priority=\"high\"} 3\njobs_queued{priority=\"low\"} 0\n"));
+    }
+
+    @Test
+    @DisplayName("Wrong Label Count Rejected")
+    void wrongLabelCountRejected() {
+        Counter requests = registry.counter("requests_total", "Requests handled", "method", "route");
+        assertThrows(IllegalArgumentException.class, () -> requests.inc("GET"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("requests_total", "Again", () -> 1));
+    }
+}
@@ -0,0 +1,58 @@
+package server.websocket;
+
+import chess.ChessGame;
+import dataaccess.StoredGame;
+import datamodel.GameData;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGameCacheTest {
+
+    private static StoredGame gameAtVersion(int version, String whiteUsername) {
+        return new StoredGame(new GameData(1, whiteUsername, null, "game", new ChessGame()), version);
+    }
+
+    @Test
+    @DisplayName("Stale State Ignored")
+    void staleStateIgnored() {
+        LoadGameCache cache = new LoadGameCache();
+        LoadGameCache.Entry newer = cache.update(gameAtVersion(5, "white"), cache.stamp());
+
+        assertSame(newer, cache.update(gameAtVersion(4, null), cache.stamp()));
+        assertEquals(5, cache.get(1).version());
+    }
+
+    @Test
+    @DisplayName("Same Version Kept")
+    void sameVersionKept() {
+        LoadGameCache cache = new LoadGameCache();
+        cache.update(gameAtVersion(5, "white"), cache.stamp());
+        cache.update(gameAtVersion(5, null), cache.stamp());
+        assertEquals("white", cache.get(1).gameData().whiteUsername());
+
+        // A seat change is a write like any other, so it comes with a newer version
+        cache.update(gameAtVersion(6, null), cache.stamp());
+        assertNull(cache.get(1).gameData().whiteUsername());
+    }
+
+    @Test
+    @DisplayName("Read Before Invalidation Not Cached")
+    void readBeforeInvalidation() {
+        LoadGameCache cache = new LoadGameCache();
+        cache.update(gameAtVersion(5, null), cache.stamp());
+
+        // A connect reads the game, then someone joins over HTTP before it is cached
+        long stamp = cache.stamp();
+        StoredGame beforeJoin = gameAtVersion(5, null);
+        cache.invalidate(1);
+        LoadGameCache.Entry entry = cache.update(beforeJoin, stamp);
+
+        assertNull(entry.gameData().whiteUsername());
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+
+        cache.update(gameAtVersion(6, "white"), cache.stamp());
+        assertEquals("white", cache.get(1).gameData().whiteUsername());
+    }
+}
@@ -0,0 +1,46 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveHistoryTest {
+
+    private static ServerMessage.MoveAppliedMessage moveNumber(int sequence) {
+        ChessMove move = new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null);
+        return new ServerMessage.MoveAppliedMessage(move, sequence, ChessGame.GameStatus.ACTIVE, null);
+    }
+
+    @Test
+    @DisplayName("Replay Missed Moves")
+    void replayMissedMoves() {
+        MoveHistory history = new MoveHistory(4);
+        for (int seq = 1; seq <= 6; seq++) {
+            history.add(moveNumber(seq));
+        }
+
+        List<ServerMessage.MoveAppliedMessage> missed = history.since(3, 6);
+        assertNotNull(missed);
+        assertEquals(List.of(4, 5, 6), missed.stream().map(ServerMessage.MoveAppliedMessage::getSequence).toList());
+        assertEquals(0, history.since(6, 6).size());
+    }
+
+    @Test
+    @DisplayName("Fall Back When Ring Exceeded")
+    void fallBackWhenRingExceeded() {
+        MoveHistory history = new MoveHistory(4);
+        for (int seq = 1; seq <= 6; seq++) {
+            history.add(moveNumber(seq));
+        }
+
+        assertNull(history.since(1, 6), "Moves 2 and earlier have been overwritten");
+        assertNull(history.since(4, 7), "The ring is behind the stored game");
+        assertNull(history.since(8, 6), "The client is ahead of the server");
+    }
+}
@@ -0,0 +1,125 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.SearchLimits;
+import dataaccess.*;
+import datamodel.*;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BotPlayerTest {
+    GameAccess gameAccess;
+    GameService gameService;
+    EngineScheduler engine;
+    BotPlayer bot;
+    String authToken = "token123";
+
+    @BeforeEach
+    void setup() throws DataAccessException {
+        gameAccess = new MemoryGameAccess();
+        AuthAccess authAccess = new MemoryAuthAccess();
+        authAccess.addAuth(new RegisterResponse("user1", authToken));
+        gameService = new GameService(gameAccess, authAccess);
+        engine = new EngineScheduler(1, 2, 8);
+        bot = new BotPlayer(gameAccess, SearchLimits.depth(3), engine, Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bot.close();
+        engine.close();
+    }
+
+    @Test
+    @DisplayName("Moves On Its Turn")
+    void movesOnItsTurn() throws Exception {
+        int gameID = gameService.createGame(authToken, "Game");
+        gameService.joinGame(authToken, gameID, "BLACK");
+        gameService.seatBot(authToken, gameID, "WHITE");
+
+        CompletableFuture<ChessMove> chosen = new CompletableFuture<>();
+        bot.requestMove(GameSummary.of(gameAccess.getGame(gameID)), (id, moveSequence, move) -> {
+            assertEquals(gameID, id);
+            assertEquals(0, moveSequence);
+            chosen.complete(move);
+        });
+        ChessMove move = chosen.get(10, TimeUnit.SECONDS);
+        assertTrue(new ChessGame().legalMoves().contains(move));
+        assertEquals(1, bot.moves());
+        assertEquals(0, bot.gamesThinking());
+    }
+
+    @Test
+    @DisplayName("Waits For Its Turn")
+    void waitsForItsTurn() throws Exception {
+        int gameID = gameService.createGame(authToken, "Game");
+        gameService.joinGame(authToken, gameID, "WHITE");
+        gameService.seatBot(authToken, gameID, "BLACK");
+        assertFalse(BotPlayer.isBotsTurn(gameAccess.getGame(gameID)));
+
+        CompletableFuture<ChessMove> chosen = new CompletableFuture<>();
+        bot.requestMove(GameSummary.of(gameAccess.getGame(gameID)), (id, moveSequence, move) -> chosen.complete(move));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bot.gamesThinking() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, bot.gamesThinking());
+        assertFalse(chosen.isDone());
+        assertEquals(0, bot.moves());
+    }
+
+    @Test
+    @DisplayName("Tries Again When A Move Fails")
+    void triesAgain() throws Exception {
+        int gameID = gameService.createGame(authToken, "Game");
+        gameService.joinGame(authToken, gameID, "BLACK");
+        gameService.seatBot(authToken, gameID, "WHITE");
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<ChessMove> played = new CompletableFuture<>();
+        bot.requestMove(GameSummary.of(gameAccess.getGame(gameID)), (id, moveSequence, move) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ConflictException("Lost the race");
+            }
+            played.complete(move);
+        });
+        assertNotNull(played.get(10, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertEquals(1, bot.retries());
+        assertEquals(0, bot.abandoned());
+    }
+
+    @Test
+    @DisplayName("Gives Up And Says So")
+    void givesUp() throws Exception {
+        int gameID = gameService.createGame(authToken, "Game");
+        gameService.joinGame(authToken, gameID, "BLACK");
+        gameService.seatBot(authToken, gameID, "WHITE");
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> gaveUp = new CompletableFuture<>();
+        bot.requestMove(GameSummary.of(gameAccess.getGame(gameID)), new BotPlayer.MoveListener() {
+            @Override
+            public void moveChosen(int id, int moveSequence, ChessMove move) throws Exception {
+                attempts.incrementAndGet();
+                throw new ConflictException("Lost the race");
+            }
+
+            @Override
+            public void gaveUp(int id, String reason) {
+                gaveUp.complete(reason);
+            }
+        });
+        assertEquals("Lost the race", gaveUp.get(10, TimeUnit.SECONDS));
+        assertEquals(BotPlayer.MAX_ATTEMPTS, attempts.get());
+        assertEquals(1, bot.abandoned());
+        assertEquals(0, bot.gamesThinking());
+    }
+}
@@ -0,0 +1,112 @@
+package service;
+
+import chess.ChessGame;
+import chess.engine.SearchLimits;
+import dataaccess.ServiceUnavailableException;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineSchedulerTest {
+    EngineScheduler engine;
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        engine.close();
+    }
+
+    /**
+     * Keeps the only thread busy until released, so everything submitted meanwhile queues up
+     */
+    private void occupy() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        engine.submit(EngineScheduler.Priority.BOT_MOVE, "someone", 0, searcher -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<String> job(EngineScheduler.Priority priority, String owner, String name)
+            throws ServiceUnavailableException {
+        return engine.submit(priority, owner, 1, searcher -> {
+            ran.add(name);
+            return name;
+        });
+    }
+
+    @Test
+    @DisplayName("Runs Urgent Jobs First")
+    void runsUrgentJobsFirst() throws Exception {
+        engine = new EngineScheduler(1, 2, 8);
+        occupy();
+        job(EngineScheduler.Priority.ANALYSIS, "alice", "analysis");
+        job(EngineScheduler.Priority.HINT, "bob", "hint");
+        CompletableFuture<String> last = job(EngineScheduler.Priority.ANALYSIS, "carol", "analysis again");
+        job(EngineScheduler.Priority.BOT_MOVE, "dave", "bot move");
+        assertEquals(1, engine.queued(EngineScheduler.Priority.BOT_MOVE));
+        assertEquals(2, engine.queued(EngineScheduler.Priority.ANALYSIS));
+
+        release.countDown();
+        last.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("bot move", "hint", "analysis", "analysis again"), ran);
+        assertEquals(0, engine.queued(EngineScheduler.Priority.ANALYSIS));
+    }
+
+    @Test
+    @DisplayName("Defers Jobs Past A User's Quota")
+    void defersPastQuota() throws Exception {
+        engine = new EngineScheduler(1, 1, 1);
+        occupy();
+        job(EngineScheduler.Priority.HINT, "alice", "alice 1");
+        CompletableFuture<String> deferred = job(EngineScheduler.Priority.HINT, "alice", "alice 2");
+        assertThrows(ServiceUnavailableException.class, () -> job(EngineScheduler.Priority.HINT, "alice", "alice 3"));
+        job(EngineScheduler.Priority.HINT, "bob", "bob 1");
+        assertEquals(1, engine.deferred());
+        assertEquals(3, engine.queued(EngineScheduler.Priority.HINT));
+        assertEquals(1, engine.rejected());
+
+        release.countDown();
+        deferred.get(10, TimeUnit.SECONDS);
+        // Alice's second job waited for her first, then queued behind Bob's
+        assertEquals(List.of("alice 1", "bob 1", "alice 2"), ran);
+        assertEquals(0, engine.deferred());
+    }
+
+    @Test
+    @DisplayName("Cancels A Game's Jobs")
+    void cancelsGameJobs() throws Exception {
+        engine = new EngineScheduler(1, 2, 8);
+        CountDownLatch searching = new CountDownLatch(1);
+        CompletableFuture<Object> search = engine.submit(EngineScheduler.Priority.ANALYSIS, "alice", 1, searcher -> {
+            searching.countDown();
+            return searcher.search(new ChessGame(), SearchLimits.time(Duration.ofMinutes(1)));
+        });
+        assertTrue(searching.await(10, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = job(EngineScheduler.Priority.HINT, "alice", "same game");
+        CompletableFuture<Boolean> otherGame = engine.submit(EngineScheduler.Priority.HINT, "bob", 2,
+                searcher -> Thread.currentThread().isInterrupted());
+
+        assertEquals(2, engine.cancelGame(1));
+        assertTrue(queued.isCancelled());
+        assertThrows(CancellationException.class, () -> search.get(10, TimeUnit.SECONDS));
+        // The interrupt stopped the search and went no further
+        assertFalse(otherGame.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(), ran);
+        assertEquals(2, engine.cancelled());
+        assertEquals(0, engine.running());
+    }
+}
@@ -1,11 +1,18 @@
 package service;
 
+import chess.ChessGame;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import dataaccess.*;
 import datamodel.*;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GameServiceTest {
     GameService gameService;
@@ -32,6 +39,15 @@ public class GameServiceTest {
         assertTrue(gameId > 0);
     }
 
+    @Test
+    @DisplayName("Create Game Unique IDs")
+    void createGameUniqueIDs() throws Exception {
+        HashSet<Integer> gameIDs = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(gameIDs.add(gameService.createGame(existingAuthToken, "Game " + i)));
+        }
+    }
+
     @Test
     @DisplayName("Create Game Unauthorized")
     void createGameInvalidAuthThrowsUnauthorized() {
@@ -42,15 +58,79 @@ public class GameServiceTest {
     @DisplayName("List Games Success")
     void listGamesSuccess() throws Exception {
         gameService.createGame(existingAuthToken, "Game 1");
-        HashSet<GameData> games = gameService.listGames(existingAuthToken);
-        assertNotNull(games);
-        assertEquals(1, games.size());
+        GamePage<GameData> page = gameService.listGames(existingAuthToken, new GameQuery(null, 10, false, null, null));
+        assertEquals(1, page.games().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("List Game Summaries Success")
+    void listGameSummariesSuccess() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game 1");
+        gameService.joinGame(existingAuthToken, gameID, "WHITE");
+
+        GamePage<GameSummary> page = gameService.listGameSummaries(existingAuthToken,
+                new GameQuery(null, 10, false, null, null));
+        assertEquals(List.of(new GameSummary(gameID, "user1", null, "Game 1", false, 0)), page.games());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("List Game Summaries Unauthorized")
+    void listGameSummariesUnauthorized() {
+        assertThrows(UnauthorizedException.class, () -> gameService.listGameSummaries("badtoken",
+                new GameQuery(null, 10, false, null, null)));
+    }
+
+    @Test
+    @DisplayName("List Game Summaries Pages")
+    void listGameSummariesPages() throws Exception {
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(gameService.createGame(existingAuthToken, "Game " + i));
+        }
+        gameService.joinGame(existingAuthToken, created.get(0), "WHITE");
+        gameService.joinGame(existingAuthToken, created.get(0), "BLACK");
+        created.sort(null);
+
+        List<Integer> seen = new ArrayList<>();
+        Integer cursor = null;
+        do {
+            GamePage<GameSummary> page = gameService.listGameSummaries(existingAuthToken,
+                    new GameQuery(cursor, 2, false, null, null));
+            assertTrue(page.games().size() <= 2);
+            page.games().forEach(game -> seen.add(game.gameID()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(created, seen);
+
+        GamePage<GameSummary> open = gameService.listGameSummaries(existingAuthToken,
+                new GameQuery(null, 10, true, null, null));
+        assertEquals(4, open.games().size(), "The full game should be filtered out");
+    }
+
+    @Test
+    @DisplayName("Lobby Events Published")
+    void lobbyEventsPublished() throws Exception {
+        LobbyEvents lobbyEvents = new LobbyEvents();
+        List<LobbyEvent> events = new ArrayList<>();
+        lobbyEvents.subscribe(events::add);
+        gameService = new GameService(gameAccess, authAccess, lobbyEvents);
+
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        gameService.joinGame(existingAuthToken, gameID, "BLACK");
+
+        assertEquals(List.of(LobbyEvent.Type.CREATED, LobbyEvent.Type.SEAT_TAKEN),
+                events.stream().map(LobbyEvent::type).toList());
+        assertEquals("user1", events.get(1).game().blackUsername());
+        assertEquals(events.get(0).id() + 1, events.get(1).id());
     }
 
     @Test
     @DisplayName("List Games Unauthorized")
     void listGamesUnauthorized() {
-        assertThrows(UnauthorizedException.class, () -> gameService.listGames("badtoken"));
+        assertThrows(UnauthorizedException.class, () -> gameService.listGames("badtoken",
+                new GameQuery(null, 10, false, null, null)));
     }
 
     @Test
@@ -74,6 +154,18 @@ public class GameServiceTest {
         assertThrows(BadRequestException.class, () -> gameService.joinGame(existingAuthToken, 9999, "WHITE"));
     }
 
+    @Test
+    @DisplayName("Game Version Of Missing Game")
+    void gameVersionOfMissingGame() throws Exception {
+        assertThrows(BadRequestException.class, () -> gameService.gameVersion(existingAuthToken, 9999));
+
+        // Written before the versions were counted, as after a restart
+        int gameID = gameAccess.createGame(new GameData(0, null, null, "Old Game", new ChessGame()));
+        assertEquals(0, gameService.gameVersion(existingAuthToken, gameID));
+        int created = gameService.createGame(existingAuthToken, "New Game");
+        assertTrue(gameService.gameVersion(existingAuthToken, created) > 0);
+    }
+
     @Test
     @DisplayName("Join Game Spot Taken")
     void joinGameSpotTaken() throws Exception {
@@ -88,4 +180,95 @@ public class GameServiceTest {
         boolean success = gameService.joinGame(auth2.authToken(), gameID, "WHITE");
         assertFalse(success);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Seat Bot")
+    void seatBot() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        gameService.joinGame(existingAuthToken, gameID, "WHITE");
+        assertTrue(gameService.seatBot(existingAuthToken, gameID, "BLACK"));
+        assertEquals(BotPlayer.USERNAME, gameAccess.getGame(gameID).blackUsername());
+
+        assertFalse(gameService.seatBot(existingAuthToken, gameID, "BLACK"));
+        assertThrows(UnauthorizedException.class, () -> gameService.seatBot("badtoken", gameID, "WHITE"));
+    }
+
+    @Test
+    @DisplayName("Seat Bot In A Stranger's Game")
+    void seatBotStranger() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        gameService.joinGame(existingAuthToken, gameID, "WHITE");
+        authAccess.addAuth(new RegisterResponse("user2", "token456"));
+
+        assertThrows(ForbiddenException.class, () -> gameService.seatBot("token456", gameID, "BLACK"));
+        // Nor into an empty game, opposite nobody
+        int emptyID = gameService.createGame(existingAuthToken, "Empty");
+        assertThrows(ForbiddenException.class, () -> gameService.seatBot(existingAuthToken, emptyID, "BLACK"));
+        assertNull(gameAccess.getGame(gameID).blackUsername());
+        assertNull(gameAccess.getGame(emptyID).blackUsername());
+    }
+
+    @Test
+    @DisplayName("Seat Bot Against Itself")
+    void seatBotAgainstItself() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        gameService.joinGame(existingAuthToken, gameID, "WHITE");
+        assertTrue(gameService.seatBot(existingAuthToken, gameID, "BLACK"));
+        gameService.updateGame(gameID, game -> new GameData(gameID, null, game.blackUsername(), game.gameName(),
+                game.game()));
+
+        assertThrows(ForbiddenException.class, () -> gameService.seatBot(existingAuthToken, gameID, "WHITE"));
+        assertNull(gameAccess.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    @DisplayName("Concurrent Joins Take Seat Once")
+    void concurrentJoinsTakeSeatOnce() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        int players = 8;
+        for (int i = 0; i < players; i++) {
+            authAccess.addAuth(new RegisterResponse("racer" + i, "race" + i));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(players);
+        List<Future<Boolean>> joins = new ArrayList<>();
+        try {
+            for (int i = 0; i < players; i++) {
+                String token = "race" + i;
+                joins.add(pool.submit(() -> {
+                    start.await();
+                    return gameService.joinGame(token, gameID, "WHITE");
+                }));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> join : joins) {
+                won += join.get() ? 1 : 0;
+            }
+            assertEquals(1, won);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Update Retries After Conflict")
+    void updateRetriesAfterConflict() throws Exception {
+        int gameID = gameService.createGame(existingAuthToken, "Game");
+        int[] attempts = {0};
+
+        GameData updated = gameService.updateGame(gameID, current -> {
+            if (attempts[0]++ == 0) {
+                // Another writer gets in between this update's read and write
+                gameAccess.updateGame(new GameData(gameID, "intruder", null, "Game", current.game()));
+            }
+            return new GameData(gameID, current.whiteUsername(), "user1", current.gameName(), current.game());
+        });
+
+        assertEquals(2, attempts[0]);
+        assertEquals(1, gameService.updateConflicts());
+        assertEquals("intruder", updated.whiteUsername());
+        assertEquals("user1", gameAccess.getGame(gameID).blackUsername());
+    }
+}
@@ -34,6 +34,13 @@ public class UserServiceTest {
         assertThrows(BadRequestException.class, () -> userService.register(badUser));
     }
 
+    @Test
+    @DisplayName("Register Bot Name")
+    void registerBotNameThrowsForbidden() {
+        UserData impostor = new UserData(BotPlayer.USERNAME, "pass", "email@example.com");
+        assertThrows(ForbiddenException.class, () -> userService.register(impostor));
+    }
+
     @Test
     @DisplayName("Register Already Taken")
     void registerAlreadyTakenThrowsForbidden() throws Exception {
@@ -0,0 +1,23 @@
+package chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for working out whether a side is mated, from
+ * {@link ChessGame#isInCheckmate} or {@link ChessGame#getStatus}
+ */
+@Name("chess.Checkmate")
+@Label("Checkmate Check")
+@Category({"Chess", "Rules"})
+@Description("Searching a side's moves for a way out of mate")
+class CheckmateEvent extends jdk.jfr.Event {
+
+    @Label("Team")
+    String team;
+
+    @Label("Result")
+    String result;
+}
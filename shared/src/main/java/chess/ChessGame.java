@@ -1,7 +1,9 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import chess.ChessPiece.PieceType;
 
@@ -13,13 +15,116 @@ import chess.ChessPiece.PieceType;
  */
 public class ChessGame {
 
+    /** Halfmoves without a capture or pawn move after which the game is drawn */
+    private static final int FIFTY_MOVE_LIMIT = 100;
+
+    // Bits of castlingRights, in FEN order
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    private static final String CASTLING_LETTERS = "KQkq";
+
     private ChessBoard board;
     private TeamColor turn;
+    private int moveSequence;
+    // Kept up to date by every move rather than recomputed from the board
+    private long positionHash;
+    private int halfmoveClock;
+    // Hashes of the positions since the last capture or pawn move, ending with the
+    // current one. No earlier position can ever recur, so nothing older is kept.
+    private long[] history = new long[16];
+    private int historySize;
+    // Pieces on the board by Zobrist piece index, and bishops by the colour of
+    // their square, so dead positions are recognised without scanning the board
+    private int[] pieceCounts = new int[12];
+    private int lightSquareBishops;
+    private int darkSquareBishops;
+    // Which castling moves are still possible, as far as earlier moves go
+    private int castlingRights;
+    // The column a pawn just passed over with a double step, or 0 if the last move was not
+    // one or nothing can capture the pawn en passant, so the step changes nothing
+    private int enPassantColumn;
 
     public ChessGame() {
         board = new ChessBoard();
         board.resetBoard();
         turn = TeamColor.WHITE;
+        recomputeFromBoard();
+    }
+
+    private ChessGame(ChessBoard board, TeamColor turn) {
+        this.board = board;
+        this.turn = turn;
+    }
+
+    /**
+     * Starts the history and counters afresh from the current position, for when
+     * the board or turn is replaced rather than reached by a move. Any king and rook
+     * still on their starting squares are taken not to have moved.
+     */
+    private void recomputeFromBoard() {
+        castlingRights = 0;
+        for (TeamColor team : TeamColor.values()) {
+            int row = homeRow(team);
+            if (isPiece(row, 5, team, PieceType.KING)) {
+                if (isPiece(row, 8, team, PieceType.ROOK)) {
+                    castlingRights |= kingsideRight(team);
+                }
+                if (isPiece(row, 1, team, PieceType.ROOK)) {
+                    castlingRights |= queensideRight(team);
+                }
+            }
+        }
+        enPassantColumn = 0;
+        restartHistory();
+
+        Arrays.fill(pieceCounts, 0);
+        lightSquareBishops = 0;
+        darkSquareBishops = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.board[row - 1][col - 1];
+                if (piece != null) {
+                    countPiece(piece, row, col, 1);
+                }
+            }
+        }
+    }
+
+    private void restartHistory() {
+        positionHash = Zobrist.hash(board, turn, castlingRights, enPassantColumn);
+        halfmoveClock = 0;
+        history[0] = positionHash;
+        historySize = 1;
+    }
+
+    private static int homeRow(TeamColor team) {
+        return team == TeamColor.WHITE ? 1 : 8;
+    }
+
+    private static int kingsideRight(TeamColor team) {
+        return team == TeamColor.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+    }
+
+    private static int queensideRight(TeamColor team) {
+        return team == TeamColor.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+    }
+
+    private boolean isPiece(int row, int col, TeamColor team, PieceType type) {
+        ChessPiece piece = board.board[row - 1][col - 1];
+        return piece != null && piece.getTeamColor() == team && piece.getPieceType() == type;
+    }
+
+    private void countPiece(ChessPiece piece, int row, int col, int delta) {
+        pieceCounts[Zobrist.pieceIndex(piece)] += delta;
+        if (piece.getPieceType() == PieceType.BISHOP) {
+            if ((row + col) % 2 == 0) {
+                darkSquareBishops += delta;
+            } else {
+                lightSquareBishops += delta;
+            }
+        }
     }
 
     /**
@@ -36,6 +141,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         this.turn = team;
+        recomputeFromBoard();
     }
 
     /**
@@ -46,6 +152,128 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Status of the side to move after the last move was played
+     */
+    public enum GameStatus {
+        ACTIVE,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW_BY_REPETITION,
+        DRAW_BY_FIFTY_MOVES,
+        DRAW_BY_INSUFFICIENT_MATERIAL;
+
+        /**
+         * @return whether no more moves can be played
+         */
+        public boolean endsGame() {
+            return this != ACTIVE && this != CHECK;
+        }
+    }
+
+    /**
+     * @return How many moves have been made in this game. Each successful
+     * {@link #makeMove} increments it by one, so it doubles as a sequence number
+     * for the game's state.
+     */
+    public int getMoveSequence() {
+        return moveSequence;
+    }
+
+    /**
+     * Sets the move sequence, for restoring a game that was encoded without it
+     *
+     * @param moveSequence how many moves have been made in this game
+     */
+    public void setMoveSequence(int moveSequence) {
+        this.moveSequence = moveSequence;
+    }
+
+    /**
+     * @return A hash of the piece placement, side to move, castling rights and en
+     * passant column that is stable across JVMs, so two copies of a game can check
+     * they are in sync
+     */
+    public long getPositionHash() {
+        return positionHash;
+    }
+
+    /**
+     * @return halfmoves played since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return the hashes of the positions since the last capture or pawn move,
+     * oldest first and ending with the current position
+     */
+    public long[] getPositionHistory() {
+        return Arrays.copyOf(history, historySize);
+    }
+
+    /**
+     * Restores the history of a game that was encoded with it. Call after the board
+     * and turn have been set, as setting either starts the history afresh.
+     *
+     * @param halfmoveClock halfmoves played since the last capture or pawn move
+     * @param positions     as returned by {@link #getPositionHistory()}, or empty if unknown
+     */
+    public void setPositionHistory(int halfmoveClock, long[] positions) {
+        this.halfmoveClock = halfmoveClock;
+        if (positions.length > 0 && positions[positions.length - 1] == positionHash) {
+            history = Arrays.copyOf(positions, Math.max(16, positions.length));
+            historySize = positions.length;
+        }
+    }
+
+    /**
+     * @return the castling moves still allowed by earlier moves, in FEN notation
+     * such as {@code KQkq}, or {@code -} if there are none
+     */
+    public String getCastlingRights() {
+        StringBuilder rights = new StringBuilder();
+        for (int i = 0; i < CASTLING_LETTERS.length(); i++) {
+            if ((castlingRights & (1 << i)) != 0) {
+                rights.append(CASTLING_LETTERS.charAt(i));
+            }
+        }
+        return rights.isEmpty() ? "-" : rights.toString();
+    }
+
+    /**
+     * @return the column, 1 through 8, of the square a pawn passed over with a
+     * double step on the last move, or 0 if the last move was not one or the pawn
+     * cannot be captured en passant
+     */
+    public int getEnPassantColumn() {
+        return enPassantColumn;
+    }
+
+    /**
+     * Restores the castling rights and en passant column of a game that was encoded
+     * with them. Call after the board and turn have been set, as setting either
+     * works both out afresh, and before {@link #setPositionHistory}.
+     *
+     * @param castlingRights  as returned by {@link #getCastlingRights()}
+     * @param enPassantColumn as returned by {@link #getEnPassantColumn()}
+     */
+    public void setCastlingAndEnPassant(String castlingRights, int enPassantColumn) {
+        int rights = 0;
+        for (char letter : castlingRights.toCharArray()) {
+            int bit = CASTLING_LETTERS.indexOf(letter);
+            if (bit >= 0) {
+                rights |= 1 << bit;
+            }
+        }
+        this.castlingRights = rights;
+        this.enPassantColumn = enPassantColumn >= 1 && enPassantColumn <= 8
+                ? capturableEnPassantColumn(enPassantColumn) : 0;
+        restartHistory();
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -58,21 +286,116 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
+        ValidMovesEvent event = new ValidMovesEvent();
+        event.begin();
         Collection<ChessMove> moves = piece.pieceMoves(board, startPosition);
+        if (piece.getPieceType() == PieceType.KING) {
+            addCastlingMoves(piece.getTeamColor(), startPosition, moves);
+        } else if (piece.getPieceType() == PieceType.PAWN) {
+            addEnPassantMove(piece.getTeamColor(), startPosition, moves);
+        }
         Collection<ChessMove> validMoves = new ArrayList<>();
         for (ChessMove move : moves) {
-            ChessBoard test = board.copy();
-            test.addPiece(move.getStartPosition(), null);
-            test.addPiece(move.getEndPosition(), piece);
-            ChessGame testGame = new ChessGame();
-            testGame.setBoard(test);
+            // Only used to look for check, so it needs no history
+            ChessGame testGame = new ChessGame(boardAfter(move, piece), turn);
             if (!testGame.isInCheck(piece.getTeamColor())) {
                 validMoves.add(move);
             }
         }
+        if (event.shouldCommit()) {
+            event.position = startPosition.toString();
+            event.moveCount = validMoves.size();
+            event.commit();
+        }
         return validMoves;
     }
 
+    /**
+     * Adds the castling moves the king can make, other than into check, which is
+     * ruled out with every other move. The king may not castle out of or through check.
+     */
+    private void addCastlingMoves(TeamColor team, ChessPosition start, Collection<ChessMove> moves) {
+        int row = homeRow(team);
+        if (start.getRow() != row || start.getColumn() != 5) {
+            return;
+        }
+        TeamColor enemy = opponent(team);
+        if ((castlingRights & kingsideRight(team)) != 0 && isPiece(row, 8, team, PieceType.ROOK)
+                && board.board[row - 1][5] == null && board.board[row - 1][6] == null
+                && !isAttacked(row, 5, enemy) && !isAttacked(row, 6, enemy)) {
+            moves.add(new ChessMove(start, new ChessPosition(row, 7), null));
+        }
+        if ((castlingRights & queensideRight(team)) != 0 && isPiece(row, 1, team, PieceType.ROOK)
+                && board.board[row - 1][1] == null && board.board[row - 1][2] == null
+                && board.board[row - 1][3] == null
+                && !isAttacked(row, 5, enemy) && !isAttacked(row, 4, enemy)) {
+            moves.add(new ChessMove(start, new ChessPosition(row, 3), null));
+        }
+    }
+
+    /**
+     * Adds the en passant capture of a pawn that just made a double step past this
+     * one, which is only possible straight after that step
+     */
+    private void addEnPassantMove(TeamColor team, ChessPosition start, Collection<ChessMove> moves) {
+        int row = team == TeamColor.WHITE ? 5 : 4;
+        if (enPassantColumn != 0 && team == turn && start.getRow() == row
+                && Math.abs(start.getColumn() - enPassantColumn) == 1) {
+            int direction = team == TeamColor.WHITE ? 1 : -1;
+            moves.add(new ChessMove(start, new ChessPosition(row + direction, enPassantColumn), null));
+        }
+    }
+
+    /**
+     * @return the column of the pawn that just made a double step if a pawn of the
+     * side to move can legally capture it en passant, or 0. Otherwise the position
+     * is the same, for repetition, as if the pawn had got there some other way.
+     */
+    private int capturableEnPassantColumn(int column) {
+        int row = turn == TeamColor.WHITE ? 5 : 4;
+        int direction = turn == TeamColor.WHITE ? 1 : -1;
+        if (!isPiece(row, column, opponent(turn), PieceType.PAWN)) {
+            return 0;
+        }
+        for (int col = column - 1; col <= column + 1; col += 2) {
+            if (col >= 1 && col <= 8 && isPiece(row, col, turn, PieceType.PAWN)) {
+                ChessMove capture = new ChessMove(new ChessPosition(row, col),
+                        new ChessPosition(row + direction, column), null);
+                ChessGame testGame = new ChessGame(boardAfter(capture, board.board[row - 1][col - 1]), turn);
+                if (!testGame.isInCheck(turn)) {
+                    return column;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a copy of the board with the move played, far enough to tell whether
+     * it leaves the mover in check
+     */
+    private ChessBoard boardAfter(ChessMove move, ChessPiece piece) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        ChessBoard test = board.copy();
+        test.addPiece(start, null);
+        test.addPiece(end, piece);
+        int columns = end.getColumn() - start.getColumn();
+        if (piece.getPieceType() == PieceType.PAWN && columns != 0 && board.getPiece(end) == null) {
+            test.addPiece(new ChessPosition(start.getRow(), end.getColumn()), null);
+        } else if (piece.getPieceType() == PieceType.KING && Math.abs(columns) == 2) {
+            int rookFrom = columns > 0 ? 8 : 1;
+            int rookTo = columns > 0 ? 6 : 4;
+            test.board[start.getRow() - 1][rookTo - 1] = test.board[start.getRow() - 1][rookFrom - 1];
+            test.board[start.getRow() - 1][rookFrom - 1] = null;
+        }
+        return test;
+    }
+
+    private static TeamColor opponent(TeamColor team) {
+        return team == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -80,6 +403,21 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
+        MakeMoveEvent event = new MakeMoveEvent();
+        event.begin();
+        try {
+            applyMove(move);
+            event.valid = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.move = String.valueOf(move);
+                event.moveSequence = moveSequence;
+                event.commit();
+            }
+        }
+    }
+
+    private void applyMove(ChessMove move) throws InvalidMoveException {
         ChessPiece piece = board.getPiece(move.getStartPosition());
         if (piece == null) {
             throw new InvalidMoveException();
@@ -91,15 +429,149 @@ public class ChessGame {
         if (!validMoves.contains(move)) {
             throw new InvalidMoveException();
         }
-        board.addPiece(move.getStartPosition(), null);
-        board.addPiece(move.getEndPosition(), piece);
+        applyLegalMove(move);
+    }
+
+    /**
+     * Plays a move already known to be legal in this position, skipping validation
+     */
+    void applyLegalMove(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        ChessPiece piece = board.getPiece(start);
+        ChessPiece captured = board.getPiece(end);
+        board.addPiece(start, null);
+        board.addPiece(end, piece);
+        positionHash ^= Zobrist.pieceKey(piece, start.getRow(), start.getColumn());
+        countPiece(piece, start.getRow(), start.getColumn(), -1);
+        if (captured != null) {
+            positionHash ^= Zobrist.pieceKey(captured, end.getRow(), end.getColumn());
+            countPiece(captured, end.getRow(), end.getColumn(), -1);
+        }
+        int row = start.getRow();
+        int columns = end.getColumn() - start.getColumn();
+        if (piece.getPieceType() == PieceType.PAWN && columns != 0 && captured == null) {
+            // En passant: the captured pawn is beside the start square, not on the end square
+            captured = board.board[row - 1][end.getColumn() - 1];
+            board.board[row - 1][end.getColumn() - 1] = null;
+            positionHash ^= Zobrist.pieceKey(captured, row, end.getColumn());
+            countPiece(captured, row, end.getColumn(), -1);
+        } else if (piece.getPieceType() == PieceType.KING && Math.abs(columns) == 2) {
+            int rookFrom = columns > 0 ? 8 : 1;
+            int rookTo = columns > 0 ? 6 : 4;
+            ChessPiece rook = board.board[row - 1][rookFrom - 1];
+            board.board[row - 1][rookFrom - 1] = null;
+            board.board[row - 1][rookTo - 1] = rook;
+            positionHash ^= Zobrist.pieceKey(rook, row, rookFrom) ^ Zobrist.pieceKey(rook, row, rookTo);
+        }
+
+        int rights = castlingRights & ~rightsFrom(start) & ~rightsFrom(end);
+        if (piece.getPieceType() == PieceType.KING) {
+            rights &= ~(kingsideRight(piece.getTeamColor()) | queensideRight(piece.getTeamColor()));
+        }
+        positionHash ^= Zobrist.castlingKey(castlingRights) ^ Zobrist.castlingKey(rights);
+        castlingRights = rights;
 
         //add pawn promotion
         if (piece.getPieceType() == PieceType.PAWN && move.getPromotionPiece() != null) {
-            board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+            board.addPiece(end, new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
         }
+        positionHash ^= Zobrist.pieceKey(board.getPiece(end), end.getRow(), end.getColumn());
+        countPiece(board.getPiece(end), end.getRow(), end.getColumn(), 1);
 
         turn = (turn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        positionHash ^= Zobrist.BLACK_TO_MOVE;
+        positionHash ^= Zobrist.enPassantKey(enPassantColumn);
+        enPassantColumn = piece.getPieceType() == PieceType.PAWN && Math.abs(end.getRow() - row) == 2
+                ? capturableEnPassantColumn(start.getColumn()) : 0;
+        positionHash ^= Zobrist.enPassantKey(enPassantColumn);
+        moveSequence++;
+
+        if (piece.getPieceType() == PieceType.PAWN || captured != null) {
+            halfmoveClock = 0;
+            historySize = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+        }
+        history[historySize++] = positionHash;
+    }
+
+    /**
+     * @return the castling rights lost when a piece moves from or to the square,
+     * which only a king or rook standing on its starting square has
+     */
+    private static int rightsFrom(ChessPosition square) {
+        int rank = square.getRow() == 1 ? 0 : square.getRow() == 8 ? 2 : -1;
+        if (rank < 0) {
+            return 0;
+        }
+        return switch (square.getColumn()) {
+            case 1 -> WHITE_QUEENSIDE << rank;
+            case 8 -> WHITE_KINGSIDE << rank;
+            case 5 -> (WHITE_KINGSIDE | WHITE_QUEENSIDE) << rank;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return whether the current position has occurred twice before with the same
+     * side to move. Only positions since the last capture or pawn move can match,
+     * so the scan never goes further back than that.
+     */
+    private boolean isThreefoldRepetition() {
+        int seen = 0;
+        for (int i = historySize - 3; i >= 0; i -= 2) {
+            if (history[i] == positionHash && ++seen == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether neither side can ever checkmate, whatever is played: bare
+     * kings, a king and one minor piece against a king, or kings and bishops that
+     * all stand on squares of the same colour
+     */
+    public boolean hasInsufficientMaterial() {
+        int knights = 0;
+        for (TeamColor team : TeamColor.values()) {
+            int offset = team == TeamColor.WHITE ? 0 : 6;
+            if (pieceCounts[offset + PieceType.PAWN.ordinal()] > 0
+                    || pieceCounts[offset + PieceType.ROOK.ordinal()] > 0
+                    || pieceCounts[offset + PieceType.QUEEN.ordinal()] > 0) {
+                return false;
+            }
+            knights += pieceCounts[offset + PieceType.KNIGHT.ordinal()];
+        }
+        int bishops = lightSquareBishops + darkSquareBishops;
+        if (knights == 0) {
+            return lightSquareBishops == 0 || darkSquareBishops == 0;
+        }
+        return knights == 1 && bishops == 0;
+    }
+
+    /**
+     * Adds the draws by material and by history to the status of the position,
+     * which only covers checkmate and stalemate. Those two take precedence.
+     */
+    GameStatus withDraws(GameStatus positional) {
+        if (positional.endsGame()) {
+            return positional;
+        }
+        if (hasInsufficientMaterial()) {
+            return GameStatus.DRAW_BY_INSUFFICIENT_MATERIAL;
+        }
+        if (isThreefoldRepetition()) {
+            return GameStatus.DRAW_BY_REPETITION;
+        }
+        if (halfmoveClock >= FIFTY_MOVE_LIMIT) {
+            return GameStatus.DRAW_BY_FIFTY_MOVES;
+        }
+        return positional;
     }
 
     /**
@@ -147,20 +619,30 @@ public class ChessGame {
         if (kingPosition == null) {
             return false;
         }
+        return isAttacked(kingPosition.getRow(), kingPosition.getColumn(), opponent(teamColor));
+    }
 
-        TeamColor enemyColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-
+    /**
+     * @return whether any piece of the given team could capture on the square,
+     * whether or not it is occupied
+     */
+    private boolean isAttacked(int row, int col, TeamColor enemyColor) {
+        ChessPosition target = new ChessPosition(row, col);
         // Iterate through all board positions to find enemy pieces
         for (int i = 1; i <= 8; i++) {
             for (int j = 1; j <= 8; j++) {
-                ChessPosition enemyPos = new ChessPosition(i, j);
-                ChessPiece enemyPiece = board.getPiece(enemyPos);
-
-                // If an enemy piece exists, check if it attacks the king
-                if (enemyPiece != null && enemyPiece.getTeamColor() == enemyColor) {
-                    if (pieceAttacksPosition(enemyPiece, enemyPos, kingPosition)) {
+                ChessPiece enemyPiece = board.board[i - 1][j - 1];
+                if (enemyPiece == null || enemyPiece.getTeamColor() != enemyColor) {
+                    continue;
+                }
+                if (enemyPiece.getPieceType() == PieceType.PAWN) {
+                    // Pawns only capture diagonally, and their moves list that only onto enemy pieces
+                    int direction = enemyColor == TeamColor.WHITE ? 1 : -1;
+                    if (row == i + direction && Math.abs(col - j) == 1) {
                         return true;
                     }
+                } else if (pieceAttacksPosition(enemyPiece, new ChessPosition(i, j), target)) {
+                    return true;
                 }
             }
         }
@@ -188,6 +670,44 @@ public class ChessGame {
         return true; // No valid moves found for any piece
     }
 
+    /**
+     * @return every legal move for the side to move
+     */
+    public List<ChessMove> legalMoves() {
+        List<ChessMove> moves = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            for (int j = 1; j <= 8; j++) {
+                ChessPosition currentPos = new ChessPosition(i, j);
+                ChessPiece piece = board.getPiece(currentPos);
+                if (piece != null && piece.getTeamColor() == turn) {
+                    moves.addAll(validMoves(currentPos));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @return everything that decides which moves are legal, for telling apart
+     * positions whose hashes collide
+     */
+    byte[] positionKey() {
+        byte[] key = new byte[67];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = board.board[row][col];
+                if (piece != null) {
+                    int code = piece.getPieceType().ordinal() + 1;
+                    key[row * 8 + col] = (byte) (piece.getTeamColor() == TeamColor.WHITE ? code : -code);
+                }
+            }
+        }
+        key[64] = (byte) turn.ordinal();
+        key[65] = (byte) castlingRights;
+        key[66] = (byte) enPassantColumn;
+        return key;
+    }
+
     /**
      * Determines if the given team is in checkmate
      *
@@ -198,7 +718,15 @@ public class ChessGame {
         if (!isInCheck(teamColor)) {
             return false;
         }
-        return hasNoValidMoves(teamColor); // Is in check AND has no valid moves
+        CheckmateEvent event = new CheckmateEvent();
+        event.begin();
+        boolean mated = hasNoValidMoves(teamColor); // Is in check AND has no valid moves
+        if (event.shouldCommit()) {
+            event.team = teamColor.name();
+            event.result = mated ? "CHECKMATE" : "CHECK";
+            event.commit();
+        }
+        return mated;
     }
 
     /**
@@ -215,6 +743,30 @@ public class ChessGame {
         return hasNoValidMoves(teamColor); // Is NOT in check AND has no valid moves
     }
 
+    /**
+     * Determines the status of the team whose turn it is. A legal move never
+     * leaves the mover in check, so only the side to move needs to be examined.
+     *
+     * @return the status of the side to move
+     */
+    public GameStatus getStatus() {
+        CheckmateEvent event = new CheckmateEvent();
+        event.begin();
+        boolean inCheck = isInCheck(turn);
+        GameStatus status;
+        if (hasNoValidMoves(turn)) {
+            status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        } else {
+            status = withDraws(inCheck ? GameStatus.CHECK : GameStatus.ACTIVE);
+        }
+        if (event.shouldCommit()) {
+            event.team = turn.name();
+            event.result = status.name();
+            event.commit();
+        }
+        return status;
+    }
+
     /**
      * Sets this game's chessboard with a given board
      *
@@ -222,6 +774,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        recomputeFromBoard();
     }
 
     /**
@@ -243,6 +796,25 @@ public class ChessGame {
         return gameOver;
     }
 
+    /**
+     * @return an independent copy, so one can be changed without affecting the other
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame(board.copy(), turn);
+        copy.moveSequence = moveSequence;
+        copy.gameOver = gameOver;
+        copy.positionHash = positionHash;
+        copy.halfmoveClock = halfmoveClock;
+        copy.history = history.clone();
+        copy.historySize = historySize;
+        copy.pieceCounts = pieceCounts.clone();
+        copy.lightSquareBishops = lightSquareBishops;
+        copy.darkSquareBishops = darkSquareBishops;
+        copy.castlingRights = castlingRights;
+        copy.enPassantColumn = enPassantColumn;
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -254,7 +826,9 @@ public class ChessGame {
         ChessGame that = (ChessGame) o;
         return (this.turn == that.turn) &&
                 (this.board != null ? this.board.equals(that.board) : that.board == null) &&
-                (this.gameOver == that.gameOver);
+                (this.gameOver == that.gameOver) &&
+                (this.castlingRights == that.castlingRights) &&
+                (this.enPassantColumn == that.enPassantColumn);
     }
 
     @Override
@@ -262,6 +836,8 @@ public class ChessGame {
         int result = (board != null) ? board.hashCode() : 0;
         result = 31 * result + (turn != null ? turn.hashCode() : 0);
         result = 31 * result + (gameOver ? 1 : 0);
+        result = 31 * result + castlingRights;
+        result = 31 * result + enPassantColumn;
         return result;
     }
 }
\ No newline at end of file
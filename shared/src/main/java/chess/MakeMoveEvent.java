@@ -0,0 +1,27 @@
+package chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one {@link ChessGame#makeMove} or {@link PositionCache#makeMove},
+ * valid or not
+ */
+@Name("chess.MakeMove")
+@Label("Make Move")
+@Category({"Chess", "Rules"})
+@Description("Validating and applying a move")
+class MakeMoveEvent extends jdk.jfr.Event {
+
+    @Label("Move")
+    String move;
+
+    @Label("Move Count")
+    @Description("Moves made in the game after this one")
+    int moveSequence;
+
+    @Label("Valid")
+    boolean valid;
+}
@@ -0,0 +1,153 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The legal moves and status of recently seen positions, shared by every game so
+ * positions that recur across games, openings especially, are worked out once.
+ * <p>
+ * Entries are keyed by {@link ChessGame#getPositionHash()} and also hold the full
+ * position, so a hash collision is a miss rather than a wrong answer. Lookups are
+ * lock-free; when the cache is full, a new entry replaces one chosen by the CLOCK
+ * algorithm, which approximates least recently used without touching shared
+ * state on a hit.
+ */
+public class PositionCache {
+
+    /**
+     * What the rules say about one position
+     *
+     * @param moves  every legal move for the side to move
+     * @param status the status of the side to move, judged from the position alone
+     */
+    public record Result(List<ChessMove> moves, ChessGame.GameStatus status) {
+    }
+
+    private static final class Entry {
+        final long hash;
+        final byte[] position;
+        final Result result;
+        volatile boolean referenced;
+
+        Entry(long hash, byte[] position, Result result) {
+            this.hash = hash;
+            this.position = position;
+            this.result = result;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Entry> entries;
+    // The clock face: each slot holds an entry in the map, or null while the cache fills
+    private final Entry[] slots;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PositionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        slots = new Entry[capacity];
+    }
+
+    /**
+     * @return the legal moves and status of the game's current position
+     */
+    public Result lookup(ChessGame game) {
+        long hash = game.getPositionHash();
+        byte[] position = game.positionKey();
+        Entry entry = entries.get(hash);
+        if (entry != null && Arrays.equals(entry.position, position)) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.result;
+        }
+        misses.increment();
+        List<ChessMove> moves = List.copyOf(game.legalMoves());
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        ChessGame.GameStatus status;
+        if (moves.isEmpty()) {
+            status = inCheck ? ChessGame.GameStatus.CHECKMATE : ChessGame.GameStatus.STALEMATE;
+        } else {
+            status = inCheck ? ChessGame.GameStatus.CHECK : ChessGame.GameStatus.ACTIVE;
+        }
+        Result result = new Result(moves, status);
+        insert(new Entry(hash, position, result));
+        return result;
+    }
+
+    /**
+     * Validates and plays a move like {@link ChessGame#makeMove}, using the cache for
+     * both the legality check and the status afterwards. Records the same
+     * {@link MakeMoveEvent}, timing the lookups along with the move.
+     *
+     * @return the status of the side to move after the move, including draws that
+     * depend on the game's history rather than the position alone
+     * @throws InvalidMoveException if the move is not legal in the game's position
+     */
+    public ChessGame.GameStatus makeMove(ChessGame game, ChessMove move) throws InvalidMoveException {
+        MakeMoveEvent event = new MakeMoveEvent();
+        event.begin();
+        try {
+            if (!lookup(game).moves().contains(move)) {
+                throw new InvalidMoveException();
+            }
+            game.applyLegalMove(move);
+            ChessGame.GameStatus status = game.withDraws(lookup(game).status());
+            event.valid = true;
+            return status;
+        } finally {
+            if (event.shouldCommit()) {
+                event.move = String.valueOf(move);
+                event.moveSequence = game.getMoveSequence();
+                event.commit();
+            }
+        }
+    }
+
+    private synchronized void insert(Entry entry) {
+        Entry existing = entries.get(entry.hash);
+        if (existing != null) {
+            // Another thread computed the same position first, or a collision; keep the older one
+            return;
+        }
+        while (true) {
+            Entry victim = slots[hand];
+            if (victim == null) {
+                break;
+            }
+            if (!victim.referenced) {
+                entries.remove(victim.hash, victim);
+                evictions.increment();
+                break;
+            }
+            victim.referenced = false;
+            hand = (hand + 1) % slots.length;
+        }
+        slots[hand] = entry;
+        hand = (hand + 1) % slots.length;
+        entries.put(entry.hash, entry);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
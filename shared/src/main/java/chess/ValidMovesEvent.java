@@ -0,0 +1,25 @@
+package chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one {@link ChessGame#validMoves}. Checking for mate calls
+ * it for every piece, so only slow calls are recorded by default.
+ */
+@Name("chess.ValidMoves")
+@Label("Valid Moves")
+@Category({"Chess", "Rules"})
+@Description("Finding the legal moves of one piece")
+@Threshold("1 ms")
+class ValidMovesEvent extends jdk.jfr.Event {
+
+    @Label("Position")
+    String position;
+
+    @Label("Legal Moves")
+    int moveCount;
+}
@@ -0,0 +1,106 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for hashing chess positions.
+ * <p>
+ * The keys are drawn from a fixed seed so the client and the server compute
+ * the same hash for the same position. The engine hashes its own board with the
+ * same keys, so its positions can be matched against a game's history.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    public static final long BLACK_TO_MOVE;
+    private static final long[] CASTLING_KEYS = new long[4];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        // Drawn after the keys above so those stay the same as before castling was added
+        for (int i = 0; i < CASTLING_KEYS.length; i++) {
+            CASTLING_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++) {
+            EN_PASSANT_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param row   board row, 1 through 8
+     * @param col   board column, 1 through 8
+     * @return the key for the given piece standing on the given square
+     */
+    static long pieceKey(ChessPiece piece, int row, int col) {
+        return PIECE_KEYS[pieceIndex(piece)][(row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * @param pieceIndex as returned by {@link #pieceIndex}
+     * @param square     (row - 1) * 8 + (col - 1)
+     */
+    public static long pieceKey(int pieceIndex, int square) {
+        return PIECE_KEYS[pieceIndex][square];
+    }
+
+    /**
+     * @return 0 through 5 for white pieces by type, 6 through 11 for black
+     */
+    static int pieceIndex(ChessPiece piece) {
+        int index = piece.getPieceType().ordinal();
+        if (piece.getTeamColor() == ChessGame.TeamColor.BLACK) {
+            index += 6;
+        }
+        return index;
+    }
+
+    /**
+     * @param rights castling rights as a bit set
+     * @return the combined key for every right in the set
+     */
+    public static long castlingKey(int rights) {
+        long key = 0;
+        for (int i = 0; i < CASTLING_KEYS.length; i++) {
+            if ((rights & (1 << i)) != 0) {
+                key ^= CASTLING_KEYS[i];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @param column 1 through 8, or 0 for no en passant square
+     */
+    public static long enPassantKey(int column) {
+        return column == 0 ? 0 : EN_PASSANT_KEYS[column - 1];
+    }
+
+    /**
+     * Hashes a whole position from scratch
+     */
+    static long hash(ChessBoard board, ChessGame.TeamColor turn, int castlingRights, int enPassantColumn) {
+        long hash = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.board[row - 1][col - 1];
+                if (piece != null) {
+                    hash ^= pieceKey(piece, row, col);
+                }
+            }
+        }
+        if (turn == ChessGame.TeamColor.BLACK) {
+            hash ^= BLACK_TO_MOVE;
+        }
+        return hash ^ castlingKey(castlingRights) ^ enPassantKey(enPassantColumn);
+    }
+}
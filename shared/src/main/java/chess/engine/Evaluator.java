@@ -0,0 +1,132 @@
+package chess.engine;
+
+/**
+ * Scores a position in centipawns from the side to move's point of view: material,
+ * plus a bonus or penalty for where each piece stands. The king heads for shelter
+ * while there is enough material left to attack it, and for the centre after that.
+ */
+final class Evaluator {
+
+    /** By piece type, in ChessPiece.PieceType order; the king is never traded so counts for nothing */
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    // With less than a rook and a bishop a side left besides pawns, the kings are safe to come out
+    private static final int ENDGAME_MATERIAL = 2 * (500 + 330);
+
+    // Square tables from White's side with a8 first, so a row here reads as the board does
+    private static final int[] KING_MIDDLEGAME = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20,
+    };
+    private static final int[] KING_ENDGAME = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+    private static final int[] QUEEN = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+    };
+    private static final int[] BISHOP = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] KNIGHT = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] ROOK = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0,
+    };
+    private static final int[] PAWN = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0,
+    };
+    // By piece type, with the king's chosen by how much material is left
+    private static final int[][] SQUARE_TABLES = {KING_MIDDLEGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN};
+
+    private Evaluator() {
+    }
+
+    static int evaluate(Position position) {
+        int[] score = new int[2];
+        int pieceMaterial = 0;
+        int[] kings = new int[2];
+        for (int square = 0; square < 64; square++) {
+            int piece = position.pieceAt(square);
+            if (piece == 0) {
+                continue;
+            }
+            int type = Position.type(piece);
+            int color = Position.color(piece);
+            if (type == Position.KING) {
+                kings[color] = square;
+                continue;
+            }
+            if (type != Position.PAWN) {
+                pieceMaterial += PIECE_VALUES[type];
+            }
+            score[color] += PIECE_VALUES[type] + SQUARE_TABLES[type][tableIndex(color, square)];
+        }
+        int[] kingTable = pieceMaterial < ENDGAME_MATERIAL ? KING_ENDGAME : KING_MIDDLEGAME;
+        for (int color = 0; color < 2; color++) {
+            if (position.pieceAt(kings[color]) == Position.code(color, Position.KING)) {
+                score[color] += kingTable[tableIndex(color, kings[color])];
+            }
+        }
+        int side = position.sideToMove();
+        return score[side] - score[side ^ 1];
+    }
+
+    /**
+     * @return where a piece of the given colour on the square is found in a table
+     * laid out from White's side, which Black's pieces read upside down
+     */
+    private static int tableIndex(int color, int square) {
+        int row = square / 8;
+        int col = square % 8;
+        return color == Position.WHITE ? (7 - row) * 8 + col : row * 8 + col;
+    }
+}
@@ -0,0 +1,104 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches one position on several threads at once in the Lazy SMP style: every
+ * thread runs the ordinary search from the same root, and they help one another
+ * only through the {@link TranspositionTable} they share. A thread finishing a
+ * subtree leaves its result where the others will find it, and because they start
+ * at different depths and finish moves at different times, they soon work on
+ * different parts of the tree.
+ * <p>
+ * The calling thread is the main one: its limits and its result decide the search,
+ * unless a helper finished a deeper iteration, and the helpers stop when it does.
+ * One search runs at a time; the helper threads wait between searches.
+ */
+public class ParallelSearcher implements AutoCloseable {
+
+    private final TranspositionTable table;
+    private final Searcher[] searchers;
+    private final ExecutorService helpers;
+
+    /**
+     * @param threads how many threads to search with, the calling thread included
+     */
+    public ParallelSearcher(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        }
+        this.table = table;
+        searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++) {
+            searchers[i] = new Searcher(table);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        helpers = Executors.newFixedThreadPool(Math.max(1, threads - 1), task -> {
+            Thread thread = new Thread(task, "chess-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the game's current position, which is left unchanged and must not
+     * be changed until the search returns
+     */
+    public synchronized SearchResult search(ChessGame game, SearchLimits limits) {
+        long start = System.nanoTime();
+        table.newSearch();
+        SearchControl control = new SearchControl(limits, start);
+        List<Future<SearchResult>> helping = new ArrayList<>();
+        for (int i = 1; i < searchers.length; i++) {
+            Searcher searcher = searchers[i];
+            // Every other helper starts an iteration deeper than the main thread
+            int firstDepth = 1 + i % 2;
+            helping.add(helpers.submit(() -> searcher.search(game, limits, control, firstDepth, false)));
+        }
+
+        SearchResult best;
+        try {
+            best = searchers[0].search(game, limits, control, 1, true);
+        } finally {
+            control.stop();
+        }
+        long nodes = best.nodes();
+        boolean interrupted = false;
+        // Each helper's searcher is used again by the next search, so wait for every one
+        for (Future<SearchResult> future : helping) {
+            while (true) {
+                try {
+                    SearchResult result = future.get();
+                    nodes += result.nodes();
+                    if (result.depth() > best.depth() && result.bestMove() != null) {
+                        best = result;
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search thread failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @Override
+    public void close() {
+        helpers.shutdownNow();
+    }
+}
@@ -0,0 +1,570 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Zobrist;
+
+import java.util.Arrays;
+
+/**
+ * A chess position the search can play moves on and take them back again without
+ * allocating, which {@link ChessGame} cannot do. It follows the same rules and
+ * hashes with the same {@link Zobrist} keys, so a position reached in the search
+ * can be compared with the positions earlier in the game.
+ * <p>
+ * Squares are numbered {@code (row - 1) * 8 + (col - 1)}, so a1 is 0 and h8 is 63.
+ * A square holds 0 when empty, otherwise one more than the piece's Zobrist index:
+ * 1 through 6 for white pieces in {@link ChessPiece.PieceType} order, 7 through 12
+ * for black. Moves are ints packing the start square, the end square and the
+ * promotion piece type, with 0 meaning no move.
+ */
+final class Position {
+
+    static final int WHITE = 0;
+    static final int BLACK = 1;
+
+    // Piece types, in ChessPiece.PieceType order
+    static final int KING = 0;
+    static final int QUEEN = 1;
+    static final int BISHOP = 2;
+    static final int KNIGHT = 3;
+    static final int ROOK = 4;
+    static final int PAWN = 5;
+
+    /** More than the legal moves of any reachable position */
+    static final int MAX_MOVES = 256;
+
+    private static final int WHITE_KINGSIDE = 1;
+    private static final int WHITE_QUEENSIDE = 2;
+    private static final int BLACK_KINGSIDE = 4;
+    private static final int BLACK_QUEENSIDE = 8;
+    private static final String CASTLING_LETTERS = "KQkq";
+
+    private static final int[][] KNIGHT_TARGETS = new int[64][];
+    private static final int[][] KING_TARGETS = new int[64][];
+    // For each square, the squares along each direction in order: four straight, then four diagonal
+    private static final int[][][] RAYS = new int[64][8][];
+    // The castling rights lost when a piece moves from or to each square
+    private static final int[] RIGHTS_LOST = new int[64];
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_TARGETS[square] = targets(square, knightSteps, 1);
+            KING_TARGETS[square] = targets(square, kingSteps, 1);
+            for (int direction = 0; direction < 8; direction++) {
+                RAYS[square][direction] = targets(square, new int[][]{kingSteps[direction]}, 7);
+            }
+        }
+        RIGHTS_LOST[0] = WHITE_QUEENSIDE;
+        RIGHTS_LOST[4] = WHITE_KINGSIDE | WHITE_QUEENSIDE;
+        RIGHTS_LOST[7] = WHITE_KINGSIDE;
+        RIGHTS_LOST[56] = BLACK_QUEENSIDE;
+        RIGHTS_LOST[60] = BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        RIGHTS_LOST[63] = BLACK_KINGSIDE;
+    }
+
+    private static int[] targets(int square, int[][] steps, int reach) {
+        int[] found = new int[8 * reach];
+        int count = 0;
+        for (int[] step : steps) {
+            int row = square / 8;
+            int col = square % 8;
+            for (int i = 0; i < reach; i++) {
+                row += step[0];
+                col += step[1];
+                if (row < 0 || row > 7 || col < 0 || col > 7) {
+                    break;
+                }
+                found[count++] = row * 8 + col;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private final int[] squares = new int[64];
+    private final int[] kingSquares = {-1, -1};
+    private int side;
+    private int castlingRights;
+    // 1 through 8, or 0 if the last move was not a pawn's double step that can be
+    // captured en passant, as in ChessGame
+    private int enPassantColumn;
+    private int halfmoveClock;
+    private long hash;
+
+    // Hashes since the last capture or pawn move, ending with the current position
+    private long[] history;
+    private int historySize;
+
+    // What each move played took away, so it can be put back
+    private int[] undoCaptured = new int[64];
+    private int[] undoState = new int[64];
+    private long[] undoHash = new long[64];
+    private int undoSize;
+
+    Position(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(new ChessPosition(square / 8 + 1, square % 8 + 1));
+            if (piece != null) {
+                int code = code(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? WHITE : BLACK,
+                        piece.getPieceType().ordinal());
+                squares[square] = code;
+                if (type(code) == KING) {
+                    kingSquares[color(code)] = square;
+                }
+            }
+        }
+        side = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+        for (char letter : game.getCastlingRights().toCharArray()) {
+            int bit = CASTLING_LETTERS.indexOf(letter);
+            if (bit >= 0) {
+                castlingRights |= 1 << bit;
+            }
+        }
+        enPassantColumn = game.getEnPassantColumn();
+        halfmoveClock = game.getHalfmoveClock();
+        hash = computeHash();
+
+        long[] earlier = game.getPositionHistory();
+        history = Arrays.copyOf(earlier, Math.max(64, earlier.length * 2));
+        historySize = earlier.length;
+        if (historySize == 0 || history[historySize - 1] != hash) {
+            history[historySize++] = hash;
+        }
+    }
+
+    static int code(int color, int type) {
+        return 1 + type + 6 * color;
+    }
+
+    static int type(int code) {
+        return (code - 1) % 6;
+    }
+
+    static int color(int code) {
+        return (code - 1) / 6;
+    }
+
+    static int move(int from, int to, int promotion) {
+        return from | to << 6 | promotion << 12;
+    }
+
+    static int from(int move) {
+        return move & 63;
+    }
+
+    static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    /**
+     * @return the piece type a pawn becomes, or 0 if the move is not a promotion
+     * (0 is the king, which a pawn can never become)
+     */
+    static int promotion(int move) {
+        return move >>> 12 & 7;
+    }
+
+    private long computeHash() {
+        long h = 0;
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != 0) {
+                h ^= Zobrist.pieceKey(squares[square] - 1, square);
+            }
+        }
+        if (side == BLACK) {
+            h ^= Zobrist.BLACK_TO_MOVE;
+        }
+        return h ^ Zobrist.castlingKey(castlingRights) ^ Zobrist.enPassantKey(enPassantColumn);
+    }
+
+    int sideToMove() {
+        return side;
+    }
+
+    int pieceAt(int square) {
+        return squares[square];
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    /**
+     * @return whether the side to move is in check
+     */
+    boolean inCheck() {
+        return kingSquares[side] >= 0 && isAttacked(kingSquares[side], side ^ 1);
+    }
+
+    /**
+     * @return whether the position has occurred before with the same side to move,
+     * which the search scores as a draw since either side could repeat it again
+     */
+    boolean isRepetition() {
+        for (int i = historySize - 3; i >= 0 && i >= historySize - 1 - halfmoveClock; i -= 2) {
+            if (history[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the fifty-move rule has drawn the game
+     */
+    boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * @return whether any piece of the given colour could capture on the square
+     */
+    boolean isAttacked(int square, int byColor) {
+        int row = square / 8;
+        int col = square % 8;
+        int pawnRow = byColor == WHITE ? row - 1 : row + 1;
+        if (pawnRow >= 0 && pawnRow <= 7) {
+            int pawn = code(byColor, PAWN);
+            if (col > 0 && squares[pawnRow * 8 + col - 1] == pawn
+                    || col < 7 && squares[pawnRow * 8 + col + 1] == pawn) {
+                return true;
+            }
+        }
+        int knight = code(byColor, KNIGHT);
+        for (int target : KNIGHT_TARGETS[square]) {
+            if (squares[target] == knight) {
+                return true;
+            }
+        }
+        int king = code(byColor, KING);
+        for (int target : KING_TARGETS[square]) {
+            if (squares[target] == king) {
+                return true;
+            }
+        }
+        int queen = code(byColor, QUEEN);
+        for (int direction = 0; direction < 8; direction++) {
+            int slider = code(byColor, direction < 4 ? ROOK : BISHOP);
+            for (int target : RAYS[square][direction]) {
+                int piece = squares[target];
+                if (piece != 0) {
+                    if (piece == slider || piece == queen) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the moves of the side to move into {@code moves} from {@code start},
+     * including some that leave the mover in check, which {@link #makeMove} rejects
+     *
+     * @param capturesOnly only captures and promotions, for the quiescence search
+     * @return the index after the last move written
+     */
+    int generateMoves(int[] moves, int start, boolean capturesOnly) {
+        int count = start;
+        for (int from = 0; from < 64; from++) {
+            int piece = squares[from];
+            if (piece == 0 || color(piece) != side) {
+                continue;
+            }
+            switch (type(piece)) {
+                case PAWN -> count = pawnMoves(from, moves, count, capturesOnly);
+                case KNIGHT -> count = stepMoves(from, KNIGHT_TARGETS[from], moves, count, capturesOnly);
+                case KING -> {
+                    count = stepMoves(from, KING_TARGETS[from], moves, count, capturesOnly);
+                    if (!capturesOnly) {
+                        count = castlingMoves(from, moves, count);
+                    }
+                }
+                case BISHOP -> count = slidingMoves(from, 4, 8, moves, count, capturesOnly);
+                case ROOK -> count = slidingMoves(from, 0, 4, moves, count, capturesOnly);
+                case QUEEN -> count = slidingMoves(from, 0, 8, moves, count, capturesOnly);
+                default -> {
+                }
+            }
+        }
+        return count;
+    }
+
+    private int stepMoves(int from, int[] targets, int[] moves, int count, boolean capturesOnly) {
+        for (int to : targets) {
+            int target = squares[to];
+            if (target == 0 ? !capturesOnly : color(target) != side) {
+                moves[count++] = move(from, to, 0);
+            }
+        }
+        return count;
+    }
+
+    private int slidingMoves(int from, int firstDirection, int endDirection, int[] moves, int count,
+                             boolean capturesOnly) {
+        for (int direction = firstDirection; direction < endDirection; direction++) {
+            for (int to : RAYS[from][direction]) {
+                int target = squares[to];
+                if (target == 0) {
+                    if (!capturesOnly) {
+                        moves[count++] = move(from, to, 0);
+                    }
+                    continue;
+                }
+                if (color(target) != side) {
+                    moves[count++] = move(from, to, 0);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int pawnMoves(int from, int[] moves, int count, boolean capturesOnly) {
+        int row = from / 8;
+        int col = from % 8;
+        int forward = side == WHITE ? 8 : -8;
+        int lastRow = side == WHITE ? 7 : 0;
+        int to = from + forward;
+        boolean promotes = to / 8 == lastRow;
+        if (squares[to] == 0) {
+            if (promotes) {
+                count = promotions(from, to, moves, count);
+            } else if (!capturesOnly) {
+                moves[count++] = move(from, to, 0);
+                int startRow = side == WHITE ? 1 : 6;
+                if (row == startRow && squares[to + forward] == 0) {
+                    moves[count++] = move(from, to + forward, 0);
+                }
+            }
+        }
+        for (int columns = -1; columns <= 1; columns += 2) {
+            if (col + columns < 0 || col + columns > 7) {
+                continue;
+            }
+            int capture = to + columns;
+            int target = squares[capture];
+            if (target != 0 && color(target) != side) {
+                if (promotes) {
+                    count = promotions(from, capture, moves, count);
+                } else {
+                    moves[count++] = move(from, capture, 0);
+                }
+            }
+        }
+        int passingRow = side == WHITE ? 4 : 3;
+        if (enPassantColumn != 0 && row == passingRow && Math.abs(col - (enPassantColumn - 1)) == 1) {
+            moves[count++] = move(from, to - col + enPassantColumn - 1, 0);
+        }
+        return count;
+    }
+
+    private static int promotions(int from, int to, int[] moves, int count) {
+        moves[count++] = move(from, to, QUEEN);
+        moves[count++] = move(from, to, KNIGHT);
+        moves[count++] = move(from, to, ROOK);
+        moves[count++] = move(from, to, BISHOP);
+        return count;
+    }
+
+    /**
+     * Castling into check is left for {@link #makeMove} to reject like any other move
+     * into check; out of and through check are ruled out here
+     */
+    private int castlingMoves(int from, int[] moves, int count) {
+        int home = side == WHITE ? 4 : 60;
+        int kingside = side == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = side == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int rook = code(side, ROOK);
+        int enemy = side ^ 1;
+        if (from != home) {
+            return count;
+        }
+        if ((castlingRights & kingside) != 0 && squares[home + 3] == rook
+                && squares[home + 1] == 0 && squares[home + 2] == 0
+                && !isAttacked(home, enemy) && !isAttacked(home + 1, enemy)) {
+            moves[count++] = move(home, home + 2, 0);
+        }
+        if ((castlingRights & queenside) != 0 && squares[home - 4] == rook
+                && squares[home - 1] == 0 && squares[home - 2] == 0 && squares[home - 3] == 0
+                && !isAttacked(home, enemy) && !isAttacked(home - 1, enemy)) {
+            moves[count++] = move(home, home - 2, 0);
+        }
+        return count;
+    }
+
+    /**
+     * @return the piece a move takes, which for en passant is not on its end square,
+     * or 0 if it takes nothing
+     */
+    int capturedBy(int move) {
+        int to = to(move);
+        if (squares[to] != 0) {
+            return squares[to];
+        }
+        int piece = squares[from(move)];
+        if (type(piece) == PAWN && (from(move) - to) % 8 != 0) {
+            return code(side ^ 1, PAWN);
+        }
+        return 0;
+    }
+
+    /**
+     * Plays a move from {@link #generateMoves}, unless it would leave the mover in check
+     *
+     * @return false, with the position unchanged, if the move is not legal
+     */
+    boolean makeMove(int move) {
+        int from = from(move);
+        int to = to(move);
+        int piece = squares[from];
+        int captured = squares[to];
+        int mover = side;
+
+        if (undoSize == undoHash.length) {
+            undoCaptured = Arrays.copyOf(undoCaptured, undoSize * 2);
+            undoState = Arrays.copyOf(undoState, undoSize * 2);
+            undoHash = Arrays.copyOf(undoHash, undoSize * 2);
+        }
+        undoState[undoSize] = castlingRights | enPassantColumn << 4 | halfmoveClock << 8;
+        undoHash[undoSize] = hash;
+
+        squares[from] = 0;
+        hash ^= Zobrist.pieceKey(piece - 1, from);
+        if (captured != 0) {
+            hash ^= Zobrist.pieceKey(captured - 1, to);
+        }
+        int type = type(piece);
+        if (type == PAWN && captured == 0 && (to - from) % 8 != 0) {
+            // En passant: the captured pawn is beside the start square, not on the end square
+            int passed = from - from % 8 + to % 8;
+            captured = squares[passed];
+            squares[passed] = 0;
+            hash ^= Zobrist.pieceKey(captured - 1, passed);
+        } else if (type == KING) {
+            kingSquares[mover] = to;
+            if (Math.abs(to - from) == 2) {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = to > from ? from + 1 : from - 1;
+                squares[rookTo] = squares[rookFrom];
+                squares[rookFrom] = 0;
+                hash ^= Zobrist.pieceKey(squares[rookTo] - 1, rookFrom) ^ Zobrist.pieceKey(squares[rookTo] - 1, rookTo);
+            }
+        }
+        undoCaptured[undoSize++] = captured;
+
+        int placed = promotion(move) != 0 ? code(mover, promotion(move)) : piece;
+        squares[to] = placed;
+        hash ^= Zobrist.pieceKey(placed - 1, to);
+
+        int rights = castlingRights & ~RIGHTS_LOST[from] & ~RIGHTS_LOST[to];
+        if (type == KING) {
+            rights &= mover == WHITE ? ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) : ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        }
+        hash ^= Zobrist.castlingKey(castlingRights) ^ Zobrist.castlingKey(rights);
+        castlingRights = rights;
+        hash ^= Zobrist.enPassantKey(enPassantColumn);
+
+        side ^= 1;
+        hash ^= Zobrist.BLACK_TO_MOVE;
+        enPassantColumn = type == PAWN && Math.abs(to - from) == 16 && canCaptureEnPassant(from, to)
+                ? to % 8 + 1 : 0;
+        hash ^= Zobrist.enPassantKey(enPassantColumn);
+        halfmoveClock = type == PAWN || captured != 0 ? 0 : halfmoveClock + 1;
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+        }
+        history[historySize++] = hash;
+
+        if (kingSquares[mover] >= 0 && isAttacked(kingSquares[mover], side)) {
+            undoMove(move);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a pawn of the side to move can capture the pawn that just
+     * stepped from one square to the other en passant without leaving its king in check
+     */
+    private boolean canCaptureEnPassant(int from, int to) {
+        int pawn = code(side, PAWN);
+        int passed = (from + to) / 2;
+        for (int columns = -1; columns <= 1; columns += 2) {
+            int col = to % 8 + columns;
+            if (col < 0 || col > 7 || squares[to + columns] != pawn) {
+                continue;
+            }
+            int capturer = to + columns;
+            int stepped = squares[to];
+            squares[capturer] = 0;
+            squares[to] = 0;
+            squares[passed] = pawn;
+            boolean legal = kingSquares[side] < 0 || !isAttacked(kingSquares[side], side ^ 1);
+            squares[passed] = 0;
+            squares[to] = stepped;
+            squares[capturer] = pawn;
+            if (legal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes back the last move played with {@link #makeMove}
+     */
+    void undoMove(int move) {
+        int from = from(move);
+        int to = to(move);
+        undoSize--;
+        historySize--;
+        side ^= 1;
+        int state = undoState[undoSize];
+        castlingRights = state & 15;
+        enPassantColumn = state >>> 4 & 15;
+        halfmoveClock = state >>> 8;
+        hash = undoHash[undoSize];
+
+        int placed = squares[to];
+        int piece = promotion(move) != 0 ? code(side, PAWN) : placed;
+        int captured = undoCaptured[undoSize];
+        squares[from] = piece;
+        squares[to] = 0;
+        int type = type(piece);
+        // A diagonal pawn move onto the square a pawn had just passed over can only be en passant
+        if (type == PAWN && (to - from) % 8 != 0 && to / 8 == (side == WHITE ? 5 : 2)
+                && enPassantColumn == to % 8 + 1) {
+            squares[from - from % 8 + to % 8] = captured;
+        } else if (captured != 0) {
+            squares[to] = captured;
+        }
+        if (type == KING) {
+            kingSquares[side] = from;
+            if (Math.abs(to - from) == 2) {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = to > from ? from + 1 : from - 1;
+                squares[rookFrom] = squares[rookTo];
+                squares[rookTo] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the move as the rest of the code knows it
+     */
+    static ChessMove toChessMove(int move) {
+        int from = from(move);
+        int to = to(move);
+        int promotion = promotion(move);
+        return new ChessMove(new ChessPosition(from / 8 + 1, from % 8 + 1), new ChessPosition(to / 8 + 1, to % 8 + 1),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion]);
+    }
+}
@@ -0,0 +1,48 @@
+package chess.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The limits of one search and whether it has been stopped, shared by every thread
+ * taking part. Each thread counts positions on its own and adds them here every so
+ * often, so the threads rarely touch the shared count.
+ */
+final class SearchControl {
+
+    private final long deadline;
+    private final long nodeLimit;
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean stopped;
+
+    SearchControl(SearchLimits limits, long startNanos) {
+        this.deadline = startNanos + limits.time().toNanos();
+        this.nodeLimit = limits.nodes();
+    }
+
+    /**
+     * Adds positions visited since the last call and checks the limits
+     *
+     * @return whether the search has to stop
+     */
+    boolean addNodes(long count) {
+        if (nodes.addAndGet(count) >= nodeLimit || System.nanoTime() - deadline > 0) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * @return how many more positions may be visited, as far as has been counted
+     */
+    long remainingNodes() {
+        return nodeLimit - nodes.get();
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+}
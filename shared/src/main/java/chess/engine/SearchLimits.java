@@ -0,0 +1,36 @@
+package chess.engine;
+
+import java.time.Duration;
+
+/**
+ * When a search stops deepening. Whichever limit is reached first ends it, and the
+ * best move of the deepest finished iteration is played.
+ *
+ * @param depth the deepest iteration to search, in halfmoves
+ * @param nodes how many positions to visit at most
+ * @param time  how long to search at most
+ */
+public record SearchLimits(int depth, long nodes, Duration time) {
+
+    /** Deeper than any search finishes in practice */
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || nodes < 1 || time.isNegative() || time.isZero()) {
+            throw new IllegalArgumentException("Search limits must be positive");
+        }
+        depth = Math.min(depth, MAX_DEPTH);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Duration.ofDays(1));
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, Duration.ofDays(1));
+    }
+
+    public static SearchLimits time(Duration time) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, time);
+    }
+}
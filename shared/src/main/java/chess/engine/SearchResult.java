@@ -0,0 +1,23 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.time.Duration;
+
+/**
+ * @param bestMove the move to play, or null if the side to move has none
+ * @param score    in centipawns from the side to move's point of view, or within
+ *                 {@link Searcher#MAX_PLY} of {@link Searcher#MATE} when a mate was found
+ * @param depth    the deepest iteration that finished
+ * @param nodes    positions visited, quiescence search included
+ * @param elapsed  how long the search took
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, Duration elapsed) {
+
+    /**
+     * @return whether the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) > Searcher.MATE - Searcher.MAX_PLY;
+    }
+}
@@ -0,0 +1,385 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Finds a good move by alpha-beta search, deepening one halfmove at a time until a
+ * {@link SearchLimits limit} is reached. Captures are followed past the nominal
+ * depth until the position is quiet, so a capture is never scored without the
+ * recapture, and moves are tried in the order most likely to cut the search short:
+ * the previous iteration's best first, then captures of the most valuable piece by
+ * the least valuable one, then quiet moves that refuted other lines.
+ * <p>
+ * Every position searched is recorded in a {@link TranspositionTable}, so one
+ * reached again by a different order of moves is not searched twice, and each
+ * iteration starts from the best moves the last one found deeper in the tree.
+ * <p>
+ * A searcher keeps its scratch space between searches and is not thread-safe, so
+ * give each thread its own; several may share one table. A search stops early,
+ * with the best move found so far, if its thread is interrupted.
+ */
+public class Searcher {
+
+    /** The score of being mated right now; a mate further off scores one less per halfmove */
+    public static final int MATE = 100_000;
+    /** The deepest the search goes, checks and captures included */
+    public static final int MAX_PLY = 128;
+
+    private static final int INFINITY = MATE + 1;
+    // How often the clock and interrupt flag are looked at, in nodes
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** Enough for a single search to rarely have to overwrite what it found */
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    // Move ordering bands: the table's best move, captures and promotions, then killers, then quiet moves by history
+    private static final int HASH_ORDER = 1 << 29;
+    private static final int CAPTURE_ORDER = 1 << 28;
+    private static final int KILLER_ORDER = 1 << 27;
+    private static final int HISTORY_LIMIT = 1 << 26;
+
+    private final int[][] moves = new int[MAX_PLY][Position.MAX_MOVES];
+    private final int[][] order = new int[MAX_PLY][Position.MAX_MOVES];
+    // Two quiet moves per ply that last caused a cutoff there
+    private final int[][] killers = new int[MAX_PLY][2];
+    // How much each quiet move, by piece and end square, has caused cutoffs anywhere
+    private final int[][] history = new int[12][64];
+
+    private final TranspositionTable table;
+
+    private Position position;
+    private SearchControl control;
+    private long nodes;
+    // Nodes not yet added to the control, and how many to count before adding them
+    private int uncounted;
+    private int nextCount;
+    private boolean stopped;
+
+    public Searcher() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    public Searcher(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Searches the game's current position, which is left unchanged
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        long start = System.nanoTime();
+        table.newSearch();
+        SearchResult result = search(game, limits, new SearchControl(limits, start), 1, true);
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), result.nodes(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Searches as one of several threads sharing the control and the table. Only
+     * the main thread decides when the search is done and stops the others.
+     *
+     * @param firstDepth the first iteration to search, so threads starting at
+     *                   different depths spread out over the tree
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, SearchControl control, int firstDepth, boolean main) {
+        long start = System.nanoTime();
+        position = new Position(game);
+        this.control = control;
+        nodes = 0;
+        uncounted = 0;
+        nextCount = (int) Math.max(1, Math.min(CHECK_INTERVAL, control.remainingNodes()));
+        stopped = control.isStopped();
+        for (int[] killer : killers) {
+            Arrays.fill(killer, 0);
+        }
+        for (int[] scores : history) {
+            Arrays.fill(scores, 0);
+        }
+
+        int[] rootMoves = legalRootMoves();
+        if (rootMoves.length == 0) {
+            if (main) {
+                control.stop();
+            }
+            int score = position.inCheck() ? -MATE : 0;
+            return new SearchResult(null, score, 0, 0, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        // The best move of an earlier search of this position, by this thread or another
+        moveToFront(rootMoves, TranspositionTable.move(table.probe(position.hash())));
+        int bestMove = rootMoves[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = firstDepth; depth <= limits.depth(); depth++) {
+            int alpha = -INFINITY;
+            int iterationMove = 0;
+            for (int move : rootMoves) {
+                position.makeMove(move);
+                int score = -alphaBeta(depth - 1, -INFINITY, -alpha, 1);
+                position.undoMove(move);
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationMove = move;
+                }
+            }
+            // The previous best move is searched first, so a move found before time ran
+            // out in an unfinished iteration has been compared against it and is at least as good
+            if (iterationMove != 0) {
+                bestMove = iterationMove;
+                bestScore = alpha;
+                moveToFront(rootMoves, bestMove);
+            }
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            table.store(position.hash(), bestMove, TranspositionTable.toTable(bestScore, 0), depth,
+                    TranspositionTable.EXACT);
+            if (!main) {
+                continue;
+            }
+            if (Math.abs(bestScore) > MATE - MAX_PLY || rootMoves.length == 1) {
+                break;
+            }
+            // The next iteration takes several times as long as this one, so would not finish
+            if (System.nanoTime() - start > limits.time().toNanos() / 2) {
+                break;
+            }
+        }
+        if (main) {
+            control.stop();
+        }
+        control.addNodes(uncounted);
+        return new SearchResult(Position.toChessMove(bestMove), bestScore, completedDepth, nodes,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private int[] legalRootMoves() {
+        int count = position.generateMoves(moves[0], 0, false);
+        orderMoves(0, count, 0);
+        int[] legal = new int[count];
+        int legalCount = 0;
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(0, i, count);
+            if (position.makeMove(move)) {
+                position.undoMove(move);
+                legal[legalCount++] = move;
+            }
+        }
+        return Arrays.copyOf(legal, legalCount);
+    }
+
+    /**
+     * Moves the move to the front of the list if it is in it at all
+     */
+    private static void moveToFront(int[] list, int move) {
+        for (int index = 0; index < list.length; index++) {
+            if (list[index] == move) {
+                System.arraycopy(list, 0, list, 1, index);
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply) {
+        if (position.isRepetition() || position.isFiftyMoveDraw()) {
+            return 0;
+        }
+        boolean inCheck = position.inCheck();
+        if (inCheck) {
+            // Look one move further at checks, so a mate just past the horizon is not missed
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (countNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(position);
+        }
+
+        long entry = table.probe(position.hash());
+        if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                    || bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                return score;
+            }
+        }
+
+        int count = position.generateMoves(moves[ply], 0, false);
+        orderMoves(ply, count, TranspositionTable.move(entry));
+        int alphaBefore = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            boolean quiet = position.capturedBy(move) == 0 && Position.promotion(move) == 0;
+            int piece = position.pieceAt(Position.from(move));
+            if (!position.makeMove(move)) {
+                continue;
+            }
+            legal++;
+            int score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+            position.undoMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                }
+                if (score >= beta) {
+                    if (quiet) {
+                        rememberCutoff(ply, move, piece, depth);
+                    }
+                    break;
+                }
+            }
+        }
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER_BOUND
+                : best > alphaBefore ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(position.hash(), bestMove, TranspositionTable.toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures only, letting the side to move stand pat on the current
+     * score instead if every capture is worse
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        if (countNode()) {
+            return 0;
+        }
+        int best = Evaluator.evaluate(position);
+        if (best >= beta || ply >= MAX_PLY - 1) {
+            return best;
+        }
+        alpha = Math.max(alpha, best);
+
+        int count = position.generateMoves(moves[ply], 0, true);
+        orderMoves(ply, count, 0);
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            if (!position.makeMove(move)) {
+                continue;
+            }
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.undoMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                }
+                if (score >= beta) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return whether the search has to stop
+     */
+    private boolean countNode() {
+        nodes++;
+        if (++uncounted >= nextCount) {
+            if (control.addNodes(uncounted) || Thread.currentThread().isInterrupted()) {
+                control.stop();
+            }
+            uncounted = 0;
+            // Counted exactly as the limit nears, which with one thread stops right on it
+            nextCount = (int) Math.max(1, Math.min(CHECK_INTERVAL, control.remainingNodes()));
+            stopped = control.isStopped();
+        }
+        return stopped;
+    }
+
+    /**
+     * Gives each generated move at the ply a number to sort by: the best move an
+     * earlier search found here, captures by the value taken less a little for the
+     * value risked, then the killers, then quiet moves by their history
+     */
+    private void orderMoves(int ply, int count, int tableMove) {
+        int[] list = moves[ply];
+        int[] scores = order[ply];
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int piece = position.pieceAt(Position.from(move));
+            int captured = position.capturedBy(move);
+            if (move == tableMove) {
+                scores[i] = HASH_ORDER;
+            } else if (captured != 0 || Position.promotion(move) != 0) {
+                int taken = captured == 0 ? 0 : Evaluator.PIECE_VALUES[Position.type(captured)];
+                scores[i] = CAPTURE_ORDER + 10 * taken + Evaluator.PIECE_VALUES[Position.promotion(move)]
+                        - Evaluator.PIECE_VALUES[Position.type(piece)] / 10;
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_ORDER + 1;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_ORDER;
+            } else {
+                scores[i] = history[piece - 1][Position.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Swaps the best remaining move into place, which is cheaper than sorting them
+     * all when a cutoff usually comes after the first few
+     */
+    private int nextMove(int ply, int index, int count) {
+        int[] list = moves[ply];
+        int[] scores = order[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = list[best];
+        list[best] = list[index];
+        list[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void rememberCutoff(int ply, int move, int piece, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] scores = history[piece - 1];
+        scores[Position.to(move)] += depth * depth;
+        if (scores[Position.to(move)] > HISTORY_LIMIT) {
+            // Halve everything, keeping the order while staying below the killers
+            for (int[] pieceScores : history) {
+                for (int square = 0; square < 64; square++) {
+                    pieceScores[square] /= 2;
+                }
+            }
+        }
+    }
+}
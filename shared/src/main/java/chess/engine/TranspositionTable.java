@@ -0,0 +1,175 @@
+package chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * What earlier searches found out about positions, by Zobrist hash, so a position
+ * reached again by another order of moves, in a later iteration or on another
+ * thread, is not searched again from nothing.
+ * <p>
+ * The table is a fixed-size {@code long} array that any number of threads read
+ * and write without locks. Each entry is two longs: the entry packed into one,
+ * and the hash XORed with it in the other. Two threads writing the same entry at
+ * once can leave halves that do not belong together, but then the hash no longer
+ * comes back out, so a torn entry reads as a miss instead of a wrong answer.
+ * <p>
+ * Entries are grouped in buckets of four, and a position may be stored in any
+ * entry of its bucket. A new entry replaces the one least worth keeping: one left
+ * by an earlier search before any from this one, and a shallow one before a deep one.
+ */
+public class TranspositionTable {
+
+    /** The score is exact */
+    public static final int EXACT = 1;
+    /** The score is at least this; the search stopped at a move this good */
+    public static final int LOWER_BOUND = 2;
+    /** The score is at most this; no move reached it */
+    public static final int UPPER_BOUND = 3;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Entry layout, low bits first: move 16, score 20, depth 8, bound 2, age 8
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT = 46;
+    private static final int SCORE_OFFSET = 1 << 19;
+
+    private final long[] slots;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * @param megabytes about how much memory to use, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 4096) {
+            throw new IllegalArgumentException("Table size must be 1MB to 4GB: " + megabytes);
+        }
+        // Sixteen bytes an entry
+        int buckets = Integer.highestOneBit((int) (((long) megabytes << 20) / (BUCKET_SIZE * 16L)));
+        slots = new long[buckets * BUCKET_SIZE * 2];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Starts a new search, so entries from earlier ones are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * @return the entry stored for the position, or 0 if there is none
+     */
+    public long probe(long hash) {
+        int bucket = bucket(hash);
+        for (int i = bucket; i < bucket + BUCKET_SIZE * 2; i += 2) {
+            long entry = (long) SLOTS.getOpaque(slots, i + 1);
+            if (((long) SLOTS.getOpaque(slots, i) ^ entry) == hash && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param move  the best move found, or 0 if none was
+     * @param score adjusted by {@link #toTable} if it may be a mate score
+     * @param depth the depth searched, 0 through 255
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int currentAge = age;
+        int bucket = bucket(hash);
+        int replace = bucket;
+        int replaceWorth = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_SIZE * 2; i += 2) {
+            long entry = (long) SLOTS.getOpaque(slots, i + 1);
+            long key = (long) SLOTS.getOpaque(slots, i) ^ entry;
+            if (key == hash || entry == 0) {
+                if (key == hash && move == 0) {
+                    // Keep the best move found by an earlier search of the same position
+                    move = move(entry);
+                }
+                replace = i;
+                break;
+            }
+            // Each search since the entry was stored counts as much as a whole iteration of depth
+            int worth = depth(entry) - 8 * ((currentAge - age(entry)) & 0xFF);
+            if (worth < replaceWorth) {
+                replaceWorth = worth;
+                replace = i;
+            }
+        }
+        long entry = (move & 0xFFFFL)
+                | (long) (score + SCORE_OFFSET) << SCORE_SHIFT
+                | (long) (depth & 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) currentAge << AGE_SHIFT;
+        SLOTS.setOpaque(slots, replace, hash ^ entry);
+        SLOTS.setOpaque(slots, replace + 1, entry);
+    }
+
+    /**
+     * Empties the table, which must not be in use
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+
+    private int bucket(long hash) {
+        // The low bits pick the bucket; the whole hash is compared within it
+        return ((int) hash & bucketMask) * BUCKET_SIZE * 2;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >>> SCORE_SHIFT & 0xFFFFF) - SCORE_OFFSET;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT & 3);
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT & 0xFF);
+    }
+
+    /**
+     * A mate score counts the moves from the root, but an entry may be reached again
+     * at any distance from the root, so it is stored counting from the entry's own position
+     */
+    static int toTable(int score, int ply) {
+        if (score > Searcher.MATE - Searcher.MAX_PLY) {
+            return score + ply;
+        }
+        if (score < -Searcher.MATE + Searcher.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Undoes {@link #toTable} for the ply the entry was found at
+     */
+    static int fromTable(int score, int ply) {
+        if (score > Searcher.MATE - Searcher.MAX_PLY) {
+            return score - ply;
+        }
+        if (score < -Searcher.MATE + Searcher.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,8 @@
+package datamodel;
+
+import java.util.List;
+
+/**
+ * @param nextCursor pass as the next query's afterGameID, null on the last page
+ */
+public record GamePage<T>(List<T> games, Integer nextCursor) {}
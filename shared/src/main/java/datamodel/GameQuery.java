@@ -0,0 +1,12 @@
+package datamodel;
+
+/**
+ * One page of a lobby listing. Games come back in game ID order starting after
+ * {@code afterGameID}; null filters match every game.
+ *
+ * @param afterGameID the cursor returned with the previous page, or null for the first page
+ * @param openSeats   only games with at least one empty seat
+ * @param player      only games this user is playing in
+ * @param gameOver    only finished (true) or only active (false) games
+ */
+public record GameQuery(Integer afterGameID, int limit, boolean openSeats, String player, Boolean gameOver) {}
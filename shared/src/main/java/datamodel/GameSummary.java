@@ -0,0 +1,13 @@
+package datamodel;
+
+/**
+ * A lobby listing entry: everything about a game except its board
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName, boolean gameOver,
+                          int moveCount) {
+
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game().isGameOver(), game.game().getMoveSequence());
+    }
+}
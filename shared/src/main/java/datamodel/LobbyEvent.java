@@ -0,0 +1,18 @@
+package datamodel;
+
+/**
+ * A change to the lobby, streamed to clients that follow it live
+ *
+ * @param id   increases by one with every event the server publishes
+ * @param game the game after the change, null for {@link Type#CLEARED}
+ */
+public record LobbyEvent(long id, Type type, GameSummary game) {
+
+    public enum Type {
+        CREATED,
+        SEAT_TAKEN,
+        SEAT_FREED,
+        FINISHED,
+        CLEARED
+    }
+}
@@ -0,0 +1,401 @@
+package serialization;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The Gson instance shared by the client and the server.
+ * <p>
+ * Chess types and server messages go through hand-written streaming adapters
+ * instead of reflection. A board is written as a 64 character string, one
+ * character per square from a1 to h8: '.' for an empty square, upper case
+ * letters for white pieces and lower case for black. The readers still accept
+ * the older reflective format so games stored before it keep loading.
+ * <p>
+ * Gson instances are thread safe, so {@link #GSON} can be used from anywhere.
+ */
+public final class ChessJson {
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ChessPosition.class, new PositionAdapter().nullSafe())
+            .registerTypeAdapter(ChessMove.class, new MoveAdapter().nullSafe())
+            .registerTypeAdapter(ChessPiece.class, new PieceAdapter().nullSafe())
+            .registerTypeAdapter(ChessBoard.class, new BoardAdapter().nullSafe())
+            .registerTypeAdapter(ChessGame.class, new GameAdapter().nullSafe())
+            .registerTypeAdapterFactory(new ServerMessageAdapterFactory())
+            .create();
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final String PIECE_LETTERS = "KQBNRP";
+    private static final ChessPiece[] WHITE_PIECES = new ChessPiece[PIECE_TYPES.length];
+    private static final ChessPiece[] BLACK_PIECES = new ChessPiece[PIECE_TYPES.length];
+
+    static {
+        for (ChessPiece.PieceType type : PIECE_TYPES) {
+            WHITE_PIECES[type.ordinal()] = new ChessPiece(ChessGame.TeamColor.WHITE, type);
+            BLACK_PIECES[type.ordinal()] = new ChessPiece(ChessGame.TeamColor.BLACK, type);
+        }
+    }
+
+    private ChessJson() {
+    }
+
+    private static char pieceLetter(ChessPiece piece) {
+        if (piece == null) {
+            return '.';
+        }
+        char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? letter : Character.toLowerCase(letter);
+    }
+
+    /**
+     * Pieces are immutable, so decoding hands out shared instances
+     */
+    private static ChessPiece pieceFromLetter(char letter) {
+        if (letter == '.') {
+            return null;
+        }
+        int index = PIECE_LETTERS.indexOf(Character.toUpperCase(letter));
+        if (index < 0) {
+            throw new JsonParseException("Unknown piece: " + letter);
+        }
+        return Character.isUpperCase(letter) ? WHITE_PIECES[index] : BLACK_PIECES[index];
+    }
+
+    private static class PositionAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            out.beginObject();
+            out.name("row").value(position.getRow());
+            out.name("column").value(position.getColumn());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            int row = 0;
+            int column = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "column", "col" -> column = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPosition(row, column);
+        }
+    }
+
+    private static class MoveAdapter extends TypeAdapter<ChessMove> {
+        private final PositionAdapter positions = new PositionAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.beginObject();
+            out.name("startPosition");
+            positions.write(out, move.getStartPosition());
+            out.name("endPosition");
+            positions.write(out, move.getEndPosition());
+            if (move.getPromotionPiece() != null) {
+                out.name("promotionPiece").value(move.getPromotionPiece().name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "startPosition" -> start = positions.read(in);
+                    case "endPosition" -> end = positions.read(in);
+                    case "promotionPiece" -> promotion = ChessPiece.PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+    }
+
+    private static class PieceAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.value(String.valueOf(pieceLetter(piece)));
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                return pieceFromLetter(in.nextString().charAt(0));
+            }
+            // Reflective format: {"pieceColor": "WHITE", "type": "KING"}
+            ChessGame.TeamColor color = null;
+            ChessPiece.PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = ChessPiece.PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            ChessPiece[] pieces = color == ChessGame.TeamColor.BLACK ? BLACK_PIECES : WHITE_PIECES;
+            return type == null ? null : pieces[type.ordinal()];
+        }
+    }
+
+    private static class BoardAdapter extends TypeAdapter<ChessBoard> {
+        private final PieceAdapter pieces = new PieceAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            char[] squares = new char[64];
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    squares[(row - 1) * 8 + (col - 1)] = pieceLetter(board.getPiece(new ChessPosition(row, col)));
+                }
+            }
+            out.value(new String(squares));
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            ChessBoard board = new ChessBoard();
+            if (in.peek() == JsonToken.STRING) {
+                String squares = in.nextString();
+                if (squares.length() != 64) {
+                    throw new JsonParseException("A board needs 64 squares, got " + squares.length());
+                }
+                for (int i = 0; i < 64; i++) {
+                    ChessPiece piece = pieceFromLetter(squares.charAt(i));
+                    if (piece != null) {
+                        board.addPiece(new ChessPosition(i / 8 + 1, i % 8 + 1), piece);
+                    }
+                }
+                return board;
+            }
+
+            // Reflective format: {"board": [[piece or null, ...], ...]} indexed [row - 1][col - 1]
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("board")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int row = 1; in.hasNext(); row++) {
+                    in.beginArray();
+                    for (int col = 1; in.hasNext(); col++) {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            board.addPiece(new ChessPosition(row, col), pieces.read(in));
+                        }
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+    }
+
+    private static class GameAdapter extends TypeAdapter<ChessGame> {
+        private final BoardAdapter boards = new BoardAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            out.name("turn").value(game.getTeamTurn().name());
+            out.name("board");
+            boards.write(out, game.getBoard());
+            out.name("gameOver").value(game.isGameOver());
+            out.name("moveSequence").value(game.getMoveSequence());
+            out.name("castling").value(game.getCastlingRights());
+            out.name("enPassantColumn").value(game.getEnPassantColumn());
+            out.name("halfmoveClock").value(game.getHalfmoveClock());
+            out.name("history").beginArray();
+            for (long hash : game.getPositionHistory()) {
+                out.value(hash);
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            ChessGame game = new ChessGame();
+            String castling = null;
+            int enPassantColumn = 0;
+            int halfmoveClock = 0;
+            long[] history = new long[0];
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "turn" -> game.setTeamTurn(ChessGame.TeamColor.valueOf(in.nextString()));
+                    case "board" -> game.setBoard(boards.read(in));
+                    case "gameOver" -> game.setGameOver(in.nextBoolean());
+                    case "moveSequence" -> game.setMoveSequence(in.nextInt());
+                    case "castling" -> castling = in.nextString();
+                    case "enPassantColumn" -> enPassantColumn = in.nextInt();
+                    case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                    case "history" -> history = readLongs(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            // Setting the board or turn works these out afresh, so restore them last. Games
+            // stored before castling was tracked take their rights from the board.
+            if (castling != null) {
+                game.setCastlingAndEnPassant(castling, enPassantColumn);
+            }
+            game.setPositionHistory(halfmoveClock, history);
+            return game;
+        }
+
+        private static long[] readLongs(JsonReader in) throws IOException {
+            long[] values = new long[16];
+            int count = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = in.nextLong();
+            }
+            in.endArray();
+            return Arrays.copyOf(values, count);
+        }
+    }
+
+    /**
+     * Handles {@link ServerMessage} and all of its subclasses. Reading always
+     * produces the subclass named by serverMessageType, so a message can be
+     * decoded in one pass as a plain ServerMessage and then cast.
+     */
+    private static class ServerMessageAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (!ServerMessage.class.isAssignableFrom(type.getRawType())) {
+                return null;
+            }
+            return (TypeAdapter<T>) new ServerMessageAdapter(gson.getAdapter(ChessGame.class),
+                    gson.getAdapter(ChessMove.class)).nullSafe();
+        }
+    }
+
+    private static class ServerMessageAdapter extends TypeAdapter<ServerMessage> {
+        private final TypeAdapter<ChessGame> games;
+        private final TypeAdapter<ChessMove> moves;
+
+        ServerMessageAdapter(TypeAdapter<ChessGame> games, TypeAdapter<ChessMove> moves) {
+            this.games = games;
+            this.moves = moves;
+        }
+
+        @Override
+        public void write(JsonWriter out, ServerMessage message) throws IOException {
+            out.beginObject();
+            out.name("serverMessageType").value(message.getServerMessageType().name());
+            switch (message) {
+                case ServerMessage.LoadGameMessage loadGame -> {
+                    out.name("game");
+                    games.write(out, loadGame.getGame());
+                }
+                case ServerMessage.ErrorMessage error -> out.name("errorMessage").value(error.getErrorMessage());
+                case ServerMessage.NotificationMessage notification ->
+                        out.name("message").value(notification.getMessage());
+                case ServerMessage.MoveAppliedMessage moveApplied -> {
+                    out.name("move");
+                    moves.write(out, moveApplied.getMove());
+                    out.name("sequence").value(moveApplied.getSequence());
+                    if (moveApplied.getStatus() != null) {
+                        out.name("status").value(moveApplied.getStatus().name());
+                    }
+                    if (moveApplied.getPositionHash() != null) {
+                        out.name("positionHash").value(moveApplied.getPositionHash());
+                    }
+                }
+                default -> {
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ServerMessage read(JsonReader in) throws IOException {
+            ServerMessage.ServerMessageType type = null;
+            ChessGame game = null;
+            String text = null;
+            ChessMove move = null;
+            int sequence = 0;
+            ChessGame.GameStatus status = null;
+            Long positionHash = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "serverMessageType" -> type = ServerMessage.ServerMessageType.valueOf(in.nextString());
+                    case "game" -> game = games.read(in);
+                    case "errorMessage", "message" -> text = in.nextString();
+                    case "move" -> move = moves.read(in);
+                    case "sequence" -> sequence = in.nextInt();
+                    case "status" -> status = ChessGame.GameStatus.valueOf(in.nextString());
+                    case "positionHash" -> positionHash = in.nextLong();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (type == null) {
+                throw new JsonParseException("Server message has no serverMessageType");
+            }
+            return switch (type) {
+                case LOAD_GAME -> new ServerMessage.LoadGameMessage(game);
+                case ERROR -> new ServerMessage.ErrorMessage(text);
+                case NOTIFICATION -> new ServerMessage.NotificationMessage(text);
+                case MOVE_APPLIED -> new ServerMessage.MoveAppliedMessage(move, sequence, status, positionHash);
+            };
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package websocket;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact binary alternative to the JSON encoding of WebSocket messages.
+ * <p>
+ * Every frame starts with the ordinal of the message or command type. Boards
+ * are packed two squares to a byte, so a whole game fits in 43 bytes plus 8 for
+ * each position it remembers since the last capture or pawn move, which the
+ * repetition and fifty-move draws are judged from.
+ */
+public final class BinaryCodec {
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] TEAM_COLORS = ChessGame.TeamColor.values();
+    private static final ChessGame.GameStatus[] GAME_STATUSES = ChessGame.GameStatus.values();
+    private static final String CASTLING_LETTERS = "KQkq";
+
+    private BinaryCodec() {
+    }
+
+    public static ByteBuffer encode(ServerMessage message) {
+        var bytes = new ByteArrayOutputStream(64);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(message.getServerMessageType().ordinal());
+            switch (message.getServerMessageType()) {
+                case LOAD_GAME -> writeGame(out, ((ServerMessage.LoadGameMessage) message).getGame());
+                case ERROR -> writeString(out, ((ServerMessage.ErrorMessage) message).getErrorMessage());
+                case NOTIFICATION -> writeString(out, ((ServerMessage.NotificationMessage) message).getMessage());
+                case MOVE_APPLIED -> {
+                    var moveApplied = (ServerMessage.MoveAppliedMessage) message;
+                    writeMove(out, moveApplied.getMove());
+                    out.writeInt(moveApplied.getSequence());
+                    out.writeByte(moveApplied.getStatus() == null ? -1 : moveApplied.getStatus().ordinal());
+                    out.writeBoolean(moveApplied.getPositionHash() != null);
+                    if (moveApplied.getPositionHash() != null) {
+                        out.writeLong(moveApplied.getPositionHash());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    public static ServerMessage decodeServerMessage(byte[] data, int offset, int length) throws IOException {
+        try (var in = new DataInputStream(new ByteArrayInputStream(data, offset, length))) {
+            var type = ServerMessage.ServerMessageType.values()[in.readUnsignedByte()];
+            return switch (type) {
+                case LOAD_GAME -> new ServerMessage.LoadGameMessage(readGame(in));
+                case ERROR -> new ServerMessage.ErrorMessage(readString(in));
+                case NOTIFICATION -> new ServerMessage.NotificationMessage(readString(in));
+                case MOVE_APPLIED -> {
+                    ChessMove move = readMove(in);
+                    int sequence = in.readInt();
+                    int status = in.readByte();
+                    Long positionHash = in.readBoolean() ? in.readLong() : null;
+                    yield new ServerMessage.MoveAppliedMessage(move, sequence,
+                            status < 0 ? null : GAME_STATUSES[status], positionHash);
+                }
+            };
+        }
+    }
+
+    public static ByteBuffer encode(UserGameCommand command) {
+        var bytes = new ByteArrayOutputStream(64);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(command.getCommandType().ordinal());
+            writeString(out, command.getAuthToken());
+            writeInteger(out, command.getGameID());
+            if (command instanceof MakeMoveCommand makeMove) {
+                writeMove(out, makeMove.getMove());
+            } else if (command instanceof ConnectCommand connect) {
+                out.writeBoolean(connect.wantsMoveDeltas());
+                out.writeBoolean(connect.wantsBinaryFrames());
+                writeInteger(out, connect.getLastSeenSeq());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    public static UserGameCommand decodeCommand(byte[] data, int offset, int length) throws IOException {
+        try (var in = new DataInputStream(new ByteArrayInputStream(data, offset, length))) {
+            var type = UserGameCommand.CommandType.values()[in.readUnsignedByte()];
+            String authToken = readString(in);
+            Integer gameID = readInteger(in);
+            return switch (type) {
+                case MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, readMove(in));
+                case CONNECT -> {
+                    boolean moveDeltas = in.readBoolean();
+                    boolean binaryFrames = in.readBoolean();
+                    yield new ConnectCommand(authToken, gameID, moveDeltas, binaryFrames, readInteger(in));
+                }
+                default -> new UserGameCommand(type, authToken, gameID);
+            };
+        }
+    }
+
+    private static void writeGame(DataOutputStream out, ChessGame game) throws IOException {
+        out.writeByte(game.getTeamTurn().ordinal());
+        out.writeBoolean(game.isGameOver());
+        out.writeInt(game.getMoveSequence());
+        // Castling rights in the low four bits, the en passant column in the high four
+        int rights = 0;
+        for (int i = 0; i < CASTLING_LETTERS.length(); i++) {
+            if (game.getCastlingRights().indexOf(CASTLING_LETTERS.charAt(i)) >= 0) {
+                rights |= 1 << i;
+            }
+        }
+        out.writeByte(game.getEnPassantColumn() << 4 | rights);
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col += 2) {
+                int first = pieceCode(board.getPiece(new ChessPosition(row, col)));
+                int second = pieceCode(board.getPiece(new ChessPosition(row, col + 1)));
+                out.writeByte(first << 4 | second);
+            }
+        }
+        // Both stay under a few hundred, since the fifty-move rule ends the game first
+        out.writeShort(game.getHalfmoveClock());
+        long[] history = game.getPositionHistory();
+        out.writeShort(history.length);
+        for (long hash : history) {
+            out.writeLong(hash);
+        }
+    }
+
+    private static ChessGame readGame(DataInputStream in) throws IOException {
+        ChessGame game = new ChessGame();
+        game.setTeamTurn(TEAM_COLORS[in.readUnsignedByte()]);
+        game.setGameOver(in.readBoolean());
+        game.setMoveSequence(in.readInt());
+        int packedState = in.readUnsignedByte();
+        StringBuilder rights = new StringBuilder();
+        for (int i = 0; i < CASTLING_LETTERS.length(); i++) {
+            if ((packedState & 1 << i) != 0) {
+                rights.append(CASTLING_LETTERS.charAt(i));
+            }
+        }
+        ChessBoard board = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col += 2) {
+                int packed = in.readUnsignedByte();
+                board.addPiece(new ChessPosition(row, col), pieceFromCode(packed >> 4));
+                board.addPiece(new ChessPosition(row, col + 1), pieceFromCode(packed & 0xF));
+            }
+        }
+        game.setBoard(board);
+        game.setCastlingAndEnPassant(rights.toString(), packedState >> 4);
+        int halfmoveClock = in.readUnsignedShort();
+        long[] history = new long[in.readUnsignedShort()];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = in.readLong();
+        }
+        game.setPositionHistory(halfmoveClock, history);
+        return game;
+    }
+
+    private static int pieceCode(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        int code = piece.getPieceType().ordinal() + 1;
+        return piece.getTeamColor() == ChessGame.TeamColor.BLACK ? code + PIECE_TYPES.length : code;
+    }
+
+    private static ChessPiece pieceFromCode(int code) {
+        if (code == 0) {
+            return null;
+        }
+        ChessGame.TeamColor color = code > PIECE_TYPES.length ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return new ChessPiece(color, PIECE_TYPES[(code - 1) % PIECE_TYPES.length]);
+    }
+
+    /**
+     * Moves are three bytes: start square, end square, and promotion piece
+     * ordinal plus one (zero for none). A null move is a single 0xFF byte.
+     */
+    private static void writeMove(DataOutputStream out, ChessMove move) throws IOException {
+        if (move == null) {
+            out.writeByte(0xFF);
+            return;
+        }
+        out.writeByte(square(move.getStartPosition()));
+        out.writeByte(square(move.getEndPosition()));
+        out.writeByte(move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal() + 1);
+    }
+
+    private static ChessMove readMove(DataInputStream in) throws IOException {
+        int start = in.readUnsignedByte();
+        if (start == 0xFF) {
+            return null;
+        }
+        int end = in.readUnsignedByte();
+        int promotion = in.readUnsignedByte();
+        return new ChessMove(position(start), position(end), promotion == 0 ? null : PIECE_TYPES[promotion - 1]);
+    }
+
+    private static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    private static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
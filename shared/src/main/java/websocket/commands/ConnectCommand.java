@@ -0,0 +1,47 @@
+package websocket.commands;
+
+public class ConnectCommand extends UserGameCommand {
+    private final boolean moveDeltas;
+    private final boolean binaryFrames;
+    private final Integer lastSeenSeq;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas) {
+        this(authToken, gameID, moveDeltas, null);
+    }
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas, Integer lastSeenSeq) {
+        this(authToken, gameID, moveDeltas, false, lastSeenSeq);
+    }
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas, boolean binaryFrames,
+                          Integer lastSeenSeq) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveDeltas = moveDeltas;
+        this.binaryFrames = binaryFrames;
+        this.lastSeenSeq = lastSeenSeq;
+    }
+
+    /**
+     * @return true if the client wants MOVE_APPLIED deltas instead of a full
+     * LOAD_GAME after every move
+     */
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+
+    /**
+     * @return true if the server should push messages to this client as
+     * {@link websocket.BinaryCodec} binary frames instead of JSON text
+     */
+    public boolean wantsBinaryFrames() {
+        return binaryFrames;
+    }
+
+    /**
+     * @return the move sequence of the client's copy of the game when it is
+     * resuming after a dropped connection, or null for a fresh connect
+     */
+    public Integer getLastSeenSeq() {
+        return lastSeenSeq;
+    }
+}
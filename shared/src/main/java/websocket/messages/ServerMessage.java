@@ -14,7 +14,8 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE_APPLIED
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -79,4 +80,47 @@ public class ServerMessage {
             return message;
         }
     }
+
+    /**
+     * Sent in place of {@link LoadGameMessage} after a move to clients that asked for
+     * move deltas. The client applies the move to its own copy of the game; a
+     * sequence gap or hash mismatch means it must ask for the full game again.
+     */
+    public static class MoveAppliedMessage extends ServerMessage {
+        private final chess.ChessMove move;
+        private final int sequence;
+        private final chess.ChessGame.GameStatus status;
+        private final Long positionHash;
+
+        public MoveAppliedMessage(chess.ChessMove move, int sequence, chess.ChessGame.GameStatus status,
+                                  Long positionHash) {
+            super(ServerMessageType.MOVE_APPLIED);
+            this.move = move;
+            this.sequence = sequence;
+            this.status = status;
+            this.positionHash = positionHash;
+        }
+
+        public chess.ChessMove getMove() {
+            return move;
+        }
+
+        /**
+         * @return the game's move sequence after this move was applied
+         */
+        public int getSequence() {
+            return sequence;
+        }
+
+        public chess.ChessGame.GameStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the position hash after the move, or null if the server did not send one
+         */
+        public Long getPositionHash() {
+            return positionHash;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import serialization.ChessJson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawRulesTest {
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    // Both knights out and back, returning to the starting position every four moves
+    private static final ChessMove[] SHUFFLE = {move(1, 2, 3, 3), move(8, 2, 6, 3), move(3, 3, 1, 2), move(6, 3, 8, 2)};
+
+    @Test
+    @DisplayName("Threefold Repetition")
+    void threefoldRepetition() throws Exception {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 7; i++) {
+            game.makeMove(SHUFFLE[i % 4]);
+            assertFalse(game.getStatus().endsGame(), "Drawn too early after move " + (i + 1));
+        }
+        game.makeMove(SHUFFLE[3]);
+        // The starting position has now been seen three times
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Double Step Nothing Can Capture Still Repeats")
+    void doubleStepWithoutCaptureRepeats() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(0, game.getEnPassantColumn());
+        // Black's knight first, then White's, back to the position after the double step
+        ChessMove[] shuffle = {SHUFFLE[1], SHUFFLE[0], SHUFFLE[3], SHUFFLE[2]};
+        for (int i = 0; i < 7; i++) {
+            game.makeMove(shuffle[i % 4]);
+            assertFalse(game.getStatus().endsGame(), "Drawn too early after move " + (i + 1));
+        }
+        game.makeMove(shuffle[3]);
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Double Step That Can Be Captured Differs")
+    void capturableDoubleStepDiffers() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessMove[] opening = {move(2, 5, 4, 5), move(7, 1, 6, 1), move(4, 5, 5, 5), move(7, 4, 5, 4)};
+        for (ChessMove opened : opening) {
+            game.makeMove(opened);
+        }
+        assertEquals(4, game.getEnPassantColumn());
+        for (int i = 0; i < 8; i++) {
+            game.makeMove(SHUFFLE[i % 4]);
+        }
+        // Back on the same board twice, but White could capture en passant only the first time
+        assertEquals(ChessGame.GameStatus.ACTIVE, game.getStatus());
+        for (int i = 0; i < 4; i++) {
+            game.makeMove(SHUFFLE[i]);
+        }
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Pawn Move Resets History")
+    void pawnMoveResetsHistory() throws Exception {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 4; i++) {
+            game.makeMove(SHUFFLE[i]);
+        }
+        assertEquals(4, game.getHalfmoveClock());
+        game.makeMove(move(2, 1, 3, 1));
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(1, game.getPositionHistory().length);
+        assertEquals(game.getPositionHash(), game.getPositionHistory()[0]);
+    }
+
+    @Test
+    @DisplayName("Fifty Move Rule")
+    void fiftyMoveRule() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessGame restored = ChessJson.GSON.fromJson(ChessJson.GSON.toJson(game), ChessGame.class);
+        restored.setPositionHistory(99, restored.getPositionHistory());
+        assertEquals(ChessGame.GameStatus.ACTIVE, restored.getStatus());
+        restored.makeMove(move(1, 2, 3, 3));
+        assertEquals(ChessGame.GameStatus.DRAW_BY_FIFTY_MOVES, restored.getStatus());
+    }
+
+    @Test
+    @DisplayName("History Survives Serialization")
+    void historySurvivesSerialization() throws Exception {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 7; i++) {
+            game.makeMove(SHUFFLE[i % 4]);
+        }
+        ChessGame restored = ChessJson.GSON.fromJson(ChessJson.GSON.toJson(game), ChessGame.class);
+        assertEquals(7, restored.getHalfmoveClock());
+        assertArrayEquals(game.getPositionHistory(), restored.getPositionHistory());
+
+        ChessGame copy = restored.copy();
+        copy.makeMove(SHUFFLE[3]);
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, copy.getStatus());
+        assertEquals(7, restored.getHalfmoveClock(), "The copy should not share history with the original");
+    }
+
+    @Test
+    @DisplayName("Incremental Hash Matches Full Hash")
+    void incrementalHashMatchesFullHash() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessMove[] moves = {move(2, 5, 4, 5), move(7, 4, 5, 4), move(4, 5, 5, 4), move(8, 4, 5, 4),
+            move(1, 2, 3, 3), move(5, 4, 2, 1)};
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+            ChessGame rebuilt = new ChessGame();
+            rebuilt.setBoard(game.getBoard().copy());
+            rebuilt.setTeamTurn(game.getTeamTurn());
+            rebuilt.setCastlingAndEnPassant(game.getCastlingRights(), game.getEnPassantColumn());
+            assertEquals(rebuilt.getPositionHash(), game.getPositionHash());
+        }
+    }
+
+    private static ChessGame withPieces(Object... placements) {
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < placements.length; i += 2) {
+            int[] square = (int[]) placements[i + 1];
+            board.addPiece(new ChessPosition(square[0], square[1]), (ChessPiece) placements[i]);
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+
+    private static ChessPiece piece(ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        return new ChessPiece(team, type);
+    }
+
+    @Test
+    @DisplayName("Insufficient Material")
+    void insufficientMaterial() {
+        var white = ChessGame.TeamColor.WHITE;
+        var black = ChessGame.TeamColor.BLACK;
+        ChessPiece whiteKing = piece(white, ChessPiece.PieceType.KING);
+        ChessPiece blackKing = piece(black, ChessPiece.PieceType.KING);
+
+        assertTrue(withPieces(whiteKing, new int[]{1, 1}, blackKing, new int[]{8, 8}).hasInsufficientMaterial());
+        assertTrue(withPieces(whiteKing, new int[]{1, 1}, blackKing, new int[]{8, 8},
+                piece(white, ChessPiece.PieceType.KNIGHT), new int[]{4, 4}).hasInsufficientMaterial());
+        // Bishops on c1 and f8 both stand on dark squares
+        assertTrue(withPieces(whiteKing, new int[]{1, 5}, blackKing, new int[]{8, 5},
+                piece(white, ChessPiece.PieceType.BISHOP), new int[]{1, 3},
+                piece(black, ChessPiece.PieceType.BISHOP), new int[]{8, 6}).hasInsufficientMaterial());
+        // Bishops on c1 and c8 stand on squares of different colours
+        assertFalse(withPieces(whiteKing, new int[]{1, 5}, blackKing, new int[]{8, 5},
+                piece(white, ChessPiece.PieceType.BISHOP), new int[]{1, 3},
+                piece(black, ChessPiece.PieceType.BISHOP), new int[]{8, 3}).hasInsufficientMaterial());
+        assertFalse(withPieces(whiteKing, new int[]{1, 1}, blackKing, new int[]{8, 8},
+                piece(white, ChessPiece.PieceType.KNIGHT), new int[]{4, 4},
+                piece(black, ChessPiece.PieceType.KNIGHT), new int[]{5, 5}).hasInsufficientMaterial());
+        assertFalse(withPieces(whiteKing, new int[]{1, 1}, blackKing, new int[]{8, 8},
+                piece(white, ChessPiece.PieceType.PAWN), new int[]{2, 2}).hasInsufficientMaterial());
+        assertFalse(new ChessGame().hasInsufficientMaterial());
+    }
+
+    @Test
+    @DisplayName("Capture Leaves Bare Kings")
+    void captureLeavesBareKings() throws Exception {
+        var white = ChessGame.TeamColor.WHITE;
+        var black = ChessGame.TeamColor.BLACK;
+        ChessGame game = withPieces(piece(white, ChessPiece.PieceType.KING), new int[]{1, 1},
+                piece(black, ChessPiece.PieceType.KING), new int[]{8, 8},
+                piece(black, ChessPiece.PieceType.ROOK), new int[]{2, 1});
+        assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+
+        PositionCache cache = new PositionCache(16);
+        ChessGame.GameStatus status = cache.makeMove(game, move(1, 1, 2, 1));
+        assertEquals(ChessGame.GameStatus.DRAW_BY_INSUFFICIENT_MATERIAL, status);
+        assertEquals(status, game.getStatus());
+    }
+}
@@ -0,0 +1,63 @@
+package chess;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest {
+
+    @Test
+    @DisplayName("Moves Are Recorded")
+    void movesAreRecorded(@TempDir Path dir) throws Exception {
+        ChessGame game = new ChessGame();
+        Path file = dir.resolve("moves.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("chess.MakeMove");
+            recording.start();
+            game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            assertThrows(InvalidMoveException.class,
+                    () -> game.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null)));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).getBoolean("valid"));
+        assertEquals(1, events.get(0).getInt("moveSequence"));
+        assertFalse(events.get(1).getBoolean("valid"));
+    }
+
+    @Test
+    @DisplayName("Cached Moves Are Recorded")
+    void cachedMovesAreRecorded(@TempDir Path dir) throws Exception {
+        PositionCache cache = new PositionCache(16);
+        ChessGame game = new ChessGame();
+        ChessMove opening = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        Path file = dir.resolve("cached-moves.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("chess.MakeMove");
+            recording.start();
+            cache.makeMove(game, opening);
+            assertThrows(InvalidMoveException.class,
+                    () -> cache.makeMove(game, new ChessMove(new ChessPosition(7, 4), new ChessPosition(4, 4), null)));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).getBoolean("valid"));
+        assertEquals(1, events.get(0).getInt("moveSequence"));
+        assertEquals(String.valueOf(opening), events.get(0).getString("move"));
+        assertFalse(events.get(1).getBoolean("valid"));
+        assertEquals(1, events.get(1).getInt("moveSequence"));
+    }
+}
@@ -0,0 +1,78 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCacheTest {
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @Test
+    @DisplayName("Repeated Position Hits")
+    void repeatedPositionHits() throws Exception {
+        PositionCache cache = new PositionCache(16);
+        ChessGame first = new ChessGame();
+        ChessGame second = new ChessGame();
+
+        cache.makeMove(first, move(2, 5, 4, 5));
+        long misses = cache.misses();
+        cache.makeMove(second, move(2, 5, 4, 5));
+
+        assertEquals(misses, cache.misses(), "The second game should only see positions the first one cached");
+        assertEquals(2, cache.hits());
+        assertEquals(20, cache.lookup(new ChessGame()).moves().size());
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Matches Uncached Rules")
+    void matchesUncachedRules() throws Exception {
+        PositionCache cache = new PositionCache(16);
+        ChessGame cached = new ChessGame();
+        ChessGame plain = new ChessGame();
+        ChessMove[] foolsMate = {move(2, 6, 3, 6), move(7, 5, 5, 5), move(2, 7, 4, 7), move(8, 4, 4, 8)};
+        ChessGame.GameStatus status = null;
+        for (ChessMove move : foolsMate) {
+            status = cache.makeMove(cached, move);
+            plain.makeMove(move);
+            assertEquals(plain.getStatus(), status);
+        }
+        assertEquals(ChessGame.GameStatus.CHECKMATE, status);
+        assertEquals(plain, cached);
+        assertEquals(plain.getMoveSequence(), cached.getMoveSequence());
+    }
+
+    @Test
+    @DisplayName("Illegal Move Rejected")
+    void illegalMoveRejected() {
+        PositionCache cache = new PositionCache(16);
+        ChessGame game = new ChessGame();
+        assertThrows(InvalidMoveException.class, () -> cache.makeMove(game, move(2, 5, 5, 5)));
+        assertThrows(InvalidMoveException.class, () -> cache.makeMove(game, move(7, 5, 5, 5)));
+        assertEquals(new ChessGame(), game);
+    }
+
+    @Test
+    @DisplayName("Stays Within Capacity")
+    void staysWithinCapacity() throws Exception {
+        PositionCache cache = new PositionCache(4);
+        ChessGame game = new ChessGame();
+        // Knights out and back again visit the same few positions over and over
+        ChessMove[] shuffle = {move(1, 2, 3, 3), move(8, 2, 6, 3), move(3, 3, 1, 2), move(6, 3, 8, 2)};
+        for (int i = 0; i < 12; i++) {
+            cache.makeMove(game, shuffle[i % shuffle.length]);
+        }
+        ChessGame other = new ChessGame();
+        for (int i = 0; i < 8; i++) {
+            cache.makeMove(other, move(2, i + 1, 3, i + 1));
+            cache.makeMove(other, move(7, i + 1, 6, i + 1));
+        }
+
+        assertTrue(cache.size() <= 4, "Size " + cache.size());
+        assertTrue(cache.evictions() > 0);
+        assertTrue(cache.hits() > 0);
+    }
+}
@@ -0,0 +1,70 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelSearcherTest {
+
+    @Test
+    @DisplayName("Finds Mate In Two")
+    void findsMateInTwo() {
+        ChessGame game = new ChessGame();
+        // A rook to the seventh rank, then the other one mates on the eighth
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R|R| | |K| | | |
+                """));
+        try (ParallelSearcher searcher = new ParallelSearcher(3, new TranspositionTable(4))) {
+            SearchResult result = searcher.search(game, SearchLimits.depth(6));
+            assertTrue(result.isMate(), "Scored " + result.score());
+            assertEquals(Searcher.MATE - 3, result.score());
+            assertTrue(game.legalMoves().contains(result.bestMove()));
+        }
+    }
+
+    @Test
+    @DisplayName("Counts Every Thread's Nodes")
+    void countsAllNodes() {
+        ChessGame game = new ChessGame();
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(4))) {
+            SearchResult result = searcher.search(game, SearchLimits.time(Duration.ofMillis(300)));
+            assertTrue(game.legalMoves().contains(result.bestMove()));
+            assertTrue(result.depth() >= 1);
+            // Searching again reuses the helper threads and the table
+            SearchResult again = searcher.search(game, SearchLimits.nodes(20_000));
+            assertTrue(game.legalMoves().contains(again.bestMove()));
+            assertTrue(again.nodes() >= 20_000, "Searched " + again.nodes());
+        }
+    }
+
+    @Test
+    @DisplayName("Agrees With One Thread")
+    void agreesWithOneThread() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |q| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |R| | | |K|
+                """));
+        SearchResult single = new Searcher().search(game, SearchLimits.depth(4));
+        try (ParallelSearcher searcher = new ParallelSearcher(2, new TranspositionTable(4))) {
+            assertEquals(single.bestMove(), searcher.search(game, SearchLimits.depth(4)).bestMove());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTest {
+
+    /**
+     * @return how many lines of play the given number of halfmoves long there are
+     */
+    private static long perft(Position position, int depth) {
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateMoves(moves, 0, false);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            if (position.makeMove(moves[i])) {
+                total += depth == 1 ? 1 : perft(position, depth - 1);
+                position.undoMove(moves[i]);
+            }
+        }
+        return total;
+    }
+
+    private static Set<ChessMove> legalMoves(Position position) {
+        Set<ChessMove> legal = new HashSet<>();
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateMoves(moves, 0, false);
+        for (int i = 0; i < count; i++) {
+            if (position.makeMove(moves[i])) {
+                position.undoMove(moves[i]);
+                legal.add(Position.toChessMove(moves[i]));
+            }
+        }
+        return legal;
+    }
+
+    @Test
+    @DisplayName("Perft From The Start")
+    void perftFromStart() {
+        Position position = new Position(new ChessGame());
+        assertEquals(20, perft(position, 1));
+        assertEquals(400, perft(position, 2));
+        assertEquals(8902, perft(position, 3));
+        assertEquals(197281, perft(position, 4));
+    }
+
+    @Test
+    @DisplayName("Perft With Castling, En Passant And Promotions")
+    void perftKiwipete() {
+        // The well known perft test position, which has every kind of special move within three halfmoves
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |p| |p|p|q|p|b| |
+                |b|n| | |p|n|p| |
+                | | | |P|N| | | |
+                | |p| | |P| | | |
+                | | |N| | |Q| |p|
+                |P|P|P|B|B|P|P|P|
+                |R| | | |K| | |R|
+                """));
+        Position position = new Position(game);
+        assertEquals(48, perft(position, 1));
+        assertEquals(2039, perft(position, 2));
+        assertEquals(97862, perft(position, 3));
+    }
+
+    @Test
+    @DisplayName("Agrees With ChessGame Over Random Games")
+    void agreesWithChessGame() throws Exception {
+        Random random = new Random(48);
+        for (int played = 0; played < 30; played++) {
+            ChessGame game = new ChessGame();
+            Position position = new Position(game);
+            for (int halfmove = 0; halfmove < 120; halfmove++) {
+                List<ChessMove> expected = game.legalMoves();
+                assertEquals(new HashSet<>(expected), legalMoves(position),
+                        "Legal moves differ in game " + played + " after " + halfmove + " halfmoves");
+                if (expected.isEmpty()) {
+                    break;
+                }
+                assertEquals(game.isInCheck(game.getTeamTurn()), position.inCheck());
+
+                ChessMove move = expected.get(random.nextInt(expected.size()));
+                int encoded = encode(move);
+                long before = position.hash();
+                assertTrue(position.makeMove(encoded));
+                position.undoMove(encoded);
+                assertEquals(before, position.hash(), "Taking back " + move + " changed the hash");
+                assertEquals(new HashSet<>(expected), legalMoves(position), "Taking back " + move + " changed the position");
+
+                game.makeMove(move);
+                position.makeMove(encoded);
+                assertEquals(game.getPositionHash(), position.hash(), "Hashes differ after " + move);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Repetition Includes Earlier Game Positions")
+    void repetitionIncludesGameHistory() throws Exception {
+        ChessGame game = new ChessGame();
+        List<ChessMove> shuffle = new ArrayList<>();
+        shuffle.add(Position.toChessMove(Position.move(1, 18, 0)));
+        shuffle.add(Position.toChessMove(Position.move(57, 42, 0)));
+        shuffle.add(Position.toChessMove(Position.move(18, 1, 0)));
+        for (ChessMove move : shuffle) {
+            game.makeMove(move);
+        }
+        Position position = new Position(game);
+        assertFalse(position.isRepetition());
+        // Black's knight going home repeats the starting position, reached before the search began
+        assertTrue(position.makeMove(Position.move(42, 57, 0)));
+        assertTrue(position.isRepetition());
+    }
+
+    private static int encode(ChessMove move) {
+        int from = (move.getStartPosition().getRow() - 1) * 8 + move.getStartPosition().getColumn() - 1;
+        int to = (move.getEndPosition().getRow() - 1) * 8 + move.getEndPosition().getColumn() - 1;
+        int promotion = move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal();
+        return Position.move(from, to, promotion);
+    }
+}
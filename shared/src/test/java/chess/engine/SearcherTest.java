@@ -0,0 +1,139 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearcherTest {
+
+    private static ChessGame game(String board, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(board));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    void findsMateInOne() {
+        ChessGame game = game("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                |R| | | | | |K| |
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(4));
+        assertEquals(move(1, 1, 8, 1), result.bestMove());
+        assertTrue(result.isMate());
+        assertTrue(result.score() > 0);
+    }
+
+    @Test
+    @DisplayName("Takes A Hanging Queen")
+    void takesHangingQueen() {
+        ChessGame game = game("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |q| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |R| | | |K|
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(3));
+        assertEquals(move(1, 4, 5, 4), result.bestMove());
+        assertTrue(result.score() > 400);
+    }
+
+    @Test
+    @DisplayName("Does Not Take A Defended Pawn With The Queen")
+    void avoidsLosingQueen() {
+        ChessGame game = game("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | |p| | | |
+                | | | |p| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |Q| | |K| |
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(2));
+        assertNotEquals(move(1, 4, 5, 4), result.bestMove());
+    }
+
+    @Test
+    @DisplayName("Reports Being Mated")
+    void noMoveWhenMated() {
+        ChessGame game = game("""
+                |R| | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | | | | |K| |
+                """, ChessGame.TeamColor.BLACK);
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(3));
+        assertNull(result.bestMove());
+        assertEquals(-Searcher.MATE, result.score());
+    }
+
+    @Test
+    @DisplayName("Stops At The Node Limit")
+    void stopsAtNodeLimit() {
+        ChessGame game = new ChessGame();
+        SearchResult result = new Searcher().search(game, SearchLimits.nodes(5000));
+        assertEquals(5000, result.nodes());
+        assertTrue(game.legalMoves().contains(result.bestMove()));
+    }
+
+    @Test
+    @DisplayName("Stops At The Time Limit")
+    void stopsAtTimeLimit() {
+        ChessGame game = new ChessGame();
+        SearchResult result = new Searcher().search(game, SearchLimits.time(Duration.ofMillis(100)));
+        assertTrue(result.elapsed().compareTo(Duration.ofSeconds(1)) < 0, "Took " + result.elapsed());
+        assertTrue(result.depth() >= 1);
+        assertTrue(game.legalMoves().contains(result.bestMove()));
+    }
+
+    @Test
+    @DisplayName("Stops When Interrupted")
+    void stopsWhenInterrupted() {
+        ChessGame game = new ChessGame();
+        Thread.currentThread().interrupt();
+        try {
+            SearchResult result = new Searcher().search(game, SearchLimits.depth(SearchLimits.MAX_DEPTH));
+            assertTrue(game.legalMoves().contains(result.bestMove()));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    @DisplayName("Leaves The Game Unchanged")
+    void leavesGameUnchanged() {
+        ChessGame game = new ChessGame();
+        ChessGame before = game.copy();
+        new Searcher().search(game, SearchLimits.depth(3));
+        assertEquals(before, game);
+        assertEquals(before.getPositionHash(), game.getPositionHash());
+    }
+}
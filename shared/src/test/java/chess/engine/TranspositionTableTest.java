@@ -0,0 +1,79 @@
+package chess.engine;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    // Hashes differing only above the low bits land in the same bucket of a small table
+    private static long sameBucket(int i) {
+        return 0x5DEECE66DL + ((long) i << 40);
+    }
+
+    @Test
+    @DisplayName("Stores And Finds Entries")
+    void storesAndFinds() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Position.move(12, 28, 0);
+        table.store(42L, move, -250, 7, TranspositionTable.LOWER_BOUND);
+
+        long entry = table.probe(42L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(0, table.probe(43L));
+    }
+
+    @Test
+    @DisplayName("Mate Scores Count From The Entry")
+    void mateScores() {
+        TranspositionTable table = new TranspositionTable(1);
+        // Mating in three halfmoves from the root, found five halfmoves in
+        int score = Searcher.MATE - 8;
+        table.store(1L, 0, TranspositionTable.toTable(score, 5), 3, TranspositionTable.EXACT);
+
+        int stored = TranspositionTable.score(table.probe(1L));
+        assertEquals(score, TranspositionTable.fromTable(stored, 5));
+        // Reached again two halfmoves from the root, it is a mate two halfmoves sooner
+        assertEquals(score + 3, TranspositionTable.fromTable(stored, 2));
+        assertEquals(-score, TranspositionTable.fromTable(
+                TranspositionTable.toTable(-score, 5), 5));
+    }
+
+    @Test
+    @DisplayName("Keeps The Best Move When Storing Without One")
+    void keepsBestMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Position.move(6, 21, 0);
+        table.store(9L, move, 30, 2, TranspositionTable.EXACT);
+        table.store(9L, 0, 10, 4, TranspositionTable.UPPER_BOUND);
+
+        long entry = table.probe(9L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(4, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    @DisplayName("Replaces Old Entries, Then Shallow Ones")
+    void agingReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(sameBucket(0), 0, 0, 10, TranspositionTable.EXACT);
+        table.newSearch();
+        table.store(sameBucket(1), 0, 0, 3, TranspositionTable.EXACT);
+        table.store(sameBucket(2), 0, 0, 9, TranspositionTable.EXACT);
+        table.store(sameBucket(3), 0, 0, 5, TranspositionTable.EXACT);
+
+        // The bucket is full; the deep entry from the last search is worth least
+        table.store(sameBucket(4), 0, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(sameBucket(0)));
+        assertNotEquals(0, table.probe(sameBucket(4)));
+
+        // Then the shallowest from this search
+        table.store(sameBucket(5), 0, 0, 6, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(sameBucket(4)));
+        assertNotEquals(0, table.probe(sameBucket(1)));
+        assertNotEquals(0, table.probe(sameBucket(5)));
+    }
+}
@@ -0,0 +1,76 @@
+package serialization;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+import websocket.messages.ServerMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessJsonTest {
+
+    @Test
+    @DisplayName("Game Round Trip")
+    void gameRoundTrip() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        String json = ChessJson.GSON.toJson(game);
+        ChessGame decoded = ChessJson.GSON.fromJson(json, ChessGame.class);
+
+        assertEquals(game, decoded);
+        assertEquals(1, decoded.getMoveSequence());
+        assertTrue(json.contains("\"RNBQKBNRPPPP.PPP"), "The board should be written as a compact string");
+    }
+
+    @Test
+    @DisplayName("Castling And En Passant Round Trip")
+    void castlingAndEnPassantRoundTrip() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 6), new ChessPosition(5, 6), null));
+        assertEquals("kq", game.getCastlingRights());
+        assertEquals(6, game.getEnPassantColumn());
+
+        ChessGame decoded = ChessJson.GSON.fromJson(ChessJson.GSON.toJson(game), ChessGame.class);
+
+        assertEquals(game, decoded);
+        assertEquals(game.getPositionHash(), decoded.getPositionHash());
+        ChessMove enPassant = new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 6), null);
+        decoded.makeMove(enPassant);
+        assertNull(decoded.getBoard().getPiece(new ChessPosition(5, 6)), "The passed pawn should be captured");
+    }
+
+    @Test
+    @DisplayName("Reads Reflective Format")
+    void readsReflectiveFormat() {
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+
+        assertEquals(game, ChessJson.GSON.fromJson(new Gson().toJson(game), ChessGame.class));
+        assertEquals(move, ChessJson.GSON.fromJson(new Gson().toJson(move), ChessMove.class));
+    }
+
+    @Test
+    @DisplayName("Server Message Subclass")
+    void serverMessageSubclass() {
+        var message = new ServerMessage.MoveAppliedMessage(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                1, ChessGame.GameStatus.ACTIVE, 42L);
+
+        ServerMessage decoded = ChessJson.GSON.fromJson(ChessJson.GSON.toJson(message), ServerMessage.class);
+
+        var moveApplied = assertInstanceOf(ServerMessage.MoveAppliedMessage.class, decoded);
+        assertEquals(message.getMove(), moveApplied.getMove());
+        assertEquals(1, moveApplied.getSequence());
+        assertEquals(ChessGame.GameStatus.ACTIVE, moveApplied.getStatus());
+        assertEquals(42L, moveApplied.getPositionHash());
+    }
+}
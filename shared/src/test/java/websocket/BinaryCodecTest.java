@@ -0,0 +1,109 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCodecTest {
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    @Test
+    @DisplayName("Load Game Round Trip")
+    void loadGameRoundTrip() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+
+        byte[] data = bytes(BinaryCodec.encode(new ServerMessage.LoadGameMessage(game)));
+        var decoded = (ServerMessage.LoadGameMessage) BinaryCodec.decodeServerMessage(data, 0, data.length);
+
+        assertEquals(game, decoded.getGame());
+        assertEquals(4, decoded.getGame().getMoveSequence());
+        assertEquals(4, decoded.getGame().getEnPassantColumn());
+        assertEquals(game.getPositionHash(), decoded.getGame().getPositionHash());
+        assertTrue(data.length < 64, "A whole game should fit in a few dozen bytes");
+    }
+
+    @Test
+    @DisplayName("Load Game Keeps Draw History")
+    void loadGameKeepsDrawHistory() throws Exception {
+        // Both knights out and back twice, so the starting position is seen a third time
+        ChessMove[] shuffle = {
+            new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+            new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+            new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null),
+            new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null)};
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 7; i++) {
+            game.makeMove(shuffle[i % 4]);
+        }
+
+        byte[] data = bytes(BinaryCodec.encode(new ServerMessage.LoadGameMessage(game)));
+        ChessGame decoded = ((ServerMessage.LoadGameMessage) BinaryCodec.decodeServerMessage(data, 0, data.length))
+                .getGame();
+        assertEquals(7, decoded.getHalfmoveClock());
+        assertArrayEquals(game.getPositionHistory(), decoded.getPositionHistory());
+
+        decoded.makeMove(shuffle[3]);
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, decoded.getStatus());
+        data = bytes(BinaryCodec.encode(new ServerMessage.LoadGameMessage(decoded)));
+        ChessGame drawn = ((ServerMessage.LoadGameMessage) BinaryCodec.decodeServerMessage(data, 0, data.length))
+                .getGame();
+        assertEquals(ChessGame.GameStatus.DRAW_BY_REPETITION, drawn.getStatus());
+    }
+
+    @Test
+    @DisplayName("Move Applied Round Trip")
+    void moveAppliedRoundTrip() throws Exception {
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        var message = new ServerMessage.MoveAppliedMessage(move, 42, ChessGame.GameStatus.CHECK, 123456789L);
+
+        byte[] data = bytes(BinaryCodec.encode(message));
+        var decoded = (ServerMessage.MoveAppliedMessage) BinaryCodec.decodeServerMessage(data, 0, data.length);
+
+        assertEquals(move, decoded.getMove());
+        assertEquals(42, decoded.getSequence());
+        assertEquals(ChessGame.GameStatus.CHECK, decoded.getStatus());
+        assertEquals(123456789L, decoded.getPositionHash());
+    }
+
+    @Test
+    @DisplayName("Command Round Trip")
+    void commandRoundTrip() throws Exception {
+        ChessMove move = new ChessMove(new ChessPosition(2, 4), new ChessPosition(3, 4), null);
+        UserGameCommand[] commands = {
+                new ConnectCommand("token", 7, true, true, 12),
+                new MakeMoveCommand("token", 7, move),
+                new UserGameCommand(UserGameCommand.CommandType.RESIGN, null, 7)
+        };
+        for (UserGameCommand command : commands) {
+            byte[] data = bytes(BinaryCodec.encode(command));
+            assertEquals(command, BinaryCodec.decodeCommand(data, 0, data.length));
+        }
+
+        byte[] data = bytes(BinaryCodec.encode(commands[0]));
+        var connect = (ConnectCommand) BinaryCodec.decodeCommand(data, 0, data.length);
+        assertTrue(connect.wantsBinaryFrames());
+        assertEquals(12, connect.getLastSeenSeq());
+
+        data = bytes(BinaryCodec.encode(commands[1]));
+        assertEquals(move, ((MakeMoveCommand) BinaryCodec.decodeCommand(data, 0, data.length)).getMove());
+    }
+}